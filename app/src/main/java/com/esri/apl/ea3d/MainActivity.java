@@ -20,12 +20,15 @@ import android.Manifest;
 import android.app.AlertDialog;
 import android.content.Context;
 import android.content.DialogInterface;
+import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.location.Location;
 import android.location.LocationListener;
 import android.location.LocationManager;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
 import android.preference.PreferenceManager;
 import android.support.annotation.NonNull;
 import android.support.design.widget.FloatingActionButton;
@@ -42,18 +45,43 @@ import android.view.MenuItem;
 import android.view.MotionEvent;
 import android.view.View;
 import android.webkit.URLUtil;
+import android.widget.ArrayAdapter;
 import android.widget.EditText;
 import android.widget.SeekBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import com.esri.apl.ea3d.analysis.BatchMeasurement;
+import com.esri.apl.ea3d.analysis.Heightfield;
+import com.esri.apl.ea3d.event.BatchMeasurementTouchListener;
+import com.esri.apl.ea3d.event.CameraPathPlayer;
+import com.esri.apl.ea3d.event.CameraTrajectoryRecorder;
+import com.esri.apl.ea3d.event.InteractionModeRegistry;
 import com.esri.apl.ea3d.event.LineOfSightTouchListener;
 import com.esri.apl.ea3d.event.MeasurementTouchListener;
 import com.esri.apl.ea3d.event.PivotLockTouchListener;
 import com.esri.apl.ea3d.event.SensorNavigationTouchListener;
+import com.esri.apl.ea3d.event.TouchLatency;
+import com.esri.apl.ea3d.event.ViewshedDistanceChannel;
 import com.esri.apl.ea3d.event.ViewshedTouchListener;
 import com.esri.apl.ea3d.model.Bookmark3D;
+import com.esri.apl.ea3d.model.LayerIdDictionary;
+import com.esri.apl.ea3d.model.PortalListingCache;
+import com.esri.apl.ea3d.model.Slide;
+import com.esri.apl.ea3d.model.SlideCache;
+import com.esri.apl.ea3d.model.SlideIndex;
+import com.esri.apl.ea3d.model.WebsceneEntry;
+import com.esri.apl.ea3d.util.BookmarkPrefetcher;
+import com.esri.apl.ea3d.util.CameraTrajectory;
+import com.esri.apl.ea3d.util.ElevationService;
+import com.esri.apl.ea3d.util.GeometryUtils;
+import com.esri.apl.ea3d.util.HeightfieldSampler;
+import com.esri.apl.ea3d.util.MainThreadScheduler;
 import com.esri.apl.ea3d.util.MessageUtils;
+import com.esri.apl.ea3d.util.PortalContentEnumerator;
+import com.esri.apl.ea3d.util.PortalUserContentSource;
+import com.esri.apl.ea3d.util.Projection;
+import com.esri.apl.ea3d.util.StartupTrace;
 import com.esri.arcgisruntime.ArcGISRuntimeEnvironment;
 import com.esri.arcgisruntime.concurrent.ListenableFuture;
 import com.esri.arcgisruntime.geometry.Point;
@@ -64,6 +92,9 @@ import com.esri.arcgisruntime.mapping.ArcGISScene;
 import com.esri.arcgisruntime.mapping.Viewpoint;
 import com.esri.arcgisruntime.mapping.view.Camera;
 import com.esri.arcgisruntime.mapping.view.DefaultSceneViewOnTouchListener;
+import com.esri.arcgisruntime.mapping.view.DrawStatus;
+import com.esri.arcgisruntime.mapping.view.DrawStatusChangedEvent;
+import com.esri.arcgisruntime.mapping.view.DrawStatusChangedListener;
 import com.esri.arcgisruntime.mapping.view.SceneView;
 import com.esri.arcgisruntime.mapping.view.ViewpointChangedEvent;
 import com.esri.arcgisruntime.mapping.view.ViewpointChangedListener;
@@ -71,23 +102,70 @@ import com.esri.arcgisruntime.portal.Portal;
 import com.esri.arcgisruntime.portal.PortalFolder;
 import com.esri.arcgisruntime.portal.PortalItem;
 import com.esri.arcgisruntime.portal.PortalUser;
-import com.esri.arcgisruntime.portal.PortalUserContent;
 import com.esri.arcgisruntime.security.AuthenticationManager;
 import com.esri.arcgisruntime.security.DefaultAuthenticationChallengeHandler;
 
 import org.apache.commons.lang.StringUtils;
 
-import java.util.AbstractMap;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainActivity extends AppCompatActivity {
   // CONSTS
   private final String TAG = "MainActivity";
   private static final int PRC_LOCATION_MOVETO = 2;
+  private static final int RC_IMPORT_MEASURE_TARGETS = 3;
+  private static final int RC_IMPORT_TRAJECTORY = 4;
+  // Elevation cache cells about 10 m on a side; enough to cover GPS wander around one site
+  private static final double ELEVATION_CACHE_RESOLUTION_DEG = 0.0001;
+  private static final int ELEVATION_CACHE_SIZE = 256;
+  // Web scene listing: portal folder requests in flight at once, and time allowed for all of them
+  private static final int WEBSCENE_FOLDER_CONCURRENCY = 6;
+  private static final long WEBSCENE_LIST_DEADLINE_MS = 30000;
+  // Stop prefetching bookmarks once this share of the Java heap is in use
+  private static final float PREFETCH_HEAP_BUDGET = 0.6f;
+  // Camera flights: to a slide, turning north, and each stop of a slide tour
+  private static final double SLIDE_FLIGHT_SEC = 4.0;
+  private static final double COMPASS_FLIGHT_SEC = 1.0;
+  private static final double SLIDE_TOUR_DWELL_SEC = 3.0;
+  // Walkthrough recordings: room for about 20 minutes of continuous movement, and fast replay speed
+  private static final int TRAJECTORY_CAPACITY_BYTES = 512 * 1024;
+  private static final double TRAJECTORY_FAST_SPEED = 4.0;
+  // On-device terrain: a 3 km square around the view center at 30 m, sampled 32 cells at a time
+  private static final int TERRAIN_GRID_CELLS = 101;
+  private static final double TERRAIN_CELL_SIZE_M = 30;
+  private static final int TERRAIN_SAMPLES_IN_FLIGHT = 32;
+  /** Intent extra: trace startup, skip the location prompt, and finish once the trace is written.
+   *  e.g. adb shell am start -W -n com.esri.apl.ea3d/.MainActivity --ez com.esri.apl.ea3d.STARTUP_BENCHMARK true */
+  public static final String EXTRA_STARTUP_BENCHMARK = "com.esri.apl.ea3d.STARTUP_BENCHMARK";
+  // Write the startup trace after this long even if some stage never finished
+  private static final long STARTUP_TRACE_TIMEOUT_MS = 60000;
+  // Interaction modes; see mModes
+  private static final int MODE_STANDARD_NAV = 0;
+  private static final int MODE_SENSOR_NAV = 1;
+  private static final int MODE_PIVOT_LOCK = 2;
+  private static final int MODE_MEASURE = 3;
+  private static final int MODE_LINE_OF_SIGHT = 4;
+  private static final int MODE_VIEWSHED = 5;
+  private static final int MODE_BATCH_MEASURE = 6;
 
   // WIDGETS/UI
   private SceneView mSceneView;
@@ -104,28 +182,66 @@ public class MainActivity extends AppCompatActivity {
 
   // bookmarks
   private List<Bookmark3D> mBookmarks = new ArrayList<>();
-
-  // touch listeners
-  private MeasurementTouchListener mMeasureTouchListener;
-  private LineOfSightTouchListener mLineOfSightTouchListener;
-  private ViewshedTouchListener mViewshedTouchListener;
-  private SensorNavigationTouchListener mSensorNavTouchListener;
-  private PivotLockTouchListener mPivotLockTouchListener;
+  /** Operational layer ids of the current scene, and which of those layers are visible */
+  private LayerIdDictionary mLayerIds;
+  private final BitSet mVisibleLayers = new BitSet();
+  /** Webscene whose slides are in mBookmarks, and whether they came from an up-to-date source */
+  private String mSlidesItemId;
+  private boolean mSlidesCurrent;
+
+  private final ElevationService mElevations =
+      new ElevationService(ELEVATION_CACHE_RESOLUTION_DEG, ELEVATION_CACHE_SIZE);
+
+  private BookmarkPrefetcher mPrefetcher;
+  private CameraPathPlayer mPathPlayer;
+  private CameraTrajectoryRecorder mTrajectoryRecorder;
+
+  /** Terrain for the CPU analysis engines, or null to leave analysis to the SDK */
+  private Heightfield mHeightfield;
+  private final HeightfieldSampler mTerrainSampler = new HeightfieldSampler(TERRAIN_SAMPLES_IN_FLIGHT);
+
+  // Startup tracing; on in debug builds and in startup benchmark mode
+  private StartupTrace mStartupTrace;
+  private boolean mStartupBenchmark;
+  private boolean mFirstFrameDrawn = false;
+  /** Open from loadWebscene until its slides are current */
+  private int mSlidesSpan = StartupTrace.NO_SPAN;
+  private final Handler mStartupTraceTimeout = new Handler();
+
+  /** For disk work (e.g. the slide cache) that shouldn't block the UI thread */
+  private final ExecutorService mBackgroundExecutor = Executors.newSingleThreadExecutor();
+  /** For splitting CPU-bound analysis (e.g. batch measurement) across cores */
+  private final ExecutorService mAnalysisExecutor =
+      Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+  /** Runs each analysis job, which waits on its pieces in mAnalysisExecutor, apart from disk work */
+  private final ExecutorService mAnalysisCoordinator = Executors.newSingleThreadExecutor();
+
+  /** Touch listeners, built the first time their mode is chosen */
+  private InteractionModeRegistry mModes;
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
+    mStartupBenchmark = getIntent().getBooleanExtra(EXTRA_STARTUP_BENCHMARK, false);
+    mStartupTrace = new StartupTrace(mStartupBenchmark || BuildConfig.DEBUG);
+
     // Needed to prevent a crash on Pixel C tablet with very complex mesh scenes:
+    int span = mStartupTrace.begin("SceneView.setMemoryLimit");
     SceneView.setMemoryLimit(805306368); // 768 MB
+    mStartupTrace.end(span);
 
+    span = mStartupTrace.begin("license");
     int iLicRes = getResources().getIdentifier("license_string_std", "string", getPackageName());
     if (iLicRes != 0) ArcGISRuntimeEnvironment.setLicense(getString(iLicRes));
     AuthenticationManager.CredentialCache.clear();
+    mStartupTrace.end(span);
 
+    span = mStartupTrace.begin("layout");
     super.onCreate(savedInstanceState);
     setContentView(R.layout.activity_main);
 
     Toolbar actionBar = (Toolbar) findViewById(R.id.action_bar);
     setSupportActionBar(actionBar);
+    mStartupTrace.end(span);
 
     // create a scene
     ArcGISScene scene = new ArcGISScene();
@@ -133,6 +249,15 @@ public class MainActivity extends AppCompatActivity {
     mSceneView = (SceneView) findViewById(R.id.sceneView);
     mSceneView.setScene(scene);
     mSceneView.addViewpointChangedListener(onViewpointChanged);
+    if (mStartupTrace.is_enabled()) {
+      mSceneView.addDrawStatusChangedListener(onFirstFrame);
+      mStartupTraceTimeout.postDelayed(new Runnable() {
+        @Override
+        public void run() {
+          finishStartupTrace();
+        }
+      }, STARTUP_TRACE_TIMEOUT_MS);
+    }
 
     // Handle changes to viewshed distance setting
     mLytViewshedDist = findViewById(R.id.lytViewshedDist);
@@ -149,27 +274,101 @@ public class MainActivity extends AppCompatActivity {
     int iStartDist = PreferenceManager.getDefaultSharedPreferences(this)
         .getInt(getString(R.string.pref_viewshed_dist),
             getResources().getInteger(R.integer.setting_initial_viewshed_dist_m));
+    final ViewshedDistanceChannel viewshedDistChannel = new ViewshedDistanceChannel(iStartDist);
     viewshedDistSlider.setOnSeekBarChangeListener(new OnViewshedDistChangeListener(
         PreferenceManager.getDefaultSharedPreferences(this),
-        (TextView)findViewById(R.id.txtViewshedDist)));
+        (TextView)findViewById(R.id.txtViewshedDist), viewshedDistChannel));
     viewshedDistSlider.setProgress(iStartDist);
 
     // Get Nav mode indicator
     mViewshedNavMode = (AppCompatImageView)findViewById(R.id.viewshedNavModeIndicator);
 
     // Round floating action buttons for certain touch listeners
-    FloatingActionButton btnZoomToViewshed =
+    final FloatingActionButton btnZoomToViewshed =
         (FloatingActionButton)findViewById(R.id.btnZoomToAnalysisViewpoint);
-    FloatingActionButton btnReturnToCamera =
+    final FloatingActionButton btnReturnToCamera =
         (FloatingActionButton)findViewById(R.id.btnReturnToCameraViewpoint);
-    FloatingActionButton btnPivotLock =
+    final FloatingActionButton btnPivotLock =
         (FloatingActionButton)findViewById(R.id.btnStopPivot);
 
-    mMeasureTouchListener = new MeasurementTouchListener(mSceneView);
-    mLineOfSightTouchListener = new LineOfSightTouchListener(mSceneView);
-    mViewshedTouchListener = new ViewshedTouchListener(mSceneView, btnZoomToViewshed, btnReturnToCamera, mViewshedNavMode);
-    mSensorNavTouchListener = new SensorNavigationTouchListener(mSceneView, this);
-    mPivotLockTouchListener = new PivotLockTouchListener(mSceneView, this, btnPivotLock);
+    span = mStartupTrace.begin("touchListeners");
+    mModes = new InteractionModeRegistry(mSceneView);
+    mModes.register(MODE_STANDARD_NAV, true,
+        new InteractionModeRegistry.Factory<DefaultSceneViewOnTouchListener>() {
+      @Override
+      public DefaultSceneViewOnTouchListener create() {
+        return new DefaultSceneViewOnTouchListener(mSceneView);
+      }
+    });
+    mModes.register(MODE_SENSOR_NAV, true,
+        new InteractionModeRegistry.Factory<SensorNavigationTouchListener>() {
+      @Override
+      public SensorNavigationTouchListener create() {
+        return new SensorNavigationTouchListener(mSceneView, MainActivity.this);
+      }
+    });
+    mModes.register(MODE_PIVOT_LOCK, true,
+        new InteractionModeRegistry.Factory<PivotLockTouchListener>() {
+      @Override
+      public PivotLockTouchListener create() {
+        return new PivotLockTouchListener(mSceneView, MainActivity.this, btnPivotLock);
+      }
+    });
+    mModes.register(MODE_MEASURE, false,
+        new InteractionModeRegistry.Factory<MeasurementTouchListener>() {
+      @Override
+      public MeasurementTouchListener create() {
+        return new MeasurementTouchListener(mSceneView);
+      }
+    });
+    mModes.register(MODE_LINE_OF_SIGHT, false,
+        new InteractionModeRegistry.Factory<LineOfSightTouchListener>() {
+      @Override
+      public LineOfSightTouchListener create() {
+        LineOfSightTouchListener lineOfSight = new LineOfSightTouchListener(mSceneView);
+        if (mHeightfield != null) lineOfSight.set_heightfield(mHeightfield);
+        lineOfSight.set_onTargetsCheckedListener(new LineOfSightTouchListener.OnTargetsCheckedListener() {
+          @Override
+          public void onTargetsChecked(int visible, int count) {
+            MessageUtils.showToast(MainActivity.this,
+                getString(R.string.msg_targets_visible, visible, count), Toast.LENGTH_SHORT);
+          }
+        });
+        return lineOfSight;
+      }
+    });
+    mModes.register(MODE_VIEWSHED, false,
+        new InteractionModeRegistry.Factory<ViewshedTouchListener>() {
+      @Override
+      public ViewshedTouchListener create() {
+        ViewshedTouchListener viewshed = new ViewshedTouchListener(mSceneView, btnZoomToViewshed,
+            btnReturnToCamera, mViewshedNavMode, viewshedDistChannel,
+            mBackgroundExecutor, mAnalysisCoordinator, mAnalysisExecutor);
+        viewshed.set_heightfield(mHeightfield);
+        return viewshed;
+      }
+    });
+    mModes.register(MODE_BATCH_MEASURE, false,
+        new InteractionModeRegistry.Factory<BatchMeasurementTouchListener>() {
+      @Override
+      public BatchMeasurementTouchListener create() {
+        return new BatchMeasurementTouchListener(mSceneView, mElevations,
+            mBackgroundExecutor, mAnalysisCoordinator, mAnalysisExecutor);
+      }
+    });
+    mStartupTrace.end(span);
+
+    mPrefetcher = new BookmarkPrefetcher(this, mElevations, mBackgroundExecutor,
+        PREFETCH_HEAP_BUDGET);
+    mPathPlayer = new CameraPathPlayer(mSceneView);
+    mPathPlayer.set_onLegListener(new CameraPathPlayer.OnLegListener() {
+      @Override
+      public void onLegStarted(Bookmark3D slide) {
+        mPrefetcher.recordVisit(slide);
+        showSlideLayers(slide);
+      }
+    });
+    mTrajectoryRecorder = new CameraTrajectoryRecorder(mSceneView, TRAJECTORY_CAPACITY_BYTES);
 
     // Add compass
     mCompass = (AppCompatImageView) findViewById(R.id.compass);
@@ -178,6 +377,7 @@ public class MainActivity extends AppCompatActivity {
     // Start loading layers only if this build is meant to be run outside China's firewall
     if (!BuildConfig.IS_BEHIND_FIREWALL) {
       mPortal = new Portal(getString(R.string.default_portal_url));
+      final int portalSpan = mStartupTrace.begin("Portal.loadAsync");
       mPortal.addDoneLoadingListener(new Runnable() {
         @Override
         public void run() {
@@ -185,26 +385,73 @@ public class MainActivity extends AppCompatActivity {
           if (iWebSceneId != 0) {
             loadWebscene(getString(iWebSceneId));
           }
+          mStartupTrace.end(portalSpan);
+          maybeFinishStartupTrace();
         }
       });
       mPortal.loadAsync();
     }
 
     // If below Marshmallow, permissions were granted at install time. Otherwise, ask the user now.
+    // (Not in benchmark mode, where the prompt would hold up startup.)
     if (permissionsNeeded().size() == 0)
       startListeningForLocation();
-    else {
+    else if (!mStartupBenchmark) {
       requestPermissions(PRC_LOCATION_MOVETO);
     }
   }
 
+  /** Note the first completed draw as the end of startup's first-frame span */
+  private DrawStatusChangedListener onFirstFrame = new DrawStatusChangedListener() {
+    @Override
+    public void drawStatusChanged(DrawStatusChangedEvent drawStatusChangedEvent) {
+      if (drawStatusChangedEvent.getDrawStatus() != DrawStatus.COMPLETED) return;
+      mSceneView.removeDrawStatusChangedListener(this);
+      mStartupTrace.sinceStart("firstFrame");
+      mFirstFrameDrawn = true;
+      maybeFinishStartupTrace();
+    }
+  };
+
+  /** Startup is over once the first frame is drawn and every traced stage has ended */
+  private void maybeFinishStartupTrace() {
+    if (mFirstFrameDrawn && mStartupTrace.get_openSpans() == 0) finishStartupTrace();
+  }
+
+  /** Write the startup trace, once; in benchmark mode, then finish */
+  private void finishStartupTrace() {
+    if (!mStartupTrace.is_enabled()) return;
+    mStartupTraceTimeout.removeCallbacksAndMessages(null);
+    File dir = getExternalFilesDir("traces");
+    if (dir == null) dir = new File(getFilesDir(), "traces");
+    final File file = new File(dir, "startup-" + System.currentTimeMillis() + ".json");
+    mBackgroundExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          mStartupTrace.finish(file);
+          Log.i(TAG, "Wrote startup trace " + file);
+        } catch (IOException e) {
+          Log.e(TAG, "Couldn't write startup trace", e);
+        }
+        if (mStartupBenchmark) runOnUiThread(new Runnable() {
+          @Override
+          public void run() {
+            finish();
+          }
+        });
+      }
+    });
+  }
+
   @Override
   protected void onPause() {
     super.onPause();
     // pause SceneView
     mSceneView.pause();
     // pause position sensor, if active
-    if (mSensorNavTouchListener != null) mSensorNavTouchListener.stopSensor();
+    SensorNavigationTouchListener sensorNav = mModes.peek(MODE_SENSOR_NAV);
+    if (sensorNav != null) sensorNav.stopSensor();
   }
 
   @Override
@@ -213,7 +460,67 @@ public class MainActivity extends AppCompatActivity {
     // resume SceneView
     mSceneView.resume();
     // resume position sensor, if active
-    if (mSensorNavTouchListener != null) mSensorNavTouchListener.startSensor();
+    SensorNavigationTouchListener sensorNav = mModes.peek(MODE_SENSOR_NAV);
+    if (sensorNav != null) sensorNav.startSensor();
+  }
+
+  @Override
+  protected void onDestroy() {
+    mPrefetcher.stop();
+    mPathPlayer.stop();
+    mTrajectoryRecorder.stopPlayback();
+    mTrajectoryRecorder.stopRecording();
+    // Let queued work (e.g. a slide cache write) finish, but accept no more
+    mBackgroundExecutor.shutdown();
+    mAnalysisCoordinator.shutdown();
+    mAnalysisExecutor.shutdown();
+    super.onDestroy();
+  }
+
+  /** Any touch means the user is busy; leave the UI thread and network to them */
+  @Override
+  public boolean dispatchTouchEvent(MotionEvent ev) {
+    if (ev.getActionMasked() == MotionEvent.ACTION_DOWN) {
+      mPrefetcher.stop();
+      // Leave the camera where the touch caught it
+      mPathPlayer.stop();
+      mTrajectoryRecorder.stopPlayback();
+    }
+    return super.dispatchTouchEvent(ev);
+  }
+
+  /**
+   * Adds touch-to-result latency percentiles, in milliseconds, to
+   * {@code adb shell dumpsys activity com.esri.apl.ea3d/.MainActivity}.
+   * Add {@code --reset-latency} to start counting afresh afterward.
+   */
+  @Override
+  public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+    super.dump(prefix, fd, writer, args);
+    writer.println(prefix + "Touch latency (ms):");
+    for (TouchLatency latency : touchLatencies()) latency.dump(writer, prefix + "  ");
+    if (args != null && Arrays.asList(args).contains("--reset-latency")) resetTouchLatencies();
+  }
+
+  /** Latency of the analysis listeners built so far */
+  private List<TouchLatency> touchLatencies() {
+    List<TouchLatency> latencies = new ArrayList<>();
+    MeasurementTouchListener measure = mModes.peek(MODE_MEASURE);
+    if (measure != null) latencies.add(measure.get_latency());
+    LineOfSightTouchListener lineOfSight = mModes.peek(MODE_LINE_OF_SIGHT);
+    if (lineOfSight != null) latencies.add(lineOfSight.get_latency());
+    ViewshedTouchListener viewshed = mModes.peek(MODE_VIEWSHED);
+    if (viewshed != null) latencies.add(viewshed.get_latency());
+    PivotLockTouchListener pivotLock = mModes.peek(MODE_PIVOT_LOCK);
+    if (pivotLock != null) latencies.add(pivotLock.get_latency());
+    BatchMeasurementTouchListener batchMeasure = mModes.peek(MODE_BATCH_MEASURE);
+    if (batchMeasure != null) latencies.add(batchMeasure.get_latency());
+    return latencies;
+  }
+
+  /** Latency is tracked per scene; start over, e.g. when another webscene is loaded */
+  private void resetTouchLatencies() {
+    for (TouchLatency latency : touchLatencies()) latency.reset();
   }
 
   /**
@@ -229,6 +536,19 @@ public class MainActivity extends AppCompatActivity {
 
   /** Load the specified webscene item, plus any other non-supported features (e.g. slides) */
   private void loadWebscene(String sEsriWebsceneId) {
+    mSlidesItemId = sEsriWebsceneId;
+    mSlidesCurrent = false;
+    mPrefetcher.stop();
+    mPathPlayer.stop();
+    mTrajectoryRecorder.stopPlayback();
+    resetTouchLatencies();
+    // Terrain sampled from the old scene's surface doesn't describe the new one
+    setDeviceTerrain(null);
+    mBookmarks.clear();
+    loadCachedSlides(sEsriWebsceneId);
+    final int sceneSpan = mStartupTrace.begin("loadWebscene");
+    mStartupTrace.end(mSlidesSpan);
+    mSlidesSpan = mStartupTrace.begin("slides");
     try {
       PortalItem webSceneItem = new PortalItem(mPortal, sEsriWebsceneId);
       ArcGISScene scene = new ArcGISScene(webSceneItem);
@@ -237,18 +557,11 @@ public class MainActivity extends AppCompatActivity {
       scene.addDoneLoadingListener(new Runnable() {
         @Override
         public void run() {
+          mStartupTrace.end(sceneSpan);
           try {
             mSceneView.setViewpointCameraAsync(scene.getInitialViewpoint().getCamera(), 4f);
-            // Get slides
-            Map<String, Object> unknownJsonObjs = scene.getUnsupportedJson();
-            Map<String, Object> presentation = (Map<String, Object>)unknownJsonObjs.get("presentation");
-            List<Object> slides = (List<Object>)presentation.get("slides");
-            mBookmarks.clear();
-            for (Object oSlide : slides) {
-              Bookmark3D slide = new Bookmark3D((Map<String, Object>) oSlide);
-              mBookmarks.add(slide);
-              Log.d(TAG, "Created slide " + slide.get_title());
-            }
+            indexLayers(scene);
+            revalidateSlides(webSceneItem, scene);
           } catch (Exception e) {
             MessageUtils.showToast(MainActivity.this, "Error loading webscene slides: "
                     + e.getLocalizedMessage());
@@ -260,6 +573,187 @@ public class MainActivity extends AppCompatActivity {
     }
   }
 
+  private File getSlideCacheDir() {
+    return new File(getCacheDir(), "slides");
+  }
+
+  /** Make cached slides for a webscene available right away, while the scene itself loads */
+  private void loadCachedSlides(final String itemId) {
+    mBackgroundExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          final SlideCache cache = SlideCache.open(getSlideCacheDir(), itemId);
+          if (cache == null) return;
+          runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+              // Don't replace slides that are already known to be current
+              if (itemId.equals(mSlidesItemId) && !mSlidesCurrent) setBookmarksFromCache(cache);
+            }
+          });
+        } catch (IOException e) {
+          Log.w(TAG, "Couldn't read slide cache", e);
+        }
+      }
+    });
+  }
+
+  private void setBookmarksFromCache(SlideCache cache) {
+    mBookmarks.clear();
+    for (int iSlide = 0; iSlide < cache.size(); iSlide++) {
+      mBookmarks.add(new Bookmark3D(cache.getId(iSlide), cache.getTitle(iSlide), cache, iSlide));
+    }
+    Log.d(TAG, "Read " + cache.size() + " slides from cache");
+  }
+
+  /**
+   * Check the slide cache against the loaded webscene item. If the cache was written for the
+   * item's current modified time, use it; otherwise get fresh slides and re-cache them.
+   */
+  private void revalidateSlides(final PortalItem webSceneItem, final ArcGISScene scene) {
+    final String itemId = webSceneItem.getItemId();
+    final long modified = (webSceneItem.getModified() != null) ?
+        webSceneItem.getModified().getTimeInMillis() : 0;
+    mBackgroundExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        SlideCache cache = null;
+        try {
+          cache = SlideCache.open(getSlideCacheDir(), itemId);
+        } catch (IOException e) {
+          Log.w(TAG, "Couldn't read slide cache", e);
+        }
+        final SlideCache validCache =
+            (cache != null && modified != 0 && cache.get_itemModified() == modified) ? cache : null;
+        runOnUiThread(new Runnable() {
+          @Override
+          public void run() {
+            if (!itemId.equals(mSlidesItemId)) return; // Another webscene was chosen meanwhile
+            if (validCache != null) {
+              setBookmarksFromCache(validCache);
+              mSlidesCurrent = true;
+              mPrefetcher.start(scene, mBookmarks, mLayerIds);
+              mStartupTrace.end(mSlidesSpan);
+              maybeFinishStartupTrace();
+            } else {
+              loadSlides(webSceneItem, scene, modified);
+            }
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Get slides by streaming the raw webscene JSON. Only slide ids and titles are read here;
+   * each slide's camera and visible layers are decoded when it's first chosen.
+   * Falls back to the SDK's already-parsed unsupported JSON if the item data can't be read.
+   */
+  private void loadSlides(final PortalItem webSceneItem, final ArcGISScene scene, final long modified) {
+    final String itemId = webSceneItem.getItemId();
+    // The SDK doesn't hand back the item data the scene was loaded from, so it's fetched again;
+    // that only happens when the slide cache is missing or out of date
+    final ListenableFuture<InputStream> lfData = webSceneItem.fetchDataAsync();
+    lfData.addDoneListener(new Runnable() {
+      @Override
+      public void run() {
+        if (!itemId.equals(mSlidesItemId)) return;
+        // Reading and indexing a large webscene takes too long for the UI thread
+        mBackgroundExecutor.execute(new Runnable() {
+          @Override
+          public void run() {
+            int parseSpan = mStartupTrace.begin("slideParsing");
+            SlideIndex parsed = null;
+            try (InputStream data = lfData.get()) {
+              parsed = SlideIndex.parse(data);
+            } catch (Exception e) {
+              Log.w(TAG, "Couldn't stream webscene slides; using unsupported JSON instead", e);
+            }
+            mStartupTrace.end(parseSpan);
+            final SlideIndex slides = parsed;
+            runOnUiThread(new Runnable() {
+              @Override
+              public void run() {
+                if (itemId.equals(mSlidesItemId)) setSlides(itemId, scene, modified, slides);
+              }
+            });
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Make freshly read slides current, and cache them
+   * @param slides indexed slides, or null to take them from the scene's unsupported JSON
+   */
+  private void setSlides(String itemId, ArcGISScene scene, long modified, SlideIndex slides) {
+    if (slides != null) {
+      mBookmarks.clear();
+      for (int iSlide = 0; iSlide < slides.size(); iSlide++) {
+        mBookmarks.add(new Bookmark3D(
+            slides.getId(iSlide), slides.getTitle(iSlide), slides, iSlide));
+      }
+      Log.d(TAG, "Indexed " + slides.size() + " slides");
+      // Cache from slides of its own, so the bookmarks' details stay undecoded until used
+      if (modified != 0) cacheSlides(itemId, modified, slides.toSlides());
+    } else {
+      try {
+        loadSlidesFromUnsupportedJson(scene);
+      } catch (Exception exc) {
+        MessageUtils.showToast(MainActivity.this, "Error loading webscene slides: "
+            + exc.getLocalizedMessage());
+        return;
+      }
+      if (modified != 0) cacheSlides(itemId, modified, new ArrayList<>(mBookmarks));
+    }
+    mSlidesCurrent = true;
+    mPrefetcher.start(scene, mBookmarks, mLayerIds);
+    mStartupTrace.end(mSlidesSpan);
+    maybeFinishStartupTrace();
+  }
+
+  /** Write slides to the cache in the background; the slides' details are decoded there */
+  private void cacheSlides(final String itemId, final long modified,
+                           final List<? extends Slide> slides) {
+    mBackgroundExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          SlideCache.write(getSlideCacheDir(), itemId, modified, slides);
+        } catch (Exception e) {
+          Log.w(TAG, "Couldn't cache slides", e);
+        }
+      }
+    });
+  }
+
+  /** Build the layer id dictionary and note current layer visibility; once per scene */
+  private void indexLayers(ArcGISScene scene) {
+    List<Layer> layers = scene.getOperationalLayers();
+    List<String> ids = new ArrayList<>(layers.size());
+    mVisibleLayers.clear();
+    for (int iLyr = 0; iLyr < layers.size(); iLyr++) {
+      Layer lyr = layers.get(iLyr);
+      ids.add(lyr.getId());
+      mVisibleLayers.set(iLyr, lyr.isVisible());
+    }
+    mLayerIds = new LayerIdDictionary(ids);
+  }
+
+  private void loadSlidesFromUnsupportedJson(ArcGISScene scene) {
+    Map<String, Object> unknownJsonObjs = scene.getUnsupportedJson();
+    Map<String, Object> presentation = (Map<String, Object>)unknownJsonObjs.get("presentation");
+    List<Object> slides = (List<Object>)presentation.get("slides");
+    mBookmarks.clear();
+    for (Object oSlide : slides) {
+      Bookmark3D slide = new Bookmark3D((Map<String, Object>) oSlide);
+      mBookmarks.add(slide);
+      Log.d(TAG, "Created slide " + slide.get_title());
+    }
+  }
+
 
   @Override
   public boolean onCreateOptionsMenu(Menu menu) {
@@ -286,43 +780,69 @@ public class MainActivity extends AppCompatActivity {
         showBookmarks();
         return true;
       case R.id.mnuTapStandardNavigation:
-        cleanupNavTouchListeners();
-        mSceneView.setOnTouchListener(new DefaultSceneViewOnTouchListener(mSceneView));
+        mModes.enter(MODE_STANDARD_NAV);
         mTBItems.findItem(R.id.mnuTapAction).setIcon(item.getIcon());
         return true;
       case R.id.mnuTapSensorNavigation:
-        cleanupNavTouchListeners();
-        mSceneView.setOnTouchListener(mSensorNavTouchListener);
-        mSensorNavTouchListener.set_isActiveListener(true);
+        mModes.enter(MODE_SENSOR_NAV);
         mTBItems.findItem(R.id.mnuTapAction).setIcon(item.getIcon());
         return true;
       case R.id.mnuTapMeasure:
-        cleanupAllTouchListeners();
-        mSceneView.setOnTouchListener(mMeasureTouchListener);
+        mModes.<MeasurementTouchListener>enter(MODE_MEASURE).set_pathMode(false);
         mTBItems.findItem(R.id.mnuTapAction).setIcon(item.getIcon());
         return true;
+      case R.id.mnuTapMeasurePath:
+        mModes.<MeasurementTouchListener>enter(MODE_MEASURE).set_pathMode(true);
+        mTBItems.findItem(R.id.mnuTapAction).setIcon(item.getIcon());
+        MessageUtils.showToast(this, getString(R.string.msg_start_path_measure), Toast.LENGTH_SHORT);
+        return true;
+      case R.id.mnuTapMeasureBatch:
+        mModes.enter(MODE_BATCH_MEASURE);
+        mTBItems.findItem(R.id.mnuTapAction).setIcon(item.getIcon());
+        MessageUtils.showToast(this, getString(R.string.msg_start_batch_measure), Toast.LENGTH_SHORT);
+        return true;
+      case R.id.mnuImportMeasureTargets:
+        Intent pickTargets = new Intent(Intent.ACTION_OPEN_DOCUMENT)
+            .addCategory(Intent.CATEGORY_OPENABLE)
+            .setType("text/*");
+        startActivityForResult(pickTargets, RC_IMPORT_MEASURE_TARGETS);
+        return true;
       case R.id.mnuTapLineOfSight:
-        cleanupAllTouchListeners();
-        mSceneView.setOnTouchListener(mLineOfSightTouchListener);
+        mModes.enter(MODE_LINE_OF_SIGHT);
         mTBItems.findItem(R.id.mnuTapAction).setIcon(item.getIcon());
         return true;
       case R.id.mnuTapViewshed:
-        cleanupAllTouchListeners();
-        mSceneView.setOnTouchListener(mViewshedTouchListener);
-        mLytViewshedDist.setVisibility(View.VISIBLE);
+        mModes.enter(MODE_VIEWSHED);
         mTBItems.findItem(R.id.mnuTapAction).setIcon(item.getIcon());
         mLytViewshedDist.setVisibility(View.VISIBLE);
         return true;
+      case R.id.mnuDeviceTerrain:
+        toggleDeviceTerrain();
+        return true;
       case R.id.mnuPivotLock:
-        cleanupNavTouchListeners();
-        mSceneView.setOnTouchListener(mPivotLockTouchListener);
+        mModes.enter(MODE_PIVOT_LOCK);
         mTBItems.findItem(R.id.mnuTapAction).setIcon(item.getIcon());
-        mPivotLockTouchListener.initialize();
         return true;
       case R.id.mnuCleanupGraphics:
-        mViewshedTouchListener.cleanup();
-        mMeasureTouchListener.cleanup();
-        mLineOfSightTouchListener.cleanup();
+        mModes.clearResults();
+        return true;
+      case R.id.mnuPlaySlides:
+        playSlides();
+        return true;
+      case R.id.mnuRecordTrajectory:
+        toggleTrajectoryRecording(item);
+        return true;
+      case R.id.mnuPlayTrajectory:
+        playTrajectory(1.0);
+        return true;
+      case R.id.mnuPlayTrajectoryFast:
+        playTrajectory(TRAJECTORY_FAST_SPEED);
+        return true;
+      case R.id.mnuImportTrajectory:
+        Intent pickTrajectory = new Intent(Intent.ACTION_OPEN_DOCUMENT)
+            .addCategory(Intent.CATEGORY_OPENABLE)
+            .setType("*/*");
+        startActivityForResult(pickTrajectory, RC_IMPORT_TRAJECTORY);
         return true;
       case R.id.mnuOpenWebScene:
         getAGOLWebscenesList();
@@ -332,19 +852,201 @@ public class MainActivity extends AppCompatActivity {
 
     }
   }
-  private void cleanupAllTouchListeners() {
-    mMeasureTouchListener.cleanup();
-    mLineOfSightTouchListener.cleanup();
-    mViewshedTouchListener.cleanup();
-    mSensorNavTouchListener.cleanup();
-    mPivotLockTouchListener.cleanup();
+
+  @Override
+  protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+    super.onActivityResult(requestCode, resultCode, data);
+    if (requestCode == RC_IMPORT_MEASURE_TARGETS && resultCode == RESULT_OK && data != null)
+      importMeasureTargets(data.getData());
+    else if (requestCode == RC_IMPORT_TRAJECTORY && resultCode == RESULT_OK && data != null)
+      importTrajectory(data.getData());
   }
 
-  private void cleanupNavTouchListeners() {
-    mSensorNavTouchListener.cleanup();
-    mPivotLockTouchListener.cleanup();
+  /**
+   * Sample the surface around the view center into a heightfield and analyze on the device with
+   * it (CPU line of sight, and exported viewshed statistics), or go back to the SDK's analyses
+   */
+  private void toggleDeviceTerrain() {
+    if (mHeightfield != null || mTerrainSampler.isSampling()) {
+      setDeviceTerrain(null);
+      return;
+    }
+    android.graphics.Point center = new android.graphics.Point(
+        mSceneView.getWidth() / 2, mSceneView.getHeight() / 2);
+    final ListenableFuture<Point> lfCenter = mSceneView.screenToLocationAsync(center);
+    lfCenter.addDoneListener(new Runnable() {
+      @Override
+      public void run() {
+        Point ptCenter = null;
+        try {
+          ptCenter = lfCenter.get();
+        } catch (Exception e) {
+          Log.e(TAG, "Couldn't find the view center", e);
+        }
+        if (ptCenter == null || mSceneView.getScene() == null) {
+          MessageUtils.showToast(MainActivity.this, getString(R.string.err_no_terrain));
+          return;
+        }
+        Point centerWM = GeometryUtils.toWebMercator(ptCenter);
+        // Mercator cells are 1/cos(lat) times the ground they cover; size them for the ground
+        double cellSize = TERRAIN_CELL_SIZE_M / Projection.webMercatorGroundScale(centerWM.getY());
+        mTerrainSampler.sample(mSceneView.getScene().getBaseSurface(), centerWM.getX(),
+            centerWM.getY(), TERRAIN_GRID_CELLS, cellSize,
+            new HeightfieldSampler.OnHeightfieldListener() {
+          @Override
+          public void onHeightfield(Heightfield heightfield) {
+            setDeviceTerrain(heightfield);
+            MessageUtils.showToast(MainActivity.this, (heightfield != null)
+                ? getString(R.string.msg_terrain_ready,
+                    (int) ((TERRAIN_GRID_CELLS - 1) * TERRAIN_CELL_SIZE_M / 2))
+                : getString(R.string.err_no_terrain));
+          }
+        });
+        mTBItems.findItem(R.id.mnuDeviceTerrain).setChecked(true);
+        MessageUtils.showToast(MainActivity.this, getString(R.string.msg_sampling_terrain),
+            Toast.LENGTH_SHORT);
+      }
+    });
   }
 
+  /** Hand a heightfield (or null, to stop analyzing on the device) to the analysis listeners */
+  private void setDeviceTerrain(Heightfield heightfield) {
+    mTerrainSampler.cancel();
+    mHeightfield = heightfield;
+    if (mTBItems != null) mTBItems.findItem(R.id.mnuDeviceTerrain).setChecked(heightfield != null);
+    LineOfSightTouchListener lineOfSight = mModes.peek(MODE_LINE_OF_SIGHT);
+    if (lineOfSight != null) lineOfSight.set_heightfield(heightfield);
+    ViewshedTouchListener viewshed = mModes.peek(MODE_VIEWSHED);
+    if (viewshed != null) viewshed.set_heightfield(heightfield);
+  }
+
+  /** Start recording the camera, or stop and save the recording */
+  private void toggleTrajectoryRecording(MenuItem item) {
+    if (!mTrajectoryRecorder.isRecording()) {
+      mTrajectoryRecorder.startRecording();
+      item.setTitle(R.string.tb_btn_stop_trajectory);
+      return;
+    }
+    mTrajectoryRecorder.stopRecording();
+    item.setTitle(R.string.tb_btn_record_trajectory);
+    if (mTrajectoryRecorder.get_trajectory().get_count() == 0) return;
+
+    // Encode here, where the trajectory is only ever touched; write the file in the background
+    final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    try {
+      mTrajectoryRecorder.save(encoded);
+    } catch (IOException e) {
+      Log.e(TAG, "Couldn't encode walkthrough", e);
+      return;
+    }
+    File dir = getExternalFilesDir("trajectories");
+    if (dir == null) dir = new File(getFilesDir(), "trajectories");
+    final File file = new File(dir, "walkthrough-" + System.currentTimeMillis() + ".ea3dtrj");
+    mBackgroundExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        String message;
+        file.getParentFile().mkdirs();
+        try (OutputStream out = new FileOutputStream(file)) {
+          encoded.writeTo(out);
+          message = getString(R.string.msg_trajectory_saved, file.getName());
+        } catch (IOException e) {
+          Log.e(TAG, "Couldn't save walkthrough", e);
+          message = getString(R.string.err_trajectory_file, e.getLocalizedMessage());
+        }
+        final String toast = message;
+        runOnUiThread(new Runnable() {
+          @Override
+          public void run() {
+            MessageUtils.showToast(MainActivity.this, toast);
+          }
+        });
+      }
+    });
+  }
+
+  /** Replay the walkthrough last recorded or opened; any touch stops it */
+  private void playTrajectory(double speed) {
+    // Keep what's being recorded before replacing the camera's movement with the replay
+    if (mTrajectoryRecorder.isRecording())
+      toggleTrajectoryRecording(mTBItems.findItem(R.id.mnuRecordTrajectory));
+    revertToStandardNavigation();
+    mModes.clearResults();
+    mPathPlayer.stop();
+    if (!mTrajectoryRecorder.play(speed))
+      MessageUtils.showToast(this, getString(R.string.msg_no_trajectory), Toast.LENGTH_LONG);
+  }
+
+  /** Read a saved walkthrough in the background, then replay it */
+  private void importTrajectory(final Uri uri) {
+    mBackgroundExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try (InputStream in = getContentResolver().openInputStream(uri)) {
+          if (in == null) throw new IOException("No content at " + uri);
+          final CameraTrajectory trajectory = CameraTrajectoryRecorder.load(in);
+          runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+              if (mTrajectoryRecorder.isRecording())
+                toggleTrajectoryRecording(mTBItems.findItem(R.id.mnuRecordTrajectory));
+              mTrajectoryRecorder.set_trajectory(trajectory);
+              playTrajectory(1.0);
+            }
+          });
+        } catch (final IOException e) {
+          Log.e(TAG, "Couldn't open walkthrough", e);
+          runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+              MessageUtils.showToast(MainActivity.this,
+                  getString(R.string.err_trajectory_file, e.getLocalizedMessage()));
+            }
+          });
+        }
+      }
+    });
+  }
+
+  /**
+   * Read lon,lat[,z] targets in the background, then measure to them in batch measure mode, or,
+   * in line of sight mode with on-device terrain, check their visibility from each observer
+   */
+  private void importMeasureTargets(final Uri uri) {
+    mBackgroundExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try (InputStream in = getContentResolver().openInputStream(uri)) {
+          if (in == null) throw new IOException("No content at " + uri);
+          final double[] targets = BatchMeasurement.readTargets(new InputStreamReader(in, "UTF-8"));
+          runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+              // With on-device terrain, line of sight checks them all from each observer
+              if (mHeightfield != null && mModes.isActive(MODE_LINE_OF_SIGHT)) {
+                mModes.<LineOfSightTouchListener>peek(MODE_LINE_OF_SIGHT).set_targets(targets);
+                MessageUtils.showToast(MainActivity.this,
+                    getString(R.string.msg_los_targets_set, targets.length / 3), Toast.LENGTH_SHORT);
+                return;
+              }
+              MenuItem batchItem = mTBItems.findItem(R.id.mnuTapMeasureBatch);
+              mModes.<BatchMeasurementTouchListener>enter(MODE_BATCH_MEASURE).set_targets(targets);
+              mTBItems.findItem(R.id.mnuTapAction).setIcon(batchItem.getIcon());
+            }
+          });
+        } catch (final IOException e) {
+          Log.e(TAG, "Couldn't import measurement targets", e);
+          runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+              MessageUtils.showToast(MainActivity.this,
+                  getString(R.string.err_import_targets, e.getLocalizedMessage()));
+            }
+          });
+        }
+      }
+    });
+  }
   private void showBookmarks() {
     if (mBookmarks.size() > 0) { // present a list
       AlertDialog.Builder adb = new AlertDialog.Builder(MainActivity.this);
@@ -369,7 +1071,11 @@ public class MainActivity extends AppCompatActivity {
     public void onClick(DialogInterface dialog, int which) {
       Bookmark3D bookmark = mBookmarks.get(which);
       Log.d(TAG, bookmark.get_title());
-      moveToBookmark(bookmark);
+      try {
+        moveToBookmark(bookmark);
+      } catch (Exception e) {
+        MessageUtils.showToast(MainActivity.this, "Error reading slide: " + e.getLocalizedMessage());
+      }
     }
   };
 
@@ -400,6 +1106,8 @@ public class MainActivity extends AppCompatActivity {
    */
   private void getAGOLWebscenesList() {
     final String PREF_PORTAL_URL = "pref_portal_url";
+    // Followed by the portal URL: who last signed in there, to show their saved listing right away
+    final String PREF_PORTAL_USER = "pref_portal_user:";
 
     final SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
 
@@ -428,10 +1136,15 @@ public class MainActivity extends AppCompatActivity {
             }
             // Note that mPortal was loaded up at the end of onCreate()
             mPortal = new Portal(sUrl, true);
+            // Don't wait on sign-in to show what this portal's last user had
+            final WebscenePicker picker = new WebscenePicker(sUrl);
+            String lastUser = prefs.getString(PREF_PORTAL_USER + sUrl, null);
+            if (lastUser != null) picker.showSaved(lastUser);
             mPortal.addDoneLoadingListener(new Runnable() {
               @Override
               public void run() {
                 if (mPortal.getLoadStatus() != LoadStatus.LOADED) {
+                  picker.dismiss();
                   String msg;
                   if (Locale.getDefault().getLanguage().equals(Locale.ENGLISH.getLanguage())) {
                     msg = mPortal.getLoadError().getCause().getLocalizedMessage();
@@ -448,73 +1161,14 @@ public class MainActivity extends AppCompatActivity {
                   return;
                 }
 
-                // save the url for next time
-                prefs.edit().putString(PREF_PORTAL_URL, sUrl).apply();
-
-                final PortalUser user = mPortal.getUser();
-                final ListenableFuture<PortalUserContent> contentFuture = user.fetchContentAsync();
-                contentFuture.addDoneListener(new Runnable() {
-                  @Override
-                  public void run() {
-                    try {
-                      // fetch the content in the users root folder
-                      final List<PortalItem> webscenes = new ArrayList<>();
-                      //iterate items in root folder...
-                      final PortalUserContent portalUserContent = contentFuture.get();
-                      for (PortalItem item : portalUserContent.getItems()) {
-                        if (item.getType().equals(PortalItem.Type.WEB_SCENE))
-                          webscenes.add(item);
-                      }
-                      //iterate user's folders
-                      List<Map.Entry<String, ListenableFuture<List<PortalItem>>>> folderItemResults = new ArrayList<>();
-                      for (PortalFolder folder : portalUserContent.getFolders()) {
-                        //fetch the items in each folder
-                        final ListenableFuture<List<PortalItem>> folderFuture = user.fetchContentInFolderAsync(folder.getFolderId());
-                        folderItemResults.add(
-                            new AbstractMap.SimpleEntry<>(
-                                folder.getTitle(), folderFuture));
-                      }
-                      for (Map.Entry<String, ListenableFuture<List<PortalItem>>> folderItemResult : folderItemResults) {
-                        try {
-                          // Use synchronous, blocking get() to wait on all portal item results
-                          List<PortalItem> folderItems = folderItemResult.getValue().
-                              get(2000, TimeUnit.MILLISECONDS);
-                          for (PortalItem folderItem : folderItems)
-                            if (folderItem.getType().equals(PortalItem.Type.WEB_SCENE))
-                              webscenes.add(folderItem);
-                        } catch (Exception exc) {
-                          Log.i(TAG, "Error getting items in folder '" + folderItemResult.getKey() +
-                              "': " + exc.getLocalizedMessage());
-                        }
-                      }
-
-                      if (webscenes.size() > 0) {
-                        String[] saWebscenes = new String[webscenes.size()];
-                        for (int i = 0; i < webscenes.size(); i++)
-                          saWebscenes[i] = webscenes.get(i).getTitle();
-                        DialogInterface.OnClickListener onWebsceneChosen = new DialogInterface.OnClickListener() {
-                          @Override
-                          public void onClick(DialogInterface dialog, int which) {
-                            PortalItem item = webscenes.get(which);
-                            loadWebscene(item.getItemId());
-                          }
-                        };
-                        new AlertDialog.Builder(MainActivity.this)
-                            .setTitle(R.string.dlg_title_choose_webscene)
-                            .setItems(saWebscenes, onWebsceneChosen)
-                            .show();
-                      } else {
-                        Toast toast =
-                            Toast.makeText(MainActivity.this, R.string.msg_no_webscenes, Toast.LENGTH_LONG);
-                        toast.setGravity(Gravity.CENTER_VERTICAL, 0, 0);
-                        toast.show();
-                      }
-                    } catch (Exception e) {
-                      e.printStackTrace();
-                    }
-                  }
+                // save the url and user for next time
+                PortalUser user = mPortal.getUser();
+                prefs.edit()
+                    .putString(PREF_PORTAL_URL, sUrl)
+                    .putString(PREF_PORTAL_USER + sUrl, user.getUsername())
+                    .apply();
 
-                }); // End Runnable
+                picker.refresh(user);
               }
             });
             mPortal.loadAsync();
@@ -522,11 +1176,191 @@ public class MainActivity extends AppCompatActivity {
         })
         .show();
   }
+  private File getListingCacheDir() {
+    return new File(getCacheDir(), "listings");
+  }
+
+  /**
+   * Web scene picker for one portal. It can be shown with the listing saved for the portal's last
+   * user before the portal has even loaded, then brought up to date as the signed-in user's
+   * folders are read: only entries that were added or modified change. Saved listings are read
+   * off the UI thread. Closing the picker stops the refresh.
+   */
+  private class WebscenePicker {
+    private final String mPortalUrl;
+    /** Whose listing is shown */
+    private String mUserName;
+    private final ArrayAdapter<WebsceneEntry> mAdapter;
+    private final Map<String, WebsceneEntry> mShown = new HashMap<>();
+    private final Set<String> mSeen = new HashSet<>();
+    private final AlertDialog mDialog;
+    private PortalContentEnumerator<PortalFolder, PortalItem> mEnumerator;
+    private boolean mDismissed = false;
+    /** Once the refresh is done, a saved listing arriving late is out of date */
+    private boolean mRefreshed = false;
+
+    WebscenePicker(String portalUrl) {
+      this.mPortalUrl = portalUrl;
+      mAdapter = new ArrayAdapter<>(MainActivity.this, android.R.layout.select_dialog_item);
+      mDialog = new AlertDialog.Builder(MainActivity.this)
+          .setTitle(R.string.dlg_title_loading_webscenes)
+          .setAdapter(mAdapter, new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+              loadWebscene(mAdapter.getItem(which).get_itemId());
+            }
+          })
+          .setNegativeButton(android.R.string.cancel, null)
+          .create();
+      mDialog.setOnDismissListener(new DialogInterface.OnDismissListener() {
+        @Override
+        public void onDismiss(DialogInterface dialog) {
+          mDismissed = true;
+          if (mEnumerator != null) mEnumerator.cancel();
+        }
+      });
+    }
+
+    /** Show the picker now, filled in with a user's saved listing once it's been read */
+    void showSaved(String userName) {
+      mUserName = userName;
+      mDialog.show();
+      loadSavedListing(userName);
+    }
+
+    void dismiss() {
+      mDialog.dismiss();
+    }
+
+    /** Read a user's saved listing in the background, then add it to the picker */
+    private void loadSavedListing(final String userName) {
+      mBackgroundExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          final List<WebsceneEntry> saved;
+          try {
+            saved = PortalListingCache.load(getListingCacheDir(), mPortalUrl, userName);
+          } catch (IOException e) {
+            Log.w(TAG, "Ignoring unreadable web scene listing", e);
+            return;
+          }
+          if (saved == null) return;
+          runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+              addSaved(userName, saved);
+            }
+          });
+        }
+      });
+    }
+
+    /** Add saved entries the refresh hasn't already shown fresher versions of */
+    private void addSaved(String userName, List<WebsceneEntry> saved) {
+      if (mDismissed || mRefreshed || !userName.equals(mUserName)) return;
+      for (WebsceneEntry entry : saved) {
+        if (mShown.containsKey(entry.get_itemId())) continue;
+        mAdapter.add(entry);
+        mShown.put(entry.get_itemId(), entry);
+      }
+      if (!mShown.isEmpty()) mDialog.setTitle(R.string.dlg_title_choose_webscene);
+    }
+
+    /** Bring the listing up to date from the signed-in user's folders, showing the picker if need be */
+    void refresh(PortalUser user) {
+      if (mDismissed) return;
+      final String userName = user.getUsername();
+      if (!userName.equals(mUserName)) {
+        // Someone else signed in; what's shown is the last user's listing
+        mAdapter.clear();
+        mShown.clear();
+        mDialog.setTitle(R.string.dlg_title_loading_webscenes);
+        mUserName = userName;
+        loadSavedListing(userName);
+      }
+      if (!mDialog.isShowing()) mDialog.show();
+
+      mEnumerator = new PortalContentEnumerator<>(
+          new PortalUserContentSource(user, PortalItem.Type.WEB_SCENE), new MainThreadScheduler(),
+          WEBSCENE_FOLDER_CONCURRENCY, WEBSCENE_LIST_DEADLINE_MS,
+          new PortalContentEnumerator.Listener<PortalFolder, PortalItem>() {
+        @Override
+        public void onItems(PortalFolder folder, List<PortalItem> items) {
+          String folderId = (folder != null) ? folder.getFolderId() : null;
+          for (PortalItem item : items) {
+            long modified = (item.getModified() != null) ? item.getModified().getTimeInMillis() : 0;
+            WebsceneEntry fresh = new WebsceneEntry(item.getItemId(), item.getTitle(), modified, folderId);
+            mSeen.add(fresh.get_itemId());
+            WebsceneEntry old = mShown.get(fresh.get_itemId());
+            if (old == null) {
+              mAdapter.add(fresh);
+            } else if (fresh.differsFrom(old)) {
+              int pos = mAdapter.getPosition(old);
+              mAdapter.remove(old);
+              mAdapter.insert(fresh, pos);
+            } else {
+              continue;
+            }
+            mShown.put(fresh.get_itemId(), fresh);
+          }
+          if (!mShown.isEmpty()) mDialog.setTitle(R.string.dlg_title_choose_webscene);
+        }
+
+        @Override
+        public void onFinished(boolean complete) {
+          mRefreshed = true;
+          // Only a full listing can tell us which items are gone
+          if (complete) {
+            for (WebsceneEntry entry : new ArrayList<>(mShown.values())) {
+              if (!mSeen.contains(entry.get_itemId())) {
+                mAdapter.remove(entry);
+                mShown.remove(entry.get_itemId());
+              }
+            }
+          }
+          saveListing(mPortalUrl, userName, mAdapter);
+
+          if (mAdapter.getCount() > 0) mDialog.setTitle(R.string.dlg_title_choose_webscene);
+          else mDialog.dismiss();
+          // An empty listing only means there are no web scenes if every folder was read
+          if (!complete) {
+            MessageUtils.showToast(MainActivity.this,
+                getString(R.string.msg_webscenes_incomplete), Toast.LENGTH_LONG);
+          } else if (mAdapter.getCount() == 0) {
+            Toast toast =
+                Toast.makeText(MainActivity.this, R.string.msg_no_webscenes, Toast.LENGTH_LONG);
+            toast.setGravity(Gravity.CENTER_VERTICAL, 0, 0);
+            toast.show();
+          }
+        }
+      });
+      mEnumerator.start();
+    }
+  }
+
+  /** Save the picker's current entries for next time, off the UI thread */
+  private void saveListing(final String portalUrl, final String userName,
+                           ArrayAdapter<WebsceneEntry> adapter) {
+    final List<WebsceneEntry> entries = new ArrayList<>(adapter.getCount());
+    for (int i = 0; i < adapter.getCount(); i++) entries.add(adapter.getItem(i));
+    mBackgroundExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          PortalListingCache.save(getListingCacheDir(), portalUrl, userName, entries);
+        } catch (IOException e) {
+          Log.e(TAG, "Error saving web scene listing", e);
+        }
+      }
+    });
+  }
+
   private DialogInterface.OnMultiChoiceClickListener onLayerToggled = new DialogInterface.OnMultiChoiceClickListener() {
     @Override
     public void onClick(DialogInterface dialogInterface, int i, boolean b) {
       Layer lyr = mSceneView.getScene().getOperationalLayers().get(i);
       lyr.setVisible(b);
+      mVisibleLayers.set(i, b);
     }
   };
 
@@ -539,18 +1373,13 @@ public class MainActivity extends AppCompatActivity {
     if (mLocation != null) {
       // Location comes in lat/lon, so WGS84
       Point pt = new Point(mLocation.getLongitude(), mLocation.getLatitude(), SpatialReferences.getWgs84());
-      ListenableFuture<Double> lfElev = mSceneView.getScene().getBaseSurface().getElevationAsync(pt);
-      lfElev.addDoneListener(new Runnable() {
+      mElevations.getElevation(mSceneView.getScene().getBaseSurface(), pt,
+          new ElevationService.OnElevationListener() {
         @Override
-        public void run() {
+        public void onElevation(double elevationM) {
           // Use Surface elevation if possible; or device GPS altitude; or 2m if all else fails
-          double elev = 2d;
-          try {
-            elev = mLocation.getAltitude();
-            if (lfElev.isDone() && !lfElev.isCancelled()) elev = lfElev.get() + 2d; // add 2m
-          } catch (Exception e) {
-            e.printStackTrace();
-          }
+          double elev = mLocation.getAltitude();
+          if (!Double.isNaN(elevationM)) elev = elevationM + 2d; // add 2m
           Camera cam = new Camera(mLocation.getLatitude(), mLocation.getLongitude(), elev, mLocation.getBearing(), 80, 0);
           mSceneView.setViewpointCameraAsync(cam, 3.0f);
         }
@@ -564,19 +1393,39 @@ public class MainActivity extends AppCompatActivity {
   }
   private void moveToBookmark(Bookmark3D bookmark) {
     if (bookmark != null) {
-      // Set visible layers
-      for (Layer lyr : mSceneView.getScene().getOperationalLayers()) {
-        lyr.setVisible(bookmark.get_visibleLayerIds().contains(lyr.getId()));
-      }
-
       // Disable sensor navigation
       revertToStandardNavigation();
-      cleanupAllTouchListeners();
+      mModes.clearResults();
+
+      // Pan/zoom; the player shows the slide's layers as it sets off
+      mPathPlayer.flyTo(bookmark, SLIDE_FLIGHT_SEC);
+    }
+  }
+
+  /** Fly through every slide in order, pausing at each; any touch ends the tour */
+  private void playSlides() {
+    if (mBookmarks.isEmpty()) {
+      MessageUtils.showToast(this, getString(R.string.msg_no_bookmarks), Toast.LENGTH_LONG);
+      return;
+    }
+    revertToStandardNavigation();
+    mModes.clearResults();
+    mPathPlayer.flyThrough(new ArrayList<>(mBookmarks), SLIDE_FLIGHT_SEC, SLIDE_TOUR_DWELL_SEC);
+  }
 
-      // Pan/zoom
-      Camera cam = bookmark.get_camera();
-      mSceneView.setViewpointCameraAsync(cam, 4.0f);
+  /** Set visible layers, touching only those whose visibility changes */
+  private void showSlideLayers(Bookmark3D bookmark) {
+    List<Layer> layers = mSceneView.getScene().getOperationalLayers();
+    if (mLayerIds == null || mLayerIds.size() != layers.size())
+      indexLayers(mSceneView.getScene());
+    BitSet visible = bookmark.get_visibleLayers(mLayerIds);
+    BitSet changed = (BitSet) mVisibleLayers.clone();
+    changed.xor(visible);
+    for (int iLyr = changed.nextSetBit(0); iLyr >= 0; iLyr = changed.nextSetBit(iLyr + 1)) {
+      layers.get(iLyr).setVisible(visible.get(iLyr));
     }
+    mVisibleLayers.clear();
+    mVisibleLayers.or(visible);
   }
 
   /** Utility for certain touch listeners to revert to standard navigation mode */
@@ -608,7 +1457,7 @@ public class MainActivity extends AppCompatActivity {
       try {
         Camera cam = mSceneView.getCurrentViewpointCamera();
         Camera camNew = cam.rotateTo(0.0d, cam.getPitch(), cam.getRoll());
-        mSceneView.setViewpointCameraAsync(camNew);
+        mPathPlayer.flyToCamera(camNew, COMPASS_FLIGHT_SEC);
       } catch (Exception exc) {
         Log.e(TAG, "Error rotating view: " + exc.getLocalizedMessage());
       }
@@ -667,20 +1516,24 @@ public class MainActivity extends AppCompatActivity {
   // Permissions
 
   /** We can handle viewshed distance changes here in the main activity, since the seekbar
-   * will only be visible/changeable when the viewshed touch listener is active. Use a shared
-   * preference. The viewshed touch listener can listen for changes to the shared preference
-   * and take action accordingly.
+   * will only be visible/changeable when the viewshed touch listener is active. Changes go
+   * straight to the viewshed touch listener through a distance channel, live while dragging;
+   * the final value is also saved as a shared preference for the next session.
    */
   private class OnViewshedDistChangeListener implements SeekBar.OnSeekBarChangeListener {
     /** Shared preferences to update when seekbar changes */
     private SharedPreferences _prefs;
     /** TextView to display new distance value */
     private TextView _txtDist;
+    /** Carries distance changes to the viewshed touch listener */
+    private ViewshedDistanceChannel _channel;
 
-    public OnViewshedDistChangeListener(SharedPreferences prefs, TextView txtDist) {
+    public OnViewshedDistChangeListener(SharedPreferences prefs, TextView txtDist,
+                                        ViewshedDistanceChannel channel) {
       super();
       this._prefs = prefs;
       this._txtDist = txtDist;
+      this._channel = channel;
     }
     private int normalizeValue(int i) {
       i /= 200; i *= 200;
@@ -693,6 +1546,7 @@ public class MainActivity extends AppCompatActivity {
     public void onProgressChanged(SeekBar seekBar, int i, boolean b) {
       // Since max is always zero, we have to bump every setting up by 200. That's why max=4800
       _txtDist.setText(getString(R.string.viewshed_dist_label, normalizeValue(i)));
+      if (b) _channel.publish(normalizeValue(i));
     }
 
     @Override
@@ -701,6 +1555,7 @@ public class MainActivity extends AppCompatActivity {
     @Override
     public void onStopTrackingTouch(SeekBar seekBar) {
       int val = normalizeValue(seekBar.getProgress());
+      _channel.commit(val);
       _prefs.edit().putInt(getString(R.string.pref_viewshed_dist), val).apply();
     }
   }
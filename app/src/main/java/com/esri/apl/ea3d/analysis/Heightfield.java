@@ -0,0 +1,90 @@
+package com.esri.apl.ea3d.analysis;
+
+/**
+ * A regular elevation grid held in a primitive {@code float[]}, in a projected coordinate system
+ * with meters for x, y and elevation (e.g. Web Mercator).<p/>
+ * Heights are stored row by row, starting with the southernmost row; cell (0, 0) is centered on
+ * the origin. {@link Float#NaN} marks cells with no data.
+ */
+public class Heightfield {
+  private final float[] mHeights;
+  private final int mColumns, mRows;
+  private final double mOriginX, mOriginY;
+  private final double mCellSize;
+
+  /**
+   * @param heights elevations in meters, {@code columns * rows} long; not copied
+   * @param originX x of the center of the southwest cell
+   * @param originY y of the center of the southwest cell
+   * @param cellSize width and height of a cell in meters
+   */
+  public Heightfield(float[] heights, int columns, int rows,
+                     double originX, double originY, double cellSize) {
+    if (columns < 2 || rows < 2) throw new IllegalArgumentException("Need at least 2 x 2 cells");
+    if (heights.length < columns * rows)
+      throw new IllegalArgumentException("Expected " + columns * rows + " heights; got " + heights.length);
+    if (!(cellSize > 0)) throw new IllegalArgumentException("Cell size must be positive");
+    this.mHeights = heights;
+    this.mColumns = columns;
+    this.mRows = rows;
+    this.mOriginX = originX;
+    this.mOriginY = originY;
+    this.mCellSize = cellSize;
+  }
+
+  public int get_columns() {
+    return mColumns;
+  }
+
+  public int get_rows() {
+    return mRows;
+  }
+
+  public double get_originX() {
+    return mOriginX;
+  }
+
+  public double get_originY() {
+    return mOriginY;
+  }
+
+  public double get_cellSize() {
+    return mCellSize;
+  }
+
+  /** The backing array; changes to it show up in this heightfield */
+  public float[] get_heights() {
+    return mHeights;
+  }
+
+  public float heightAt(int column, int row) {
+    return mHeights[row * mColumns + column];
+  }
+
+  /** Whether a location is inside the grid's cell centers, where {@link #elevationAt} is defined */
+  public boolean contains(double x, double y) {
+    double c = (x - mOriginX) / mCellSize, r = (y - mOriginY) / mCellSize;
+    return c >= 0 && r >= 0 && c <= mColumns - 1 && r <= mRows - 1;
+  }
+
+  /**
+   * Bilinearly interpolated elevation
+   * @return elevation in meters, or NaN outside the grid or next to a no-data cell
+   */
+  public double elevationAt(double x, double y) {
+    return elevationAtGrid((x - mOriginX) / mCellSize, (y - mOriginY) / mCellSize);
+  }
+
+  /** As {@link #elevationAt}, with the location given in fractional column and row */
+  double elevationAtGrid(double c, double r) {
+    if (!(c >= 0 && r >= 0 && c <= mColumns - 1 && r <= mRows - 1)) return Double.NaN;
+    int c0 = Math.min((int) c, mColumns - 2), r0 = Math.min((int) r, mRows - 2);
+    double fc = c - c0, fr = r - r0;
+    int i = r0 * mColumns + c0;
+    float h00 = mHeights[i], h10 = mHeights[i + 1];
+    float h01 = mHeights[i + mColumns], h11 = mHeights[i + mColumns + 1];
+    double south = h00 + (h10 - h00) * fc;
+    double north = h01 + (h11 - h01) * fc;
+    return south + (north - south) * fr;
+  }
+}
@@ -0,0 +1,112 @@
+package com.esri.apl.ea3d.analysis;
+
+/**
+ * Line-of-sight over a {@link Heightfield}, by marching along each sightline at a fixed step
+ * and comparing its height with the terrain.<p/>
+ * Results depend only on the inputs, so they're identical from run to run and between the
+ * single and batch calls. Parts of a sightline outside the grid, or over no-data cells, never
+ * obstruct. Points are packed {x, y, z} triples in the heightfield's coordinate system.
+ */
+public class HeightfieldLineOfSight {
+  /** Returned by the obstruction methods when the target is visible */
+  public static final double VISIBLE = -1;
+
+  private static final double DEFAULT_STEP_CELLS = 0.5;
+  /** Terrain must rise this many meters above the sightline to block it */
+  private static final double DEFAULT_TOLERANCE_M = 0.01;
+
+  private final Heightfield mHeightfield;
+  private final double mStepCells;
+  private final double mTolerance;
+
+  public HeightfieldLineOfSight(Heightfield heightfield) {
+    this(heightfield, DEFAULT_STEP_CELLS, DEFAULT_TOLERANCE_M);
+  }
+
+  /**
+   * @param stepCells distance between samples along a sightline, in cells
+   * @param toleranceM how far terrain must rise above the sightline to block it, in meters
+   */
+  public HeightfieldLineOfSight(Heightfield heightfield, double stepCells, double toleranceM) {
+    if (!(stepCells > 0)) throw new IllegalArgumentException("Step must be positive");
+    this.mHeightfield = heightfield;
+    this.mStepCells = stepCells;
+    this.mTolerance = toleranceM;
+  }
+
+  public Heightfield get_heightfield() {
+    return mHeightfield;
+  }
+
+  public boolean isVisible(double ax, double ay, double az, double bx, double by, double bz) {
+    return obstruction(ax, ay, az, bx, by, bz) == VISIBLE;
+  }
+
+  /**
+   * Find where a sightline from A to B first passes below the terrain
+   * @return fraction of the way from A to B of the first obstruction, or {@link #VISIBLE}
+   */
+  public double obstruction(double ax, double ay, double az, double bx, double by, double bz) {
+    Heightfield hf = mHeightfield;
+    double cellSize = hf.get_cellSize();
+    // March in grid units so each sample is a couple of additions
+    double c = (ax - hf.get_originX()) / cellSize, r = (ay - hf.get_originY()) / cellSize;
+    double dc = (bx - ax) / cellSize, dr = (by - ay) / cellSize, dz = bz - az;
+
+    int steps = (int) Math.ceil(Math.sqrt(dc * dc + dr * dr) / mStepCells);
+    if (steps < 2) return VISIBLE;
+    double inv = 1.0 / steps;
+    dc *= inv; dr *= inv; dz *= inv;
+
+    // Samples strictly between the end points; the target's own cell mustn't hide it
+    double z = az;
+    for (int i = 1; i < steps; i++) {
+      c += dc; r += dr; z += dz;
+      double h = hf.elevationAtGrid(c, r);
+      if (h - mTolerance > z) return i * inv;
+    }
+    return VISIBLE;
+  }
+
+  /**
+   * One observer to many targets
+   * @param targets {@code count} packed xyz targets
+   * @param obstructions receives each target's result from {@link #obstruction}
+   * @return how many targets are visible
+   */
+  public int obstructions(double ox, double oy, double oz,
+                          double[] targets, int count, double[] obstructions) {
+    int visible = 0;
+    for (int i = 0, j = 0; i < count; i++, j += 3) {
+      double t = obstruction(ox, oy, oz, targets[j], targets[j + 1], targets[j + 2]);
+      obstructions[i] = t;
+      if (t == VISIBLE) visible++;
+    }
+    return visible;
+  }
+
+  /**
+   * Many observer/target pairs
+   * @param from {@code count} packed xyz observers
+   * @param to {@code count} packed xyz targets
+   * @param obstructions receives each pair's result from {@link #obstruction}
+   * @return how many targets are visible from their observers
+   */
+  public int obstructions(double[] from, double[] to, int count, double[] obstructions) {
+    int visible = 0;
+    for (int i = 0, j = 0; i < count; i++, j += 3) {
+      double t = obstruction(from[j], from[j + 1], from[j + 2], to[j], to[j + 1], to[j + 2]);
+      obstructions[i] = t;
+      if (t == VISIBLE) visible++;
+    }
+    return visible;
+  }
+
+  /** Write the point a fraction of the way from A to B, e.g. an obstruction, to {@code out} */
+  public static void pointAlong(double ax, double ay, double az, double bx, double by, double bz,
+                                double fraction, double[] out, int offset) {
+    out[offset] = ax + (bx - ax) * fraction;
+    out[offset + 1] = ay + (by - ay) * fraction;
+    out[offset + 2] = az + (bz - az) * fraction;
+  }
+}
@@ -0,0 +1,82 @@
+package com.esri.apl.ea3d.analysis;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Result of a {@link BatchMeasurement}: one row per target, in target order, held as primitive
+ * columns.
+ */
+public class MeasurementTable {
+  final double[] mTargets;
+  private final int mCount;
+  final double[] mDistances;
+  final double[] mBearings;
+  final double[] mElevationAngles;
+
+  MeasurementTable(double[] targets, int count) {
+    this.mTargets = targets;
+    this.mCount = count;
+    this.mDistances = new double[count];
+    this.mBearings = new double[count];
+    this.mElevationAngles = new double[count];
+  }
+
+  public int get_count() {
+    return mCount;
+  }
+
+  public double lonAt(int i) {
+    return mTargets[3 * i];
+  }
+
+  public double latAt(int i) {
+    return mTargets[3 * i + 1];
+  }
+
+  public double zAt(int i) {
+    return mTargets[3 * i + 2];
+  }
+
+  /** Straight-line distance in meters */
+  public double distanceAt(int i) {
+    return mDistances[i];
+  }
+
+  /** Initial bearing in degrees clockwise from north, in [0, 360) */
+  public double bearingAt(int i) {
+    return mBearings[i];
+  }
+
+  /** Degrees above (positive) or below the observer's horizon */
+  public double elevationAngleAt(int i) {
+    return mElevationAngles[i];
+  }
+
+  /** @return the row of the nearest target, or -1 if there are none */
+  public int nearest() {
+    int best = -1;
+    for (int i = 0; i < mCount; i++) {
+      if (best < 0 || mDistances[i] < mDistances[best]) best = i;
+    }
+    return best;
+  }
+
+  /** @return the row of the farthest target, or -1 if there are none */
+  public int farthest() {
+    int best = -1;
+    for (int i = 0; i < mCount; i++) {
+      if (best < 0 || mDistances[i] > mDistances[best]) best = i;
+    }
+    return best;
+  }
+
+  /** Write the table as CSV with a header row */
+  public void writeCsv(Appendable out) throws IOException {
+    out.append("lon,lat,z,distance_m,bearing_deg,elevation_angle_deg\n");
+    for (int i = 0; i < mCount; i++) {
+      out.append(String.format(Locale.US, "%.7f,%.7f,%.2f,%.2f,%.2f,%.3f\n",
+          lonAt(i), latAt(i), zAt(i), mDistances[i], mBearings[i], mElevationAngles[i]));
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package com.esri.apl.ea3d.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Full-circle viewshed over a {@link Heightfield}, by radial sweep.<p/>
+ * A ray is cast from the observer's cell to every cell on the edge of the square that bounds
+ * the viewshed circle. Along each ray, a cell is visible if the slope from the observer to it is
+ * at least the steepest terrain slope seen nearer the observer. The rays are split into sectors,
+ * which can run in parallel on an executor; each sector marks its own bitmap and the bitmaps are
+ * OR-ed together, so the result doesn't depend on scheduling.<p/>
+ * (An ExecutorService rather than a ForkJoinPool, since the app supports API levels before 21.)
+ */
+public class RadialViewshed {
+  private final Heightfield mHeightfield;
+
+  public RadialViewshed(Heightfield heightfield) {
+    this.mHeightfield = heightfield;
+  }
+
+  public Heightfield get_heightfield() {
+    return mHeightfield;
+  }
+
+  /**
+   * Compute a viewshed. Blocks until all sectors are done, so call it off the UI thread.
+   * @param x observer x, in the heightfield's coordinate system
+   * @param y observer y
+   * @param z observer eye elevation in meters (terrain plus observer height)
+   * @param radius how far to look, in meters on the ground
+   * @param targetHeight height above the terrain that has to be visible, in meters
+   * @param groundScale ground meters per heightfield unit around the observer: 1 for a grid in true
+   *     meters, {@link com.esri.apl.ea3d.util.Projection#webMercatorGroundScale} for Web Mercator
+   * @param executor runs the sectors; null to run them on this thread
+   * @param sectors how many pieces to split the sweep into
+   */
+  public ViewshedRaster compute(double x, double y, double z, double radius, double targetHeight,
+                                double groundScale, ExecutorService executor, int sectors)
+      throws InterruptedException {
+    if (!(groundScale > 0)) throw new IllegalArgumentException("Ground scale must be positive");
+    Heightfield hf = mHeightfield;
+    double cellSize = hf.get_cellSize();
+    double radiusCells = radius / groundScale / cellSize;
+    final int n = Math.max(1, (int) Math.ceil(radiusCells));
+    final int size = 2 * n + 1;
+    // Observer cell in heightfield and raster coordinates
+    final int obsCol = (int) Math.round((x - hf.get_originX()) / cellSize);
+    final int obsRow = (int) Math.round((y - hf.get_originY()) / cellSize);
+    final Sweep sweep = new Sweep(obsCol - n, obsRow - n, n, size, z, radiusCells, targetHeight);
+
+    int rays = 8 * n;
+    sectors = Math.max(1, Math.min(sectors, rays));
+    long[] bits;
+    if (executor == null || sectors == 1) {
+      bits = sweep.run(0, rays);
+    } else {
+      List<Future<long[]>> futures = new ArrayList<>(sectors);
+      for (int s = 0; s < sectors; s++) {
+        final int from = (int) ((long) rays * s / sectors);
+        final int to = (int) ((long) rays * (s + 1) / sectors);
+        futures.add(executor.submit(new Callable<long[]>() {
+          @Override
+          public long[] call() {
+            return sweep.run(from, to);
+          }
+        }));
+      }
+      try {
+        bits = futures.get(0).get();
+        for (int s = 1; s < sectors; s++) {
+          long[] sectorBits = futures.get(s).get();
+          for (int i = 0; i < bits.length; i++) bits[i] |= sectorBits[i];
+        }
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Viewshed sector failed", e.getCause());
+      } finally {
+        for (Future<long[]> f : futures) f.cancel(true);
+      }
+    }
+    return new ViewshedRaster(size,
+        hf.get_originX() + (obsCol - n) * cellSize, hf.get_originY() + (obsRow - n) * cellSize,
+        cellSize, groundScale, bits, sweep.cellsInRange());
+  }
+
+  /** The per-observer constants of one computation, shared read-only by its sectors */
+  private class Sweep {
+    private final int mCol0, mRow0; // heightfield cell of raster cell (0, 0)
+    private final int mN, mSize;
+    private final double mZ, mRadiusCells, mTargetHeight;
+
+    Sweep(int col0, int row0, int n, int size, double z, double radiusCells, double targetHeight) {
+      mCol0 = col0; mRow0 = row0;
+      mN = n; mSize = size;
+      mZ = z; mRadiusCells = radiusCells; mTargetHeight = targetHeight;
+    }
+
+    /** Cast rays {@code from} up to {@code to} (of 8n, counterclockwise from the east edge) */
+    long[] run(int from, int to) {
+      long[] bits = new long[(mSize * mSize + 63) >>> 6];
+      for (int ray = from; ray < to; ray++) {
+        // Ray end on the bounding square's edge, relative to the observer
+        int edgeX, edgeY, k = ray;
+        if (k < 2 * mN) { edgeX = mN; edgeY = -mN + k; }
+        else if ((k -= 2 * mN) < 2 * mN) { edgeX = mN - k; edgeY = mN; }
+        else if ((k -= 2 * mN) < 2 * mN) { edgeX = -mN; edgeY = mN - k; }
+        else { k -= 2 * mN; edgeX = -mN + k; edgeY = -mN; }
+        castRay(edgeX, edgeY, bits);
+      }
+      // The observer's own cell is visible if it's in range
+      if (!Double.isNaN(terrain(mN, mN))) setBit(bits, mN * mSize + mN);
+      return bits;
+    }
+
+    private void castRay(int edgeX, int edgeY, long[] bits) {
+      double maxSlope = Double.NEGATIVE_INFINITY;
+      double cellSize = mHeightfield.get_cellSize();
+      for (int step = 1; step <= mN; step++) {
+        int dx = (int) Math.round((double) edgeX * step / mN);
+        int dy = (int) Math.round((double) edgeY * step / mN);
+        double distCells = Math.sqrt(dx * dx + dy * dy);
+        if (distCells > mRadiusCells) break;
+        double h = terrain(mN + dx, mN + dy);
+        if (Double.isNaN(h)) continue; // Off the grid or no data: neither visible nor blocking
+        double dist = distCells * cellSize;
+        if ((h + mTargetHeight - mZ) / dist >= maxSlope) setBit(bits, (mN + dy) * mSize + mN + dx);
+        double slope = (h - mZ) / dist;
+        if (slope > maxSlope) maxSlope = slope;
+      }
+    }
+
+    /** Terrain height at a raster cell, or NaN off the heightfield */
+    private double terrain(int col, int row) {
+      int c = mCol0 + col, r = mRow0 + row;
+      Heightfield hf = mHeightfield;
+      if (c < 0 || r < 0 || c >= hf.get_columns() || r >= hf.get_rows()) return Double.NaN;
+      return hf.heightAt(c, r);
+    }
+
+    int cellsInRange() {
+      int count = 0;
+      double r2 = mRadiusCells * mRadiusCells;
+      for (int row = 0; row < mSize; row++) {
+        int dy = row - mN;
+        for (int col = 0; col < mSize; col++) {
+          int dx = col - mN;
+          if (dx * dx + dy * dy <= r2 && !Double.isNaN(terrain(col, row))) count++;
+        }
+      }
+      return count;
+    }
+  }
+
+  private static void setBit(long[] bits, int i) {
+    bits[i >>> 6] |= 1L << i;
+  }
+}
@@ -0,0 +1,113 @@
+package com.esri.apl.ea3d.analysis;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Result of a {@link RadialViewshed}: a square visibility bitmap centered on the observer's cell,
+ * plus counts for visible-area statistics. Cells farther than the viewshed radius, off the
+ * heightfield, or with no data are never visible.
+ */
+public class ViewshedRaster {
+  private final int mSize;
+  private final double mOriginX, mOriginY;
+  private final double mCellSize;
+  /** Ground meters per unit of x and y */
+  private final double mGroundScale;
+  /** One bit per cell, row by row starting with the southernmost row */
+  private final long[] mBits;
+  private final int mCellsInRange;
+  private final int mVisibleCells;
+
+  ViewshedRaster(int size, double originX, double originY, double cellSize, double groundScale,
+                 long[] bits, int cellsInRange) {
+    this.mSize = size;
+    this.mOriginX = originX;
+    this.mOriginY = originY;
+    this.mCellSize = cellSize;
+    this.mGroundScale = groundScale;
+    this.mBits = bits;
+    this.mCellsInRange = cellsInRange;
+    int visible = 0;
+    for (long word : bits) visible += Long.bitCount(word);
+    this.mVisibleCells = visible;
+  }
+
+  /** Width and height of the raster in cells */
+  public int get_size() {
+    return mSize;
+  }
+
+  /** x of the center of the southwest cell */
+  public double get_originX() {
+    return mOriginX;
+  }
+
+  /** y of the center of the southwest cell */
+  public double get_originY() {
+    return mOriginY;
+  }
+
+  /** Width and height of a cell in x and y units; see {@link #get_groundCellSize()} */
+  public double get_cellSize() {
+    return mCellSize;
+  }
+
+  /** Width and height of a cell in meters on the ground */
+  public double get_groundCellSize() {
+    return mCellSize * mGroundScale;
+  }
+
+  /** The packed bitmap, {@code size * size} bits, bit {@code row * size + column}; not a copy */
+  public long[] get_bits() {
+    return mBits;
+  }
+
+  public boolean isVisible(int column, int row) {
+    int i = row * mSize + column;
+    return (mBits[i >>> 6] & (1L << i)) != 0;
+  }
+
+  public int get_visibleCells() {
+    return mVisibleCells;
+  }
+
+  /** Cells within the viewshed radius and on the heightfield */
+  public int get_cellsInRange() {
+    return mCellsInRange;
+  }
+
+  /** Visible area in square meters on the ground */
+  public double get_visibleArea() {
+    double groundCellSize = get_groundCellSize();
+    return mVisibleCells * groundCellSize * groundCellSize;
+  }
+
+  /** Share of the in-range area that is visible, from 0 to 1 */
+  public double get_visibleFraction() {
+    return (mCellsInRange > 0) ? (double) mVisibleCells / mCellsInRange : 0;
+  }
+
+  /** Write the visible-area statistics and the raster's placement as CSV with a header row */
+  public void writeCsv(Appendable out) throws IOException {
+    out.append("origin_x,origin_y,cell_size_m,size,cells_in_range,visible_cells,"
+        + "visible_area_m2,visible_fraction\n");
+    out.append(String.format(Locale.US, "%.2f,%.2f,%.3f,%d,%d,%d,%.0f,%.4f\n",
+        mOriginX, mOriginY, get_groundCellSize(), mSize, mCellsInRange, mVisibleCells,
+        get_visibleArea(), get_visibleFraction()));
+  }
+
+  /**
+   * The raster as one color per cell, row by row starting with the northernmost row, as image
+   * formats expect (e.g. {@code Bitmap.createBitmap(pixels, size, size, ARGB_8888)})
+   */
+  public int[] toPixels(int visibleColor, int hiddenColor) {
+    int[] pixels = new int[mSize * mSize];
+    for (int row = 0; row < mSize; row++) {
+      int line = (mSize - 1 - row) * mSize;
+      for (int col = 0; col < mSize; col++)
+        pixels[line + col] = isVisible(col, row) ? visibleColor : hiddenColor;
+    }
+    return pixels;
+  }
+}
@@ -0,0 +1,326 @@
+package com.esri.apl.ea3d.event;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.util.Log;
+import android.view.MotionEvent;
+
+import com.esri.apl.ea3d.R;
+import com.esri.apl.ea3d.analysis.BatchMeasurement;
+import com.esri.apl.ea3d.analysis.MeasurementTable;
+import com.esri.apl.ea3d.util.ElevationService;
+import com.esri.apl.ea3d.util.MessageUtils;
+import com.esri.apl.ea3d.util.Projection;
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.geometry.GeometryEngine;
+import com.esri.arcgisruntime.geometry.Part;
+import com.esri.arcgisruntime.geometry.PartCollection;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.Polyline;
+import com.esri.arcgisruntime.geometry.SpatialReference;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
+import com.esri.arcgisruntime.mapping.view.DefaultSceneViewOnTouchListener;
+import com.esri.arcgisruntime.mapping.view.Graphic;
+import com.esri.arcgisruntime.mapping.view.GraphicsOverlay;
+import com.esri.arcgisruntime.mapping.view.LayerSceneProperties;
+import com.esri.arcgisruntime.mapping.view.SceneView;
+import com.esri.arcgisruntime.symbology.SceneSymbol;
+import com.esri.arcgisruntime.symbology.SimpleLineSymbol;
+import com.esri.arcgisruntime.symbology.SimpleMarkerSceneSymbol;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Measure from the camera to many targets with one tap.<p/>
+ * Targets are either imported coordinates (see {@link #set_targets}) or, if none are set, a grid
+ * of points sampled across the view. Distance, bearing and elevation angle to all of them are
+ * computed together by {@link BatchMeasurement}, shown as one batch of graphics, and written
+ * to a CSV file in the app's external files directory.
+ */
+public class BatchMeasurementTouchListener extends DefaultSceneViewOnTouchListener
+    implements InteractionMode {
+  private static final String TAG = "BatchMeasureListener";
+  /** Gesture time of batches that didn't come from a tap */
+  private static final long NO_GESTURE = -1;
+  // Screen grid sampled when there are no imported targets
+  private static final int GRID_COLUMNS = 16;
+  private static final int GRID_ROWS = 12;
+
+  private final SceneView mSceneView;
+  private final ElevationService mElevations;
+  /** Writes results to disk */
+  private final ExecutorService mBackgroundExecutor;
+  /** Runs each batch, which waits on its chunks running on the workers */
+  private final ExecutorService mCoordinator;
+  private final ExecutorService mWorkers;
+
+  private final GraphicsOverlay mGraphics = new GraphicsOverlay();
+  private final SimpleMarkerSceneSymbol mTargetSymbol = new SimpleMarkerSceneSymbol(
+      SimpleMarkerSceneSymbol.Style.DIAMOND, Color.RED, 8d, 8d, 8d,
+      SceneSymbol.AnchorPosition.CENTER);
+  private final SimpleLineSymbol mSightlineSymbol = new SimpleLineSymbol(
+      SimpleLineSymbol.Style.SOLID, Color.YELLOW, 1.5f);
+  private final TouchLatency mLatency = new TouchLatency("BatchMeasure");
+
+  /** Imported targets, packed lon, lat, z; null to sample the screen */
+  private double[] mTargets;
+  private MeasurementTable mResults;
+  /** Bumped by each new batch and by cleanup, so stale results are dropped */
+  private int mGeneration = 0;
+
+  /**
+   * @param backgroundExecutor writes the CSV files
+   * @param coordinator runs each batch and waits on its chunks, so disk work queued on the
+   *                    background executor doesn't hold it up
+   * @param workers runs the chunks in parallel
+   */
+  public BatchMeasurementTouchListener(SceneView sceneView, ElevationService elevations,
+                                       ExecutorService backgroundExecutor,
+                                       ExecutorService coordinator, ExecutorService workers) {
+    super(sceneView);
+    this.mSceneView = sceneView;
+    this.mElevations = elevations;
+    this.mBackgroundExecutor = backgroundExecutor;
+    this.mCoordinator = coordinator;
+    this.mWorkers = workers;
+    mGraphics.getSceneProperties().setSurfacePlacement(
+        LayerSceneProperties.SurfacePlacement.ABSOLUTE);
+  }
+
+  /** Touch-to-result latency for this listener */
+  public TouchLatency get_latency() {
+    return mLatency;
+  }
+
+  /** The last batch of measurements, or null */
+  public MeasurementTable get_results() {
+    return mResults;
+  }
+
+  public double[] get_targets() {
+    return mTargets;
+  }
+
+  /**
+   * Measure to these targets on each tap, rather than to a grid across the screen. Missing
+   * elevations are looked up on the scene's surface, and then the targets are measured once.
+   * @param targets packed WGS84 lon, lat, z triples, as from {@link BatchMeasurement#readTargets};
+   *                null to go back to sampling the screen
+   */
+  public void set_targets(double[] targets) {
+    cleanup();
+    mTargets = targets;
+    if (targets != null) fillElevationsAndMeasure(targets, ++mGeneration);
+  }
+
+  @Override
+  public boolean onSingleTapConfirmed(MotionEvent motionEvent) {
+    int generation = ++mGeneration;
+    long gestureNanos = TouchLatency.eventNanos(motionEvent);
+    if (mTargets != null) measure(mTargets, mTargets.length / 3, gestureNanos, generation);
+    else sampleScreenGrid(gestureNanos, generation);
+    return true;
+  }
+
+  /** Find the map location at the center of each grid cell; sky and failures are skipped */
+  private void sampleScreenGrid(final long gestureNanos, final int generation) {
+    final int count = GRID_COLUMNS * GRID_ROWS;
+    final double[] targets = new double[3 * count];
+    final boolean[] found = new boolean[count];
+    final int[] remaining = { count };
+    final double[] lonLat = new double[2];
+    int width = mSceneView.getWidth(), height = mSceneView.getHeight();
+
+    for (int row = 0; row < GRID_ROWS; row++) {
+      for (int col = 0; col < GRID_COLUMNS; col++) {
+        final int iTarget = row * GRID_COLUMNS + col;
+        android.graphics.Point screenPoint = new android.graphics.Point(
+            (int) ((col + 0.5) * width / GRID_COLUMNS), (int) ((row + 0.5) * height / GRID_ROWS));
+        final ListenableFuture<Point> lfLoc = mSceneView.screenToLocationAsync(screenPoint);
+        lfLoc.addDoneListener(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              Point pt = lfLoc.isCancelled() ? null : lfLoc.get();
+              if (pt != null && toWgs84(pt, lonLat)) {
+                targets[3 * iTarget] = lonLat[0];
+                targets[3 * iTarget + 1] = lonLat[1];
+                targets[3 * iTarget + 2] = pt.getZ();
+                found[iTarget] = true;
+              }
+            } catch (Exception exc) {
+              Log.d(TAG, "No location for grid point " + iTarget);
+            }
+            if (--remaining[0] == 0 && generation == mGeneration) {
+              // Pack the points that hit something
+              int hits = 0;
+              for (int i = 0; i < found.length; i++) {
+                if (!found[i]) continue;
+                System.arraycopy(targets, 3 * i, targets, 3 * hits, 3);
+                hits++;
+              }
+              measure(targets, hits, gestureNanos, generation);
+            }
+          }
+        });
+      }
+    }
+  }
+
+  private void fillElevationsAndMeasure(final double[] targets, final int generation) {
+    final int count = targets.length / 3;
+    final int[] remaining = { 1 };
+    for (int i = 0; i < count; i++) {
+      if (!Double.isNaN(targets[3 * i + 2])) continue;
+      final int iTarget = i;
+      remaining[0]++;
+      Point pt = new Point(targets[3 * i], targets[3 * i + 1], SpatialReferences.getWgs84());
+      mElevations.getElevation(mSceneView.getScene().getBaseSurface(), pt,
+          new ElevationService.OnElevationListener() {
+        @Override
+        public void onElevation(double elevationM) {
+          targets[3 * iTarget + 2] = elevationM;
+          if (--remaining[0] == 0 && generation == mGeneration)
+            measure(targets, count, NO_GESTURE, generation);
+        }
+      });
+    }
+    // The extra count keeps cached elevations from starting the batch before the loop is done
+    if (--remaining[0] == 0) measure(targets, count, NO_GESTURE, generation);
+  }
+
+  /**
+   * Measure from the camera in the background, then show the results
+   * @param gestureNanos when the tap happened, or {@link #NO_GESTURE} for imported targets,
+   *     which aren't recorded in the latency histograms
+   */
+  private void measure(final double[] targets, final int count, long gestureNanos,
+                       final int generation) {
+    final long locatedNanos = (gestureNanos != NO_GESTURE) ? mLatency.located(gestureNanos) : NO_GESTURE;
+    Point ptCamera = mSceneView.getCurrentViewpointCamera().getLocation();
+    final double[] camera = new double[3];
+    if (!toWgs84(ptCamera, camera)) return;
+    camera[2] = ptCamera.getZ();
+    final int chunks = Runtime.getRuntime().availableProcessors();
+
+    mCoordinator.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          final MeasurementTable table = BatchMeasurement.compute(
+              camera[0], camera[1], camera[2], targets, count, mWorkers, chunks);
+          mSceneView.post(new Runnable() {
+            @Override
+            public void run() {
+              if (generation != mGeneration) return;
+              showResults(camera, table);
+              if (locatedNanos != NO_GESTURE) mLatency.updated(locatedNanos);
+              saveResults(table);
+            }
+          });
+        } catch (InterruptedException e) {
+          Log.w(TAG, "Batch measurement interrupted");
+        }
+      }
+    });
+  }
+
+  /** Replace the overlay's contents with one marker per target and one multipart sightline */
+  private void showResults(double[] camera, MeasurementTable table) {
+    mResults = table;
+    SpatialReference wgs84 = SpatialReferences.getWgs84();
+    int count = table.get_count();
+    List<Graphic> graphics = new ArrayList<>(count + 1);
+    PartCollection sightlines = new PartCollection(wgs84);
+    for (int i = 0; i < count; i++) {
+      double z = Double.isNaN(table.zAt(i)) ? camera[2] : table.zAt(i);
+      graphics.add(new Graphic(new Point(table.lonAt(i), table.latAt(i), z, wgs84), mTargetSymbol));
+      Part sightline = new Part(wgs84);
+      sightline.addPoint(camera[0], camera[1], camera[2]);
+      sightline.addPoint(table.lonAt(i), table.latAt(i), z);
+      sightlines.add(sightline);
+    }
+    if (count > 0) graphics.add(new Graphic(new Polyline(sightlines), mSightlineSymbol));
+    mGraphics.getGraphics().clear();
+    mGraphics.getGraphics().addAll(graphics);
+  }
+
+  /** Write the table to a CSV file in the background and tell the user where it is */
+  private void saveResults(final MeasurementTable table) {
+    final Context ctx = mSceneView.getContext();
+    int nearest = table.nearest(), farthest = table.farthest();
+    final String summary = (nearest < 0)
+        ? ctx.getString(R.string.msg_batch_measure_none)
+        : ctx.getString(R.string.msg_batch_measure_summary, table.get_count(),
+            table.distanceAt(nearest), table.distanceAt(farthest));
+    File dir = ctx.getExternalFilesDir("measurements");
+    if (dir == null) dir = new File(ctx.getFilesDir(), "measurements");
+    final File file = new File(dir, "batch-" + System.currentTimeMillis() + ".csv");
+
+    mBackgroundExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        String message = summary;
+        if (table.get_count() > 0) {
+          try {
+            if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs())
+              throw new IOException("Couldn't create " + file.getParent());
+            try (Writer writer = new FileWriter(file)) {
+              table.writeCsv(writer);
+            }
+            message = summary + "\n" + file.getName();
+          } catch (IOException e) {
+            Log.e(TAG, "Couldn't save batch measurement", e);
+          }
+        }
+        final String finalMessage = message;
+        mSceneView.post(new Runnable() {
+          @Override
+          public void run() {
+            MessageUtils.showToast(ctx, finalMessage);
+          }
+        });
+      }
+    });
+  }
+
+  /** @return false if the point couldn't be put in WGS84 */
+  private static boolean toWgs84(Point pt, double[] lonLat) {
+    SpatialReference sr = pt.getSpatialReference();
+    if (sr != null && Projection.isWgs84(sr.getWkid())) {
+      lonLat[0] = pt.getX(); lonLat[1] = pt.getY();
+    } else if (sr != null && Projection.isWebMercator(sr.getWkid())) {
+      Projection.webMercatorToWgs84(pt.getX(), pt.getY(), lonLat, 0);
+    } else {
+      Point ptWgs = (Point) GeometryEngine.project(pt, SpatialReferences.getWgs84());
+      if (ptWgs == null) return false;
+      lonLat[0] = ptWgs.getX(); lonLat[1] = ptWgs.getY();
+    }
+    return true;
+  }
+
+  @Override
+  public void enter() {
+    if (!mSceneView.getGraphicsOverlays().contains(mGraphics))
+      mSceneView.getGraphicsOverlays().add(mGraphics);
+  }
+
+  @Override
+  public void cleanup() {
+    mGeneration++;
+    mResults = null;
+    mGraphics.getGraphics().clear();
+  }
+
+  @Override
+  public void exit() {
+    cleanup();
+    mSceneView.getGraphicsOverlays().remove(mGraphics);
+  }
+}
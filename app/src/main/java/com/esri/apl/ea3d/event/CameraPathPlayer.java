@@ -0,0 +1,248 @@
+package com.esri.apl.ea3d.event;
+
+import android.util.Log;
+import android.view.Choreographer;
+
+import com.esri.apl.ea3d.model.Bookmark3D;
+import com.esri.apl.ea3d.model.CameraSpec;
+import com.esri.apl.ea3d.util.CameraPath;
+import com.esri.apl.ea3d.util.CameraSerialization;
+import com.esri.apl.ea3d.util.Easing;
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.SpatialReference;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
+import com.esri.arcgisruntime.mapping.view.Camera;
+import com.esri.arcgisruntime.mapping.view.SceneView;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Flies the scene camera along precomputed {@link CameraPath}s, paced by the display's frame
+ * clock, instead of leaving the route to {@code setViewpointCameraAsync(camera, duration)}.<p/>
+ * A flight can be stopped at any frame, leaving the camera where it is, and several slides can be
+ * chained into one tour. Paths between two slides are cached, so repeating a presentation
+ * doesn't sample them again; a path is only reused when the camera is still where the previous
+ * flight left it. Like {@link OrbitAnimator}, a frame is skipped if the previous camera update
+ * hasn't finished.<p/>
+ * Must be used on the UI thread.
+ */
+public class CameraPathPlayer {
+  private static final String TAG = "CameraPathPlayer";
+  private static final long NANOS_PER_SEC = 1000000000L;
+  private static final int PATH_SAMPLES = 120;
+  private static final int PATH_CACHE_SIZE = 32;
+  // How close the camera must be to where a flight ended for the next path to come from the cache
+  private static final double REST_TOLERANCE_DEG = 1e-7;
+  private static final double REST_TOLERANCE_M = 0.01;
+
+  /** Told as each leg of a flight begins, e.g. to switch to the slide's layers */
+  public interface OnLegListener {
+    void onLegStarted(Bookmark3D slide);
+  }
+
+  private final SceneView mSceneView;
+  private final Choreographer mChoreographer = Choreographer.getInstance();
+  private OnLegListener mLegListener;
+  private Easing _easing = Easing.EASE_IN_OUT;
+
+  /** Paths by "from slide id|to slide id", least recently used first */
+  private final Map<String, CameraPath> mPathCache =
+      new LinkedHashMap<String, CameraPath>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, CameraPath> eldest) {
+      return size() > PATH_CACHE_SIZE;
+    }
+  };
+
+  // Current flight
+  private boolean mFlying = false;
+  private final Deque<Bookmark3D> mLegs = new ArrayDeque<>();
+  private double mLegSec, mDwellSec;
+  private CameraPath mPath;
+  private Bookmark3D mLegSlide;
+  /** Frame time the leg (or the dwell after it) began; 0 until its first frame */
+  private long mLegStartNanos;
+  private boolean mDwelling = false;
+  private ListenableFuture<Boolean> mPendingCameraUpdate;
+  private final double[] mSample = new double[CameraPath.STRIDE];
+
+  // Where the last completed leg left the camera
+  private String mRestingSlideId;
+  private CameraSpec mRestingCamera;
+
+  public CameraPathPlayer(SceneView sceneView) {
+    this.mSceneView = sceneView;
+  }
+
+  public void set_onLegListener(OnLegListener legListener) {
+    this.mLegListener = legListener;
+  }
+
+  /** Progress along each path over time */
+  public Easing get_easing() {
+    return _easing;
+  }
+
+  /** Changing easing empties the path cache */
+  public void set_easing(Easing easing) {
+    easing = (easing != null) ? easing : Easing.LINEAR;
+    if (easing != _easing) mPathCache.clear();
+    this._easing = easing;
+  }
+
+  public boolean isFlying() {
+    return mFlying;
+  }
+
+  /** Fly from the current camera to a slide, replacing any flight under way */
+  public void flyTo(Bookmark3D slide, double durationSec) {
+    flyThrough(Collections.singletonList(slide), durationSec, 0);
+  }
+
+  /**
+   * Fly to each slide in turn, replacing any flight under way
+   * @param legSec seconds for each leg
+   * @param dwellSec seconds to stay at each slide before flying on
+   */
+  public void flyThrough(List<Bookmark3D> slides, double legSec, double dwellSec) {
+    stop();
+    if (slides.isEmpty()) return;
+    mLegs.addAll(slides);
+    mLegSec = legSec;
+    mDwellSec = dwellSec;
+    mFlying = true;
+    startNextLeg();
+    mChoreographer.postFrameCallback(mFrameCallback);
+  }
+
+  /** Fly to an arbitrary camera (e.g. the current one turned north); not cached */
+  public void flyToCamera(Camera camera, double durationSec) {
+    stop();
+    try {
+      mPath = CameraPath.between(currentCamera(), CameraSerialization.specFromCamera(camera),
+          PATH_SAMPLES, _easing);
+    } catch (IllegalArgumentException e) {
+      Log.w(TAG, "Can't sample a path; letting the SDK fly", e);
+      mSceneView.setViewpointCameraAsync(camera, (float) durationSec);
+      return;
+    }
+    mLegSlide = null;
+    mLegSec = durationSec;
+    mLegStartNanos = 0;
+    mDwelling = false;
+    mFlying = true;
+    mChoreographer.postFrameCallback(mFrameCallback);
+  }
+
+  /** Stop where the camera is now; any remaining legs are dropped */
+  public void stop() {
+    if (!mFlying) return;
+    mFlying = false;
+    mChoreographer.removeFrameCallback(mFrameCallback);
+    mLegs.clear();
+    mPath = null;
+    mLegSlide = null;
+  }
+
+  /** Sample or look up the path for the next slide, and tell the listener */
+  private void startNextLeg() {
+    Bookmark3D slide = mLegs.poll();
+    CameraSpec from = currentCamera();
+    String key = null;
+    if (mRestingSlideId != null && isSameCamera(from, mRestingCamera))
+      key = mRestingSlideId + '|' + slide.get_id();
+
+    CameraPath path = (key != null) ? mPathCache.get(key) : null;
+    if (path == null) {
+      try {
+        path = CameraPath.between(from, slide.get_cameraSpec(), PATH_SAMPLES, _easing);
+      } catch (IllegalArgumentException e) {
+        Log.w(TAG, "Can't sample a path; letting the SDK fly", e);
+      }
+      if (path != null && key != null) mPathCache.put(key, path);
+    }
+    mRestingSlideId = null;
+    mPath = path;
+    mLegSlide = slide;
+    mLegStartNanos = 0;
+    mDwelling = false;
+    if (mLegListener != null) mLegListener.onLegStarted(slide);
+    if (path == null) {
+      mSceneView.setViewpointCameraAsync(slide.get_camera(), (float) mLegSec);
+      mDwelling = true; // Wait out the SDK's flight as part of the dwell
+    }
+  }
+
+  private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+    @Override
+    public void doFrame(long frameTimeNanos) {
+      if (!mFlying) return;
+      mChoreographer.postFrameCallback(this);
+
+      if (mLegStartNanos == 0) mLegStartNanos = frameTimeNanos;
+      double elapsedSec = (double) (frameTimeNanos - mLegStartNanos) / NANOS_PER_SEC;
+
+      if (mDwelling) {
+        double waitSec = (mPath == null) ? mLegSec + mDwellSec : mDwellSec;
+        if (elapsedSec < waitSec) return;
+        if (mLegs.isEmpty()) stop();
+        else startNextLeg();
+        return;
+      }
+
+      // Late frame: the last update is still being applied, so don't queue another behind it
+      if (mPendingCameraUpdate != null && !mPendingCameraUpdate.isDone()) return;
+
+      double t = (mLegSec > 0) ? elapsedSec / mLegSec : 1;
+      mPath.sampleAt(t, mSample, 0);
+      Point pt = new Point(mSample[0], mSample[1], mSample[2], SpatialReferences.getWgs84());
+      Camera cam = new Camera(pt, mSample[3], mSample[4], mSample[5]);
+      mPendingCameraUpdate = mSceneView.setViewpointCameraAsync(cam, 0);
+      if (t >= 1) arrive();
+    }
+  };
+
+  /** The last sample has been sent; note where we are and move on */
+  private void arrive() {
+    final Bookmark3D slide = mLegSlide;
+    final ListenableFuture<Boolean> lfFinal = mPendingCameraUpdate;
+    lfFinal.addDoneListener(new Runnable() {
+      @Override
+      public void run() {
+        // Remember where this leg actually left the camera, to recognize it next time
+        if (slide != null && mPendingCameraUpdate == lfFinal) {
+          mRestingSlideId = slide.get_id();
+          mRestingCamera = currentCamera();
+        }
+      }
+    });
+    if (mLegs.isEmpty()) {
+      stop();
+    } else {
+      mDwelling = true;
+      mLegStartNanos = 0;
+    }
+  }
+
+  private CameraSpec currentCamera() {
+    return CameraSerialization.specFromCamera(mSceneView.getCurrentViewpointCamera());
+  }
+
+  private static boolean isSameCamera(CameraSpec a, CameraSpec b) {
+    if (b == null || a.get_wkid() != b.get_wkid()) return false;
+    SpatialReference sr = SpatialReference.create(a.get_wkid());
+    double xyTolerance = sr.isGeographic() ? REST_TOLERANCE_DEG : REST_TOLERANCE_M;
+    return Math.abs(a.get_x() - b.get_x()) <= xyTolerance
+        && Math.abs(a.get_y() - b.get_y()) <= xyTolerance
+        && Math.abs(a.get_z() - b.get_z()) <= REST_TOLERANCE_M
+        && Math.abs(a.get_heading() - b.get_heading()) <= REST_TOLERANCE_DEG
+        && Math.abs(a.get_pitch() - b.get_pitch()) <= REST_TOLERANCE_DEG
+        && Math.abs(a.get_roll() - b.get_roll()) <= REST_TOLERANCE_DEG;
+  }
+}
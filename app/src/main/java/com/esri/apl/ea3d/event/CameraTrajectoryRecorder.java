@@ -0,0 +1,245 @@
+package com.esri.apl.ea3d.event;
+
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+
+import com.esri.apl.ea3d.util.CameraTrajectory;
+import com.esri.apl.ea3d.util.Projection;
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.geometry.GeometryEngine;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.SpatialReference;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
+import com.esri.arcgisruntime.mapping.view.Camera;
+import com.esri.arcgisruntime.mapping.view.SceneView;
+import com.esri.arcgisruntime.mapping.view.ViewpointChangedEvent;
+import com.esri.arcgisruntime.mapping.view.ViewpointChangedListener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Records the scene camera into a {@link CameraTrajectory} and plays it back.<p/>
+ * Recording listens for viewpoint changes, so it captures the camera however it's moved: touch
+ * navigation, sensor navigation, orbiting, or slide flights. Playback interpolates between
+ * recorded samples on each frame and, like {@link OrbitAnimator}, skips a frame if the previous
+ * camera update hasn't finished. Nothing is recorded while playing back.<p/>
+ * Must be used on the UI thread.
+ */
+public class CameraTrajectoryRecorder {
+  private static final String TAG = "CameraTrajectoryRecorder";
+  private static final long NANOS_PER_MILLI = 1000000L;
+  /** Record at most one sample per display frame */
+  private static final long MIN_SAMPLE_INTERVAL_MS = 16;
+  /** After a pause this long, record the camera again just before it moves off, so the pause plays back */
+  private static final long IDLE_GAP_MS = 100;
+
+  /** Told when playback reaches the end, but not when it's stopped */
+  public interface OnPlaybackFinishedListener {
+    void onPlaybackFinished();
+  }
+
+  private final SceneView mSceneView;
+  private final Choreographer mChoreographer = Choreographer.getInstance();
+  private final int mCapacityBytes;
+  private CameraTrajectory mTrajectory;
+  private OnPlaybackFinishedListener mFinishedListener;
+
+  // Recording
+  private boolean mRecording = false;
+  private long mLastSampleMillis;
+  /** lon, lat, z, heading, pitch, roll of the last sample recorded */
+  private final double[] mLastSample = new double[6];
+  private final double[] mLonLat = new double[2];
+
+  // Playback
+  private boolean mPlaying = false;
+  private double mSpeed;
+  private CameraTrajectory.Cursor mCursor;
+  /** The recorded samples either side of the playback time */
+  private final double[] mBefore = new double[CameraTrajectory.STRIDE];
+  private final double[] mAfter = new double[CameraTrajectory.STRIDE];
+  /** Frame time playback began; 0 until its first frame */
+  private long mStartFrameNanos;
+  private ListenableFuture<Boolean> mPendingCameraUpdate;
+
+  public CameraTrajectoryRecorder(SceneView sceneView, int capacityBytes) {
+    this.mSceneView = sceneView;
+    this.mCapacityBytes = capacityBytes;
+    this.mTrajectory = new CameraTrajectory(capacityBytes);
+  }
+
+  public CameraTrajectory get_trajectory() {
+    return mTrajectory;
+  }
+
+  public void set_onPlaybackFinishedListener(OnPlaybackFinishedListener finishedListener) {
+    this.mFinishedListener = finishedListener;
+  }
+
+  public boolean isRecording() {
+    return mRecording;
+  }
+
+  public boolean isPlaying() {
+    return mPlaying;
+  }
+
+  /** Start a new recording, discarding the last one */
+  public void startRecording() {
+    stopPlayback();
+    stopRecording();
+    // A loaded recording is sized to its file; record into the configured capacity again
+    if (mTrajectory.get_capacityBytes() != mCapacityBytes) mTrajectory = new CameraTrajectory(mCapacityBytes);
+    else mTrajectory.clear();
+    mRecording = true;
+    mSceneView.addViewpointChangedListener(mViewpointChangedListener);
+    record(SystemClock.elapsedRealtime());
+  }
+
+  public void stopRecording() {
+    if (!mRecording) return;
+    mRecording = false;
+    mSceneView.removeViewpointChangedListener(mViewpointChangedListener);
+    // End on the camera as it's left, even if the last change came within a frame of the one before
+    if (mTrajectory.get_count() > 0) record(SystemClock.elapsedRealtime());
+  }
+
+  /** Save the current recording in {@link CameraTrajectory}'s binary form */
+  public void save(OutputStream out) throws IOException {
+    mTrajectory.writeTo(out);
+  }
+
+  /** Read a saved recording, e.g. for {@link #set_trajectory}; may be called off the UI thread */
+  public static CameraTrajectory load(InputStream in) throws IOException {
+    return CameraTrajectory.readFrom(in);
+  }
+
+  /** Make a loaded recording the current one */
+  public void set_trajectory(CameraTrajectory trajectory) {
+    stopPlayback();
+    stopRecording();
+    this.mTrajectory = trajectory;
+  }
+
+  private final ViewpointChangedListener mViewpointChangedListener = new ViewpointChangedListener() {
+    @Override
+    public void viewpointChanged(ViewpointChangedEvent viewpointChangedEvent) {
+      if (mPlaying) return;
+      long now = SystemClock.elapsedRealtime();
+      long sinceLast = now - mLastSampleMillis;
+      if (sinceLast < MIN_SAMPLE_INTERVAL_MS) return;
+      if (sinceLast > IDLE_GAP_MS) {
+        double[] s = mLastSample;
+        mTrajectory.append(now - MIN_SAMPLE_INTERVAL_MS, s[0], s[1], s[2], s[3], s[4], s[5]);
+      }
+      record(now);
+    }
+  };
+
+  /** Append the current camera in WGS84 */
+  private void record(long timeMillis) {
+    Camera cam = mSceneView.getCurrentViewpointCamera();
+    if (cam == null) return;
+    Point pt = cam.getLocation();
+    SpatialReference sr = pt.getSpatialReference();
+    int wkid = (sr != null) ? sr.getWkid() : 0;
+    if (Projection.isWgs84(wkid)) {
+      mLonLat[0] = pt.getX();
+      mLonLat[1] = pt.getY();
+    } else if (Projection.isWebMercator(wkid)) {
+      Projection.webMercatorToWgs84(pt.getX(), pt.getY(), mLonLat, 0);
+    } else {
+      Point ptWgs = (Point) GeometryEngine.project(pt, SpatialReferences.getWgs84());
+      mLonLat[0] = ptWgs.getX();
+      mLonLat[1] = ptWgs.getY();
+    }
+    double[] s = mLastSample;
+    s[0] = mLonLat[0];
+    s[1] = mLonLat[1];
+    s[2] = pt.getZ();
+    s[3] = cam.getHeading();
+    s[4] = cam.getPitch();
+    s[5] = cam.getRoll();
+    mTrajectory.append(timeMillis, s[0], s[1], s[2], s[3], s[4], s[5]);
+    mLastSampleMillis = timeMillis;
+  }
+
+  /**
+   * Play the current recording from the start
+   * @param speed 1 for the pace it was recorded at, 2 for twice as fast, and so on
+   * @return false if there's nothing to play
+   */
+  public boolean play(double speed) {
+    if (!(speed > 0)) throw new IllegalArgumentException("Playback speed must be positive");
+    stopPlayback();
+    stopRecording();
+    if (mTrajectory.get_count() == 0) return false;
+
+    mCursor = mTrajectory.cursor();
+    mCursor.next(mBefore, 0);
+    if (!mCursor.next(mAfter, 0)) System.arraycopy(mBefore, 0, mAfter, 0, mBefore.length);
+    mSpeed = speed;
+    mStartFrameNanos = 0;
+    mPendingCameraUpdate = null;
+    mPlaying = true;
+    Log.d(TAG, "Playing " + mTrajectory.get_count() + " samples over "
+        + mTrajectory.get_durationMillis() / speed + " ms");
+    mChoreographer.postFrameCallback(mFrameCallback);
+    return true;
+  }
+
+  /** Stop playback, leaving the camera where it is */
+  public void stopPlayback() {
+    if (!mPlaying) return;
+    mPlaying = false;
+    mChoreographer.removeFrameCallback(mFrameCallback);
+    mCursor = null;
+  }
+
+  private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+    @Override
+    public void doFrame(long frameTimeNanos) {
+      if (!mPlaying) return;
+      mChoreographer.postFrameCallback(this);
+
+      if (mStartFrameNanos == 0) mStartFrameNanos = frameTimeNanos;
+      // Late frame: the last update is still being applied, so don't queue another behind it
+      if (mPendingCameraUpdate != null && !mPendingCameraUpdate.isDone()) return;
+
+      double playMillis = (double) (frameTimeNanos - mStartFrameNanos) / NANOS_PER_MILLI * mSpeed;
+      boolean ended = false;
+      while (mAfter[0] < playMillis) {
+        System.arraycopy(mAfter, 0, mBefore, 0, mAfter.length);
+        if (!mCursor.next(mAfter, 0)) {
+          ended = true;
+          break;
+        }
+      }
+
+      // Past the last sample, mBefore holds it too
+      double[] a = mBefore, b = mAfter;
+      double span = b[0] - a[0];
+      double f = (span > 0) ? Math.max(0, Math.min(1, (playMillis - a[0]) / span)) : 1;
+      double lon = a[1] + wrapDelta(b[1] - a[1]) * f;
+      lon = ((lon + 180) % 360 + 360) % 360 - 180;
+      double heading = a[4] + wrapDelta(b[4] - a[4]) * f;
+      Point pt = new Point(lon, a[2] + (b[2] - a[2]) * f, a[3] + (b[3] - a[3]) * f,
+          SpatialReferences.getWgs84());
+      Camera cam = new Camera(pt, heading, a[5] + (b[5] - a[5]) * f, a[6] + (b[6] - a[6]) * f);
+      mPendingCameraUpdate = mSceneView.setViewpointCameraAsync(cam, 0);
+
+      if (ended) {
+        stopPlayback();
+        if (mFinishedListener != null) mFinishedListener.onPlaybackFinished();
+      }
+    }
+  };
+
+  /** Shortest signed difference for an angle difference in degrees */
+  private static double wrapDelta(double delta) {
+    return ((delta % 360) + 540) % 360 - 180;
+  }
+}
@@ -0,0 +1,17 @@
+package com.esri.apl.ea3d.event;
+
+/**
+ * Hooks for a touch listener managed by {@link InteractionModeRegistry}.
+ * A mode's results may outlive it being the active listener (e.g. a viewshed stays up while the
+ * user navigates), so clearing them and leaving are separate steps.
+ */
+interface InteractionMode {
+  /** About to become the scene view's touch listener; attach overlays, start sensors, etc. */
+  void enter();
+
+  /** Clear results, leaving overlays attached */
+  void cleanup();
+
+  /** Clear results, stop any work and detach overlays, so the renderer doesn't walk them */
+  void exit();
+}
@@ -0,0 +1,98 @@
+package com.esri.apl.ea3d.event;
+
+import android.util.SparseArray;
+
+import com.esri.arcgisruntime.mapping.view.DefaultSceneViewOnTouchListener;
+import com.esri.arcgisruntime.mapping.view.SceneView;
+
+/**
+ * Builds each touch listener the first time its mode is entered, and makes it the scene view's
+ * touch listener.<p/>
+ * Navigation modes only replace each other; entering an analysis mode also clears and detaches
+ * every other mode, as only one kind of analysis is shown at a time. Analysis results survive
+ * a switch to a navigation mode until {@link #clearResults} is called.
+ * Must be used on the UI thread.
+ */
+public class InteractionModeRegistry {
+  /** Builds a mode's touch listener */
+  public interface Factory<T extends DefaultSceneViewOnTouchListener> {
+    T create();
+  }
+
+  private static class Entry {
+    final boolean navigation;
+    final Factory<?> factory;
+    DefaultSceneViewOnTouchListener listener;
+
+    Entry(boolean navigation, Factory<?> factory) {
+      this.navigation = navigation;
+      this.factory = factory;
+    }
+  }
+
+  private final SceneView mSceneView;
+  private final SparseArray<Entry> mModes = new SparseArray<>();
+  private int mActiveMode;
+  private boolean mHasActiveMode = false;
+
+  public InteractionModeRegistry(SceneView sceneView) {
+    this.mSceneView = sceneView;
+  }
+
+  /**
+   * @param mode caller's id for the mode
+   * @param navigation whether this mode only moves the camera, leaving analysis results alone
+   */
+  public void register(int mode, boolean navigation, Factory<?> factory) {
+    mModes.put(mode, new Entry(navigation, factory));
+  }
+
+  /**
+   * Leave the current mode(s) as described above and make this one active, building its
+   * listener if this is the first time
+   * @return the mode's listener
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends DefaultSceneViewOnTouchListener> T enter(int mode) {
+    Entry target = mModes.get(mode);
+    if (target == null) throw new IllegalArgumentException("Unregistered mode " + mode);
+
+    for (int iMode = 0; iMode < mModes.size(); iMode++) {
+      Entry entry = mModes.valueAt(iMode);
+      if (entry.listener != null && (!target.navigation || entry.navigation))
+        exit(entry);
+    }
+
+    if (target.listener == null) target.listener = target.factory.create();
+    if (target.listener instanceof InteractionMode) ((InteractionMode) target.listener).enter();
+    mSceneView.setOnTouchListener(target.listener);
+    mActiveMode = mode;
+    mHasActiveMode = true;
+    return (T) target.listener;
+  }
+
+  /** Clear all analysis results. Inactive analysis modes are also detached. */
+  public void clearResults() {
+    for (int iMode = 0; iMode < mModes.size(); iMode++) {
+      Entry entry = mModes.valueAt(iMode);
+      if (entry.navigation || !(entry.listener instanceof InteractionMode)) continue;
+      if (isActive(mModes.keyAt(iMode))) ((InteractionMode) entry.listener).cleanup();
+      else exit(entry);
+    }
+  }
+
+  /** @return the mode's listener, or null if it hasn't been built yet */
+  @SuppressWarnings("unchecked")
+  public <T extends DefaultSceneViewOnTouchListener> T peek(int mode) {
+    Entry entry = mModes.get(mode);
+    return (entry != null) ? (T) entry.listener : null;
+  }
+
+  public boolean isActive(int mode) {
+    return mHasActiveMode && mActiveMode == mode;
+  }
+
+  private static void exit(Entry entry) {
+    if (entry.listener instanceof InteractionMode) ((InteractionMode) entry.listener).exit();
+  }
+}
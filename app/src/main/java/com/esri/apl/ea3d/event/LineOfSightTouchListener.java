@@ -1,23 +1,39 @@
 package com.esri.apl.ea3d.event;
 
+import android.graphics.Color;
 import android.util.Log;
 import android.view.MotionEvent;
 
 import com.esri.apl.ea3d.R;
+import com.esri.apl.ea3d.analysis.Heightfield;
+import com.esri.apl.ea3d.analysis.HeightfieldLineOfSight;
+import com.esri.apl.ea3d.util.GeometryUtils;
+import com.esri.apl.ea3d.util.Projection;
 import com.esri.arcgisruntime.concurrent.ListenableFuture;
 import com.esri.arcgisruntime.geoanalysis.LineOfSight;
 import com.esri.arcgisruntime.geoanalysis.LocationLineOfSight;
 import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.PointCollection;
+import com.esri.arcgisruntime.geometry.Polyline;
 import com.esri.arcgisruntime.mapping.view.AnalysisOverlay;
 import com.esri.arcgisruntime.mapping.view.DefaultSceneViewOnTouchListener;
+import com.esri.arcgisruntime.mapping.view.Graphic;
+import com.esri.arcgisruntime.mapping.view.GraphicsOverlay;
+import com.esri.arcgisruntime.mapping.view.LayerSceneProperties;
 import com.esri.arcgisruntime.mapping.view.SceneView;
+import com.esri.arcgisruntime.symbology.SimpleLineSymbol;
 
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Do line-of-sight analysis from touched/dragged locations.
+ * Do line-of-sight analysis from touched/dragged locations.<p/>
+ * By default this uses the SDK's {@link LocationLineOfSight}. If a Web Mercator
+ * {@link Heightfield} is set, the CPU {@link HeightfieldLineOfSight} engine is used instead and
+ * the result is drawn as graphics; it also checks any targets set with {@link #set_targets}
+ * from each new observer, all at once.
  */
-public class LineOfSightTouchListener extends DefaultSceneViewOnTouchListener implements TouchListenerFinalizable {
+public class LineOfSightTouchListener extends DefaultSceneViewOnTouchListener implements InteractionMode {
   private static final String TAG = "LOSListener";
 
   private SceneView mSceneView;
@@ -25,19 +41,98 @@ public class LineOfSightTouchListener extends DefaultSceneViewOnTouchListener im
   private LocationLineOfSight mLOS;
 
   private final AtomicReference<Point> ptFrom = new AtomicReference<>();
+  /** Drag end points; only the newest is resolved to a map location */
+  private final ScreenLocationCoalescer mDragLocations;
+  private final TouchLatency mLatency = new TouchLatency("LineOfSight");
+
+  // CPU line-of-sight backend, used when a heightfield is set
+  private HeightfieldLineOfSight mCpuLineOfSight;
+  private final GraphicsOverlay mCpuGraphics = new GraphicsOverlay();
+  private final SimpleLineSymbol mVisibleSymbol = new SimpleLineSymbol(
+      SimpleLineSymbol.Style.SOLID, Color.GREEN, 3f);
+  private final SimpleLineSymbol mObstructedSymbol = new SimpleLineSymbol(
+      SimpleLineSymbol.Style.SOLID, Color.RED, 3f);
+  private final double[] mObstructionPoint = new double[3];
+
+  /** Told how many targets are visible each time they're checked from a new observer */
+  public interface OnTargetsCheckedListener {
+    void onTargetsChecked(int visible, int count);
+  }
+
+  /** Packed WGS84 lon, lat, z targets; a NaN z is taken from the heightfield */
+  private double[] mTargets;
+  private OnTargetsCheckedListener mTargetsListener;
+  /** Whether this is the active mode, between enter() and exit() */
+  private boolean mEntered = false;
 
   public LineOfSightTouchListener(SceneView sceneView) {
     super(sceneView);
     this.mSceneView = sceneView;
-    mSceneView.getAnalysisOverlays().add(mAnalysis);
+    mDragLocations = new ScreenLocationCoalescer(sceneView, mOnDragLocation, mLatency);
+    mCpuGraphics.getSceneProperties().setSurfacePlacement(
+        LayerSceneProperties.SurfacePlacement.ABSOLUTE);
+  }
+
+  /** Touch-to-result latency for this listener */
+  public TouchLatency get_latency() {
+    return mLatency;
+  }
+
+  public Heightfield get_heightfield() {
+    return (mCpuLineOfSight != null) ? mCpuLineOfSight.get_heightfield() : null;
+  }
+
+  /**
+   * Switch line-of-sight backends
+   * @param heightfield Web Mercator elevation grid for the CPU engine, or null to use the SDK
+   */
+  public void set_heightfield(Heightfield heightfield) {
+    cleanup();
+    mCpuLineOfSight = (heightfield != null) ? new HeightfieldLineOfSight(heightfield) : null;
+    // Only the active mode keeps overlays attached; otherwise enter() attaches this one
+    if (mCpuLineOfSight == null) mSceneView.getGraphicsOverlays().remove(mCpuGraphics);
+    else if (mEntered && !mSceneView.getGraphicsOverlays().contains(mCpuGraphics))
+      mSceneView.getGraphicsOverlays().add(mCpuGraphics);
+  }
+
+  /**
+   * Targets to check from each observer while a heightfield is set
+   * @param targets packed WGS84 lon, lat, z triples, as from {@code BatchMeasurement.readTargets};
+   *                null for none
+   */
+  public void set_targets(double[] targets) {
+    this.mTargets = targets;
+  }
+
+  public void set_onTargetsCheckedListener(OnTargetsCheckedListener targetsListener) {
+    this.mTargetsListener = targetsListener;
+  }
+
+  /**
+   * Bulk visibility check from the current observer point with the CPU engine
+   * @param targetsWM {@code count} packed x, y, z Web Mercator targets
+   * @param obstructions receives, per target, the fraction of the way to it of the first
+   *                     obstruction, or {@link HeightfieldLineOfSight#VISIBLE}
+   * @return how many targets are visible
+   */
+  public int checkVisibility(double[] targetsWM, int count, double[] obstructions) {
+    if (mCpuLineOfSight == null) throw new IllegalStateException("No heightfield set");
+    Point observer = ptFrom.get();
+    if (observer == null) throw new IllegalStateException("No observer point yet");
+    Point obsWM = GeometryUtils.toWebMercator(observer);
+    return mCpuLineOfSight.obstructions(obsWM.getX(), obsWM.getY(), obsWM.getZ(),
+        targetsWM, count, obstructions);
   }
 
   /** Use initial tap location as analysis starting point */
   @Override
   public boolean onSinglePointerDown(MotionEvent motionEvent) {
     Log.d(TAG, "Single pointer down");
+    final long gestureNanos = TouchLatency.eventNanos(motionEvent);
 
     mAnalysis.getAnalyses().clear();
+    mCpuGraphics.getGraphics().clear();
+    mDragLocations.cancel();
 
     final int observerHeight = mSceneView.getContext().getResources()
         .getInteger(R.integer.geoanalysis_observer_height_m);
@@ -49,11 +144,14 @@ public class LineOfSightTouchListener extends DefaultSceneViewOnTouchListener im
       @Override
       public void run() {
         if (lfDoneFrom.isDone()) {
+          long locatedNanos = mLatency.located(gestureNanos);
           try {
             Point ptObs = lfDoneFrom.get();
             // Add to observer point height to simulate observer eye height
             ptFrom.set(new Point(ptObs.getX(), ptObs.getY(), ptObs.getZ() + observerHeight,
                 ptObs.getSpatialReference()));
+            if (mCpuLineOfSight != null && mTargets != null) showTargetVisibility();
+            mLatency.updated(locatedNanos);
           } catch (Exception exc) {
             exc.printStackTrace();
           }
@@ -68,39 +166,115 @@ public class LineOfSightTouchListener extends DefaultSceneViewOnTouchListener im
   public boolean onScroll(MotionEvent motionEventFrom, MotionEvent motionEventTo, float distanceX, float distanceY) {
     Log.d(TAG, "Scroll");
 
-    android.graphics.Point screenPointTo = new android.graphics.Point();
-    screenPointTo.set((int)motionEventTo.getX(), (int)motionEventTo.getY());
-
+    mDragLocations.request((int)motionEventTo.getX(), (int)motionEventTo.getY(),
+        TouchLatency.eventNanos(motionEventTo));
+    return true;
+  }
 
-    final ListenableFuture<Point> lfDoneTo = mSceneView.screenToLocationAsync(screenPointTo);
-    lfDoneTo.addDoneListener(new Runnable() {
-      @Override
-      public void run() {
-        if (lfDoneTo.isDone()) {
-          try {
-            Point ptTo = lfDoneTo.get();
-
-            if (ptFrom.get() != null && ptTo != null) {
-              if (mAnalysis.getAnalyses().size() <= 0) { // Create it
-                mLOS = new LocationLineOfSight(ptFrom.get(), ptTo);
-                LineOfSight.setLineWidth(3);
-                mAnalysis.getAnalyses().add(mLOS);
-              } else { // Just update the points
-                mLOS.setTargetLocation(ptTo);
-              }
-            }
-          } catch (Exception exc) {
-            exc.printStackTrace();
+  private final ScreenLocationCoalescer.OnLocationListener mOnDragLocation =
+      new ScreenLocationCoalescer.OnLocationListener() {
+    @Override
+    public void onLocation(Point ptTo) {
+      try {
+        if (mCpuLineOfSight != null) {
+          if (ptFrom.get() != null && ptTo != null) showCpuLineOfSight(ptFrom.get(), ptTo);
+        } else if (ptFrom.get() != null && ptTo != null) {
+          if (mAnalysis.getAnalyses().size() <= 0) { // Create it
+            mLOS = new LocationLineOfSight(ptFrom.get(), ptTo);
+            LineOfSight.setLineWidth(3);
+            mAnalysis.getAnalyses().add(mLOS);
+          } else { // Just update the points
+            mLOS.setTargetLocation(ptTo);
           }
         }
+      } catch (Exception exc) {
+        exc.printStackTrace();
       }
-    });
-    return true;
+    }
+  };
+
+  /** Draw the sightline from the observer to the drag point */
+  private void showCpuLineOfSight(Point from, Point to) {
+    Point fromWM = GeometryUtils.toWebMercator(from);
+    Point toWM = GeometryUtils.toWebMercator(to);
+    double t = mCpuLineOfSight.obstruction(fromWM.getX(), fromWM.getY(), fromWM.getZ(),
+        toWM.getX(), toWM.getY(), toWM.getZ());
+
+    mCpuGraphics.getGraphics().clear();
+    addSightline(fromWM, toWM, t);
+  }
+
+  /** Check every target from the new observer and draw a sightline to each */
+  private void showTargetVisibility() {
+    Heightfield hf = mCpuLineOfSight.get_heightfield();
+    int count = mTargets.length / 3;
+    double[] targetsWM = new double[3 * count];
+    int usable = 0;
+    for (int i = 0; i < count; i++) {
+      int j = 3 * usable;
+      Projection.wgs84ToWebMercator(mTargets[3 * i], mTargets[3 * i + 1], targetsWM, j);
+      double z = mTargets[3 * i + 2];
+      targetsWM[j + 2] = Double.isNaN(z) ? hf.elevationAt(targetsWM[j], targetsWM[j + 1]) : z;
+      // Ground targets off the heightfield have no elevation to look at
+      if (!Double.isNaN(targetsWM[j + 2])) usable++;
+    }
+    double[] obstructions = new double[usable];
+    int visible = checkVisibility(targetsWM, usable, obstructions);
+
+    Point fromWM = GeometryUtils.toWebMercator(ptFrom.get());
+    for (int i = 0; i < usable; i++) {
+      Point toWM = new Point(targetsWM[3 * i], targetsWM[3 * i + 1], targetsWM[3 * i + 2],
+          fromWM.getSpatialReference());
+      addSightline(fromWM, toWM, obstructions[i]);
+    }
+    if (mTargetsListener != null) mTargetsListener.onTargetsChecked(visible, usable);
+  }
+
+  /**
+   * Draw the visible part of a sightline green and the rest, if any, red
+   * @param t fraction of the way to the target of the first obstruction, or
+   *          {@link HeightfieldLineOfSight#VISIBLE}
+   */
+  private void addSightline(Point fromWM, Point toWM, double t) {
+    if (t == HeightfieldLineOfSight.VISIBLE) {
+      mCpuGraphics.getGraphics().add(new Graphic(line(fromWM, toWM), mVisibleSymbol));
+    } else {
+      HeightfieldLineOfSight.pointAlong(fromWM.getX(), fromWM.getY(), fromWM.getZ(),
+          toWM.getX(), toWM.getY(), toWM.getZ(), t, mObstructionPoint, 0);
+      Point ptObstruction = new Point(mObstructionPoint[0], mObstructionPoint[1],
+          mObstructionPoint[2], fromWM.getSpatialReference());
+      mCpuGraphics.getGraphics().add(new Graphic(line(fromWM, ptObstruction), mVisibleSymbol));
+      mCpuGraphics.getGraphics().add(new Graphic(line(ptObstruction, toWM), mObstructedSymbol));
+    }
+  }
+
+  private static Polyline line(Point from, Point to) {
+    Point aryPts[] = { from, to };
+    return new Polyline(new PointCollection(Arrays.asList(aryPts)));
+  }
+
+  @Override
+  public void enter() {
+    mEntered = true;
+    if (!mSceneView.getAnalysisOverlays().contains(mAnalysis))
+      mSceneView.getAnalysisOverlays().add(mAnalysis);
+    if (mCpuLineOfSight != null && !mSceneView.getGraphicsOverlays().contains(mCpuGraphics))
+      mSceneView.getGraphicsOverlays().add(mCpuGraphics);
   }
 
   @Override
   public void cleanup() {
+    mDragLocations.cancel();
+    mCpuGraphics.getGraphics().clear();
     mAnalysis.getAnalyses().clear();
     ptFrom.set(null);
   }
+
+  @Override
+  public void exit() {
+    mEntered = false;
+    cleanup();
+    mSceneView.getAnalysisOverlays().remove(mAnalysis);
+    mSceneView.getGraphicsOverlays().remove(mCpuGraphics);
+  }
 }
@@ -6,9 +6,10 @@ import android.util.Log;
 import android.view.MotionEvent;
 
 import com.esri.apl.ea3d.R;
+import com.esri.apl.ea3d.util.Geodesy;
 import com.esri.apl.ea3d.util.GeometryUtils;
+import com.esri.apl.ea3d.util.PathMeasurement;
 import com.esri.arcgisruntime.concurrent.ListenableFuture;
-import com.esri.arcgisruntime.geometry.GeometryEngine;
 import com.esri.arcgisruntime.geometry.Point;
 import com.esri.arcgisruntime.geometry.PointCollection;
 import com.esri.arcgisruntime.geometry.Polyline;
@@ -23,13 +24,21 @@ import com.esri.arcgisruntime.symbology.SimpleLineSymbol;
 import com.esri.arcgisruntime.symbology.SimpleMarkerSceneSymbol;
 import com.esri.arcgisruntime.symbology.TextSymbol;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
- * Helps perform point-to-point measurement on tap
+ * Helps perform point-to-point measurement on tap.
+ * In path mode, each tap instead appends a vertex to a multi-segment path, and a long press
+ * removes the last vertex.
  */
-public class MeasurementTouchListener extends DefaultSceneViewOnTouchListener implements TouchListenerFinalizable {
+public class MeasurementTouchListener extends DefaultSceneViewOnTouchListener implements InteractionMode {
   private static final String TAG = "MeasureListener";
+  // Distinct label symbols to keep; repeated taps on the same spot reuse theirs
+  private static final int LABEL_SYMBOL_CACHE_SIZE = 32;
 
   private SceneView mSceneView;
   private final GraphicsOverlay mGraphics = new GraphicsOverlay();
@@ -45,21 +54,91 @@ public class MeasurementTouchListener extends DefaultSceneViewOnTouchListener im
       SceneSymbol.AnchorPosition.BOTTOM);
   private final SimpleLineSymbol mDistanceLineSymbol = new SimpleLineSymbol(
       SimpleLineSymbol.Style.SOLID, Color.YELLOW, 9f);
+  /** Scratch buffer for midpoint calculation; only touched on the UI thread */
+  private final double[] mMidpoint = new double[3];
 
+  // Camera-to-tap measurement graphics; kept and moved, rather than rebuilt, on each tap
+  private final Graphic mStartGraphic = new Graphic();
+  private final Graphic mEndGraphic = new Graphic();
+  private final Graphic mLineGraphic = new Graphic();
+  private final Graphic mLabelGraphic = new Graphic();
+  private final PointCollection mLinePoints;
+  private boolean _showingMeasurement = false;
+  /** Label symbols by alignment and text, least recently used first */
+  private final Map<String, TextSymbol> mLabelSymbols =
+      new LinkedHashMap<String, TextSymbol>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, TextSymbol> eldest) {
+      return size() > LABEL_SYMBOL_CACHE_SIZE;
+    }
+  };
+  private final TouchLatency mLatency = new TouchLatency("Measure");
+
+  // Path measurement
+  private boolean _pathMode = false;
+  private final PathMeasurement mPath = new PathMeasurement();
+  /** One marker per path vertex, and one line per segment (segment i ends at vertex i+1) */
+  private final List<Graphic> mPathVertexGraphics = new ArrayList<>();
+  private final List<Graphic> mPathSegmentGraphics = new ArrayList<>();
+  private final Graphic mPathLabelGraphic = new Graphic();
 
   public MeasurementTouchListener(SceneView sceneView) {
     super(sceneView);
     this.mSceneView = sceneView;
-    mSceneView.getGraphicsOverlays().add(mGraphics);
+    mGraphics.getSceneProperties().setSurfacePlacement(
+        LayerSceneProperties.SurfacePlacement.ABSOLUTE);
+
+    mStartGraphic.setSymbol(mStartMarkerSymbol);
+    mEndGraphic.setSymbol(mEndMarkerSymbol);
+    mLineGraphic.setSymbol(mDistanceLineSymbol);
+    mLinePoints = new PointCollection(SpatialReferences.getWebMercator());
+  }
+
+  @Override
+  public void enter() {
+    if (!mSceneView.getGraphicsOverlays().contains(mGraphics))
+      mSceneView.getGraphicsOverlays().add(mGraphics);
   }
 
+  @Override
   public void cleanup() {
     clearAllTargetGraphics();
   }
 
-  /** Single tap location is measurement destination (observer point is origin) */
+  @Override
+  public void exit() {
+    cleanup();
+    mSceneView.getGraphicsOverlays().remove(mGraphics);
+  }
+
+  /** Touch-to-result latency for this listener */
+  public TouchLatency get_latency() {
+    return mLatency;
+  }
+
+  public boolean get_pathMode() {
+    return _pathMode;
+  }
+
+  /**
+   * Switch between camera-to-tap measurement and multi-segment path measurement.
+   * Any existing measurement is cleared.
+   */
+  public void set_pathMode(boolean pathMode) {
+    if (pathMode != _pathMode) cleanup();
+    this._pathMode = pathMode;
+  }
+
+  /** The path measured so far in path mode, in Web Mercator meters */
+  public PathMeasurement get_path() {
+    return mPath;
+  }
+
+  /** Single tap location is measurement destination (observer point is origin),
+   * or the next path vertex in path mode */
   @Override
   public boolean onSingleTapConfirmed(MotionEvent motionEvent) {
+    final long gestureNanos = TouchLatency.eventNanos(motionEvent);
     android.graphics.Point screenPoint = new android.graphics.Point();
     screenPoint.set((int)motionEvent.getX(), (int)motionEvent.getY());
 
@@ -68,51 +147,47 @@ public class MeasurementTouchListener extends DefaultSceneViewOnTouchListener im
       @Override
       public void run() {
         if (lfDone.isDone()) {
+          long locatedNanos = mLatency.located(gestureNanos);
           try {
+            if (_pathMode) {
+              appendPathVertex(GeometryUtils.toWebMercator(lfDone.get()));
+              mLatency.updated(locatedNanos);
+              return;
+            }
             Context ctx = mSceneView.getContext();
 
             Point ptCameraWGS = mSceneView.getCurrentViewpointCamera().getLocation();
             Point ptTargetWGS = lfDone.get();
-            Point ptCameraWM = (Point) GeometryEngine.
-                project(ptCameraWGS, SpatialReferences.getWebMercator());
-            Point ptTargetWM = (Point) GeometryEngine.project(ptTargetWGS, SpatialReferences.getWebMercator());
+            Point ptCameraWM = GeometryUtils.toWebMercator(ptCameraWGS);
+            Point ptTargetWM = GeometryUtils.toWebMercator(ptTargetWGS);
 
             // Calculate distance, bearing from camera
             double dist = GeometryUtils.distance(ptCameraWM, ptTargetWM);
-            double heading = bearing(ptCameraWGS, ptTargetWGS);
+            double heading = Geodesy.bearing(ptCameraWGS.getX(), ptCameraWGS.getY(),
+                ptTargetWGS.getX(), ptTargetWGS.getY());
             Log.d(TAG,"Heading: " + String.format("%f.1", heading));
 
-            clearAllTargetGraphics();
-            mGraphics.getSceneProperties().setSurfacePlacement(
-                LayerSceneProperties.SurfacePlacement.ABSOLUTE);
-
-            // Add from, to marker graphics
-            Graphic gTo = new Graphic();
-            gTo.setGeometry(ptTargetWM);
-            gTo.setSymbol(mEndMarkerSymbol);
-            mGraphics.getGraphics().add(gTo);
-
-            Graphic gFrom = new Graphic();
-            gFrom.setGeometry(ptCameraWM);
-            gFrom.setSymbol(mStartMarkerSymbol);
-            mGraphics.getGraphics().add(gFrom);
-
-            // Add line to target
-            Point aryPts[] = { ptCameraWM, ptTargetWM };
-            Polyline pl = new Polyline(new PointCollection(Arrays.asList(aryPts)));
-            Graphic gLine = new Graphic(pl, mDistanceLineSymbol);
-            mGraphics.getGraphics().add(gLine);
-
-            // Add distance text to target
-            Point ptMid = midpoint(ptCameraWM, ptTargetWM);
+            // Move from, to markers
+            mEndGraphic.setGeometry(ptTargetWM);
+            mStartGraphic.setGeometry(ptCameraWM);
+
+            // Line to target
+            mLinePoints.clear();
+            mLinePoints.add(ptCameraWM);
+            mLinePoints.add(ptTargetWM);
+            mLineGraphic.setGeometry(new Polyline(mLinePoints));
+
+            // Distance text at the midpoint
+            Geodesy.midpoint(ptCameraWM.getX(), ptCameraWM.getY(), ptCameraWM.getZ(),
+                ptTargetWM.getX(), ptTargetWM.getY(), ptTargetWM.getZ(), mMidpoint, 0);
+            Point ptMid = new Point(mMidpoint[0], mMidpoint[1], mMidpoint[2],
+                ptCameraWM.getSpatialReference());
             String sDistLabel = ctx.getString(R.string.distance_line_label, dist, heading);
-            TextSymbol symText = new TextSymbol(24, sDistLabel, Color.CYAN,
-                TextSymbol.HorizontalAlignment.RIGHT, TextSymbol.VerticalAlignment.BOTTOM);
-            symText.setOutlineColor(Color.BLACK); symText.setOutlineWidth(5f);
-            Graphic gText = new Graphic();
-            gText.setSymbol(symText);
-            gText.setGeometry(ptMid);
-            mGraphics.getGraphics().add(gText);
+            mLabelGraphic.setSymbol(labelSymbol(sDistLabel, TextSymbol.HorizontalAlignment.RIGHT));
+            mLabelGraphic.setGeometry(ptMid);
+
+            showMeasurementGraphics();
+            mLatency.updated(locatedNanos);
 
             Log.d(TAG, "Got the point");
           } catch (Exception e) {
@@ -124,42 +199,82 @@ public class MeasurementTouchListener extends DefaultSceneViewOnTouchListener im
     return true;
   }
 
-  /**
-   * Calculate bearing from camera to target point
-   * @param from camera/observer point (WGS84)
-   * @param to target/destination point (WGS84)
-   * @return bearing in degrees
-   * @see <a href="https://www.movable-type.co.uk/scripts/latlong.html">https://www.movable-type.co.uk/scripts/latlong.html</a>
-   */
-  private double bearing(Point from, Point to) {
-    double lonDiff = to.getX() - from.getX();
-    double y = Math.sin(Math.toRadians(lonDiff)) * Math.cos(Math.toRadians(to.getY()));
-    double x = Math.cos(Math.toRadians(from.getY())) * Math.sin(Math.toRadians(to.getY())) -
-               Math.sin(Math.toRadians(from.getY())) * Math.cos(Math.toRadians(to.getY())) *
-                   Math.cos(Math.toRadians(lonDiff));
-    double res1 = Math.atan2(y, x);
-    double res2 = Math.toDegrees(res1);
-    return (res2 + 360) % 360;
+  /** In path mode, long press removes the last path vertex */
+  @Override
+  public void onLongPress(MotionEvent motionEvent) {
+    if (_pathMode) removeLastPathVertex();
+    else super.onLongPress(motionEvent);
   }
 
-  private void clearAllTargetGraphics() {
-    mGraphics.getGraphics().clear();
+  /** Add a vertex to the path, adding only its marker and segment graphics */
+  private void appendPathVertex(Point ptWM) {
+    mPath.append(ptWM.getX(), ptWM.getY(), ptWM.getZ());
+
+    Graphic gVertex = new Graphic(ptWM,
+        mPathVertexGraphics.isEmpty() ? mStartMarkerSymbol : mEndMarkerSymbol);
+    mPathVertexGraphics.add(gVertex);
+    mGraphics.getGraphics().add(gVertex);
+
+    if (mPathVertexGraphics.size() > 1) {
+      Point ptPrev = (Point) mPathVertexGraphics.get(mPathVertexGraphics.size() - 2).getGeometry();
+      Point aryPts[] = { ptPrev, ptWM };
+      Graphic gSegment = new Graphic(
+          new Polyline(new PointCollection(Arrays.asList(aryPts))), mDistanceLineSymbol);
+      mPathSegmentGraphics.add(gSegment);
+      mGraphics.getGraphics().add(gSegment);
+    }
+    updatePathLabel();
   }
 
-  /**
-   * Find the midpoint of a line defined by a start and end point
-   * @param ptFrom Starting point of the line
-   * @param ptTo End point of the line
-   * @return The point (x, y, z) at the midpoint of the line formed by the inputs
-   */
-  private static Point midpoint(Point ptFrom, Point ptTo) {
-    double dx = (ptTo.getX() - ptFrom.getX()) / 2d;
-    double dy = (ptTo.getY() - ptFrom.getY()) / 2d;
-    double dz = (Double.isNaN(ptFrom.getZ()) || Double.isNaN(ptTo.getZ())) ?
-        Double.NaN : (ptTo.getZ() - ptFrom.getZ()) / 2d;
-    double x = ptFrom.getX() + dx;
-    double y = ptFrom.getY() + dy;
-    double z = Double.isNaN(dz) ? Double.NaN : ptFrom.getZ() + dz;
-    return new Point(x, y, z, ptFrom.getSpatialReference());
+  /** Undo the last vertex, removing only its marker and segment graphics */
+  private void removeLastPathVertex() {
+    if (!mPath.removeLast()) return;
+    mGraphics.getGraphics().remove(mPathVertexGraphics.remove(mPathVertexGraphics.size() - 1));
+    if (!mPathSegmentGraphics.isEmpty())
+      mGraphics.getGraphics().remove(mPathSegmentGraphics.remove(mPathSegmentGraphics.size() - 1));
+    updatePathLabel();
+  }
+
+  /** Show total length and last segment length at the last vertex */
+  private void updatePathLabel() {
+    int count = mPath.size();
+    if (count < 2) {
+      mGraphics.getGraphics().remove(mPathLabelGraphic);
+      return;
+    }
+    String sLabel = mSceneView.getContext().getString(R.string.path_distance_label,
+        mPath.length(), mPath.segmentLength(count - 1));
+    mPathLabelGraphic.setSymbol(labelSymbol(sLabel, TextSymbol.HorizontalAlignment.LEFT));
+    mPathLabelGraphic.setGeometry(mPathVertexGraphics.get(count - 1).getGeometry());
+    if (!mGraphics.getGraphics().contains(mPathLabelGraphic))
+      mGraphics.getGraphics().add(mPathLabelGraphic);
+  }
+
+  /** Add the camera-to-tap graphics to the overlay, if they aren't there already */
+  private void showMeasurementGraphics() {
+    if (_showingMeasurement) return;
+    mGraphics.getGraphics().addAll(
+        Arrays.asList(mEndGraphic, mStartGraphic, mLineGraphic, mLabelGraphic));
+    _showingMeasurement = true;
+  }
+
+  /** Outlined label text, reusing the symbol from the last time this text was shown */
+  private TextSymbol labelSymbol(String text, TextSymbol.HorizontalAlignment alignment) {
+    String key = alignment.name() + '|' + text;
+    TextSymbol symText = mLabelSymbols.get(key);
+    if (symText == null) {
+      symText = new TextSymbol(24, text, Color.CYAN, alignment, TextSymbol.VerticalAlignment.BOTTOM);
+      symText.setOutlineColor(Color.BLACK); symText.setOutlineWidth(5f);
+      mLabelSymbols.put(key, symText);
+    }
+    return symText;
+  }
+
+  private void clearAllTargetGraphics() {
+    mGraphics.getGraphics().clear();
+    _showingMeasurement = false;
+    mPath.clear();
+    mPathVertexGraphics.clear();
+    mPathSegmentGraphics.clear();
   }
 }
@@ -0,0 +1,122 @@
+package com.esri.apl.ea3d.event;
+
+import android.view.Choreographer;
+
+import com.esri.apl.ea3d.util.Easing;
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.mapping.view.Camera;
+import com.esri.arcgisruntime.mapping.view.SceneView;
+
+/**
+ * Orbits the scene camera around a point, paced by the display's frame clock.<p/>
+ * Heading is computed from the time elapsed since the orbit began, so speed doesn't depend on
+ * how many frames actually get drawn. Each frame rotates the current camera by the difference
+ * between where the orbit should be now and where it was last put, which keeps any zooming done
+ * mid-orbit. If the previous camera update hasn't finished, the frame is skipped and the next
+ * one catches up.<p/>
+ * Must be used on the UI thread.
+ */
+class OrbitAnimator {
+  private static final long NANOS_PER_SEC = 1000000000L;
+
+  private final SceneView mSceneView;
+  private final Choreographer mChoreographer = Choreographer.getInstance();
+
+  private double _periodSec = 20;
+  private boolean _clockwise = true;
+  private Easing _easing = Easing.LINEAR;
+
+  private Point mPivotPoint;
+  private boolean mRunning = false;
+  /** Frame time of the first frame; 0 until that frame arrives */
+  private long mStartFrameNanos;
+  /** Total degrees rotated so far this orbit */
+  private double mAppliedDegrees;
+  private ListenableFuture<Boolean> mPendingCameraUpdate;
+
+  OrbitAnimator(SceneView sceneView) {
+    this.mSceneView = sceneView;
+  }
+
+  /** Seconds for one full revolution */
+  double get_periodSec() {
+    return _periodSec;
+  }
+
+  void set_periodSec(double periodSec) {
+    if (!(periodSec > 0)) throw new IllegalArgumentException("Orbit period must be positive");
+    this._periodSec = periodSec;
+  }
+
+  /** Clockwise as seen from above (camera heading increases) */
+  boolean get_clockwise() {
+    return _clockwise;
+  }
+
+  void set_clockwise(boolean clockwise) {
+    this._clockwise = clockwise;
+  }
+
+  /** Easing applied within each revolution */
+  Easing get_easing() {
+    return _easing;
+  }
+
+  void set_easing(Easing easing) {
+    this._easing = (easing != null) ? easing : Easing.LINEAR;
+  }
+
+  boolean isRunning() {
+    return mRunning;
+  }
+
+  void start(Point pivotPoint) {
+    stop();
+    mPivotPoint = pivotPoint;
+    mStartFrameNanos = 0;
+    mAppliedDegrees = 0;
+    mPendingCameraUpdate = null;
+    mRunning = true;
+    mChoreographer.postFrameCallback(mFrameCallback);
+  }
+
+  void stop() {
+    if (!mRunning) return;
+    mRunning = false;
+    mChoreographer.removeFrameCallback(mFrameCallback);
+  }
+
+  /**
+   * Degrees the orbit should have turned after a given time
+   * @param elapsedSec seconds since the orbit began
+   * @return signed degrees; positive is clockwise
+   */
+  double degreesAt(double elapsedSec) {
+    double revolutions = elapsedSec / _periodSec;
+    double laps = Math.floor(revolutions);
+    double degrees = 360 * (laps + _easing.ease(revolutions - laps));
+    return _clockwise ? degrees : -degrees;
+  }
+
+  private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+    @Override
+    public void doFrame(long frameTimeNanos) {
+      if (!mRunning) return;
+      mChoreographer.postFrameCallback(this);
+
+      if (mStartFrameNanos == 0) {
+        mStartFrameNanos = frameTimeNanos;
+        return;
+      }
+      // Late frame: the last update is still being applied, so don't queue another behind it
+      if (mPendingCameraUpdate != null && !mPendingCameraUpdate.isDone()) return;
+
+      double target = degreesAt((double) (frameTimeNanos - mStartFrameNanos) / NANOS_PER_SEC);
+      Camera newCam = mSceneView.getCurrentViewpointCamera().rotateAround(
+          mPivotPoint, target - mAppliedDegrees, 0, 0);
+      mAppliedDegrees = target;
+      mPendingCameraUpdate = mSceneView.setViewpointCameraAsync(newCam, 0);
+    }
+  };
+}
@@ -10,12 +10,10 @@ import android.widget.Toast;
 
 import com.esri.apl.ea3d.MainActivity;
 import com.esri.apl.ea3d.R;
+import com.esri.apl.ea3d.util.Easing;
 import com.esri.apl.ea3d.util.GeometryUtils;
 import com.esri.arcgisruntime.concurrent.ListenableFuture;
-import com.esri.arcgisruntime.geometry.GeometryEngine;
 import com.esri.arcgisruntime.geometry.Point;
-import com.esri.arcgisruntime.geometry.SpatialReferences;
-import com.esri.arcgisruntime.mapping.view.Camera;
 import com.esri.arcgisruntime.mapping.view.CameraController;
 import com.esri.arcgisruntime.mapping.view.DefaultSceneViewOnTouchListener;
 import com.esri.arcgisruntime.mapping.view.Graphic;
@@ -25,23 +23,15 @@ import com.esri.arcgisruntime.mapping.view.SceneView;
 import com.esri.arcgisruntime.symbology.SceneSymbol;
 import com.esri.arcgisruntime.symbology.SimpleMarkerSceneSymbol;
 
-import java.util.Timer;
-import java.util.TimerTask;
-
 /** Use the Orbit camera controller to rotate around and around a point of interest */
-public class PivotLockTouchListener extends DefaultSceneViewOnTouchListener implements TouchListenerFinalizable {
+public class PivotLockTouchListener extends DefaultSceneViewOnTouchListener implements InteractionMode {
   private final static String TAG = "PivotLock";
   private static final double PIVOT_CYL_SYMBOL_RADIUS = 2;
   private static final double PIVOT_CYL_SYMBOL_HEIGHT = 250;
   private static final double PIVOT_PT_SYMBOL_RADIUS = 10;
 
-  // Orbit speed & angle variables
-  private static final int FRAME_RATE = 48; // Frames per second while orbiting
+  // Default time for one full orbit
   private static final long ORBIT_TIME_SEC = 20;
-  private static double ORBIT_DEGREES = 360;
-  private static double ORBIT_DEGREES_PER_SEC = ORBIT_DEGREES / ORBIT_TIME_SEC;
-  // This is really the only one of these constants we need; see startPivot().
-  private static double ORBIT_DEGREES_PER_FRAME = ORBIT_DEGREES_PER_SEC / FRAME_RATE;
 
   private boolean _isOrbiting = false;
 
@@ -63,8 +53,12 @@ public class PivotLockTouchListener extends DefaultSceneViewOnTouchListener impl
       SimpleMarkerSceneSymbol.Style.CYLINDER, Color.YELLOW, PIVOT_CYL_SYMBOL_RADIUS, PIVOT_CYL_SYMBOL_HEIGHT,
       PIVOT_CYL_SYMBOL_RADIUS, SceneSymbol.AnchorPosition.BOTTOM);
 
-  // Orbit animation timer
-  private Timer mOrbitTimer;
+  /** Drag points; only the newest is resolved to a map location */
+  private final ScreenLocationCoalescer mDragLocations;
+  private final TouchLatency mLatency = new TouchLatency("PivotLock");
+
+  // Orbit animation, paced by the display frame clock
+  private final OrbitAnimator mOrbitAnimator;
 
   // Only show help toast once per session
   private boolean _showHelp = true;
@@ -78,10 +72,47 @@ public class PivotLockTouchListener extends DefaultSceneViewOnTouchListener impl
     btnEndPivot.setOnClickListener(mOnPivotEndListener);
     this.mOriginalCameraController = sceneView.getCameraController();
 
-    sceneView.getGraphicsOverlays().add(mGraphics);
+    mDragLocations = new ScreenLocationCoalescer(sceneView, mOnDragLocation, mLatency);
+    mOrbitAnimator = new OrbitAnimator(sceneView);
+    mOrbitAnimator.set_periodSec(ORBIT_TIME_SEC);
+  }
+
+  /** Touch-to-result latency for this listener */
+  public TouchLatency get_latency() {
+    return mLatency;
+  }
+
+  /** Seconds for one full orbit around the pivot point */
+  public double get_orbitPeriodSec() {
+    return mOrbitAnimator.get_periodSec();
+  }
+
+  public void set_orbitPeriodSec(double orbitPeriodSec) {
+    mOrbitAnimator.set_periodSec(orbitPeriodSec);
+  }
+
+  /** Whether the camera orbits clockwise, seen from above */
+  public boolean get_orbitClockwise() {
+    return mOrbitAnimator.get_clockwise();
+  }
+
+  public void set_orbitClockwise(boolean orbitClockwise) {
+    mOrbitAnimator.set_clockwise(orbitClockwise);
   }
 
-  public void initialize() {
+  /** Speed profile within each orbit; {@link Easing#LINEAR} for constant speed */
+  public Easing get_orbitEasing() {
+    return mOrbitAnimator.get_easing();
+  }
+
+  public void set_orbitEasing(Easing orbitEasing) {
+    mOrbitAnimator.set_easing(orbitEasing);
+  }
+
+  @Override
+  public void enter() {
+    if (!mSceneView.getGraphicsOverlays().contains(mGraphics))
+      mSceneView.getGraphicsOverlays().add(mGraphics);
     if (_showHelp) {
       _showHelp = false;
       Toast toast = Toast.makeText(mSceneView.getContext(),
@@ -104,6 +135,7 @@ public class PivotLockTouchListener extends DefaultSceneViewOnTouchListener impl
     if (wasOrbiting) return true;
 
     // Get tap location
+    final long gestureNanos = TouchLatency.eventNanos(motionEvent);
     android.graphics.Point screenPoint = new android.graphics.Point();
     screenPoint.set((int)motionEvent.getX(), (int)motionEvent.getY());
 
@@ -112,13 +144,14 @@ public class PivotLockTouchListener extends DefaultSceneViewOnTouchListener impl
       @Override
       public void run() {
         if (lfGetLoc.isDone()) {
+          long locatedNanos = mLatency.located(gestureNanos);
           try {
             mPivotPoint = lfGetLoc.get();
-            Point ptPivotWM = (Point) GeometryEngine.project(mPivotPoint, SpatialReferences.getWebMercator());
+            Point ptPivotWM = GeometryUtils.toWebMercator(mPivotPoint);
 
             // Get camera distance from tap location, for proper camera placement when orbiting
             Point ptCam = mSceneView.getCurrentViewpointCamera().getLocation();
-            Point ptCamWM = (Point)GeometryEngine.project(ptCam, SpatialReferences.getWebMercator());
+            Point ptCamWM = GeometryUtils.toWebMercator(ptCam);
 
             mDist = GeometryUtils.distance(ptCamWM, ptPivotWM);
 
@@ -127,6 +160,7 @@ public class PivotLockTouchListener extends DefaultSceneViewOnTouchListener impl
             mGraphics.getGraphics().clear();
             Graphic g = new Graphic(mPivotPoint, mSymbolCylinder);
             mGraphics.getGraphics().add(g);
+            mLatency.updated(locatedNanos);
           } catch (Exception exc) {
             Log.e(TAG, "Exception getting location", exc);
           }
@@ -147,43 +181,35 @@ public class PivotLockTouchListener extends DefaultSceneViewOnTouchListener impl
   @Override
   public boolean onScroll(MotionEvent motionEventFrom, MotionEvent motionEventTo, float distanceX, float distanceY) {
     stopPivotAnimation();
-    // Get tap location
-
-    android.graphics.Point screenPoint = new android.graphics.Point();
-    screenPoint.set((int)motionEventTo.getX(), (int)motionEventTo.getY());
-
-    final ListenableFuture<Point> lfGetLoc = mSceneView.screenToLocationAsync(screenPoint);
-    lfGetLoc.addDoneListener(new Runnable() {
-      @Override
-      public void run() {
-        if (lfGetLoc.isDone()) {
-          try {
-            mPivotPoint = lfGetLoc.get();
-
-            if (!_isOrbiting) {
-              mGraphics.getGraphics().clear();
-              Graphic g = new Graphic(mPivotPoint, mSymbolPoint);
-              mGraphics.getGraphics().add(g);
-              Log.d(TAG, "Placed point");
-            }
-          } catch (Exception exc) {
-            Log.e(TAG, "Exception getting location", exc);
-          }
-        }
-      }
-    });
+    mDragLocations.request((int)motionEventTo.getX(), (int)motionEventTo.getY(),
+        TouchLatency.eventNanos(motionEventTo));
     return true;
   }
 
+  private final ScreenLocationCoalescer.OnLocationListener mOnDragLocation =
+      new ScreenLocationCoalescer.OnLocationListener() {
+    @Override
+    public void onLocation(Point location) {
+      mPivotPoint = location;
+
+      if (!_isOrbiting) {
+        mGraphics.getGraphics().clear();
+        Graphic g = new Graphic(mPivotPoint, mSymbolPoint);
+        mGraphics.getGraphics().add(g);
+        Log.d(TAG, "Placed point");
+      }
+    }
+  };
+
   /** When drag motion is released, begin the pivot operation */
   @Override
   public boolean onFling() {
     // Make a note of the current camera controller
-    Point ptPivotWM = (Point)GeometryEngine.project(mPivotPoint, SpatialReferences.getWebMercator());
+    Point ptPivotWM = GeometryUtils.toWebMercator(mPivotPoint);
 
     // Get camera distance from tap location
     Point ptCam = mSceneView.getCurrentViewpointCamera().getLocation();
-    Point ptCamWM = (Point)GeometryEngine.project(ptCam, SpatialReferences.getWebMercator());
+    Point ptCamWM = GeometryUtils.toWebMercator(ptCam);
 
     mDist = GeometryUtils.distance(ptCamWM, ptPivotWM);
 
@@ -203,17 +229,8 @@ public class PivotLockTouchListener extends DefaultSceneViewOnTouchListener impl
     Log.d(TAG, "Orbit dist: " + mDist);
     mSceneView.setCameraController(newController);
 
-    // Use a timer to move the view by the proper degrees every frame
-    TimerTask tt = new TimerTask() {
-      @Override
-      public void run() {
-        Camera newCam = mSceneView.getCurrentViewpointCamera().rotateAround(
-            mPivotPoint, ORBIT_DEGREES_PER_FRAME, 0, 0);
-        mSceneView.setViewpointCameraAsync(newCam, 0);
-      }
-    };
-    mOrbitTimer = new Timer();
-    mOrbitTimer.schedule(tt, 0, 1000/FRAME_RATE);
+    // Move the view by the degrees elapsed since the last rendered frame
+    mOrbitAnimator.start(mPivotPoint);
     _isOrbiting = true;
     mBtnEndPivot.setVisibility(View.VISIBLE);
   }
@@ -222,7 +239,7 @@ public class PivotLockTouchListener extends DefaultSceneViewOnTouchListener impl
    *  manual navigation.
    */
   private void stopPivotAnimation() {
-    if (mOrbitTimer != null) mOrbitTimer.cancel();
+    mOrbitAnimator.stop();
     _isOrbiting = false;
   }
 
@@ -236,9 +253,16 @@ public class PivotLockTouchListener extends DefaultSceneViewOnTouchListener impl
 
   @Override
   public void cleanup() {
+    mDragLocations.cancel();
     stopPivotAnimation();
     mGraphics.getGraphics().clear();
     mBtnEndPivot.setVisibility(View.INVISIBLE);
     mSceneView.setCameraController(mOriginalCameraController);
   }
+
+  @Override
+  public void exit() {
+    cleanup();
+    mSceneView.getGraphicsOverlays().remove(mGraphics);
+  }
 }
@@ -0,0 +1,102 @@
+package com.esri.apl.ea3d.event;
+
+import android.util.Log;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.mapping.view.SceneView;
+
+/**
+ * Latest-wins scheduler for {@link SceneView#screenToLocationAsync} during drag gestures.<p/>
+ * At most one request is in flight at a time. While one is running, newer screen points
+ * replace each other in a single pending slot, so only the newest is sent once the current
+ * request completes. Every request gets a sequence number, and a result is only delivered if
+ * nothing newer has been delivered already, so out-of-order completions are discarded.
+ * Delivered results are timed from the newest request's touch event to the location, and from
+ * there through the listener.
+ */
+class ScreenLocationCoalescer {
+  private static final String TAG = "LocationCoalescer";
+
+  /** Receives the map location of the newest screen point */
+  interface OnLocationListener {
+    void onLocation(Point location);
+  }
+
+  private final SceneView mSceneView;
+  private final OnLocationListener mListener;
+  private final TouchLatency mLatency;
+
+  private long mNextSequence = 0;
+  private long mLastDeliveredSequence = -1;
+  private boolean mInFlight = false;
+
+  private boolean mHasPending = false;
+  private int mPendingX, mPendingY;
+  private long mPendingSequence;
+  private long mPendingNanos;
+
+  ScreenLocationCoalescer(SceneView sceneView, OnLocationListener listener, TouchLatency latency) {
+    this.mSceneView = sceneView;
+    this.mListener = listener;
+    this.mLatency = latency;
+  }
+
+  /**
+   * Ask for the map location of a screen point, superseding any request not yet sent
+   * @param requestNanos when the touch event for the point happened; see {@link TouchLatency#eventNanos}
+   */
+  synchronized void request(int screenX, int screenY, long requestNanos) {
+    long sequence = mNextSequence++;
+    if (mInFlight) {
+      mHasPending = true;
+      mPendingX = screenX; mPendingY = screenY;
+      mPendingSequence = sequence;
+      mPendingNanos = requestNanos;
+    } else {
+      send(screenX, screenY, sequence, requestNanos);
+    }
+  }
+
+  /** Drop any pending request and ignore the result of the one in flight */
+  synchronized void cancel() {
+    mHasPending = false;
+    mLastDeliveredSequence = mNextSequence++;
+  }
+
+  private void send(int screenX, int screenY, final long sequence, final long requestNanos) {
+    mInFlight = true;
+    final ListenableFuture<Point> lfLoc = mSceneView.screenToLocationAsync(
+        new android.graphics.Point(screenX, screenY));
+    lfLoc.addDoneListener(new Runnable() {
+      @Override
+      public void run() {
+        Point location = null;
+        try {
+          if (!lfLoc.isCancelled()) location = lfLoc.get();
+        } catch (Exception exc) {
+          Log.e(TAG, "Exception getting location", exc);
+        }
+        onDone(sequence, requestNanos, location);
+      }
+    });
+  }
+
+  private void onDone(long sequence, long requestNanos, Point location) {
+    boolean deliver;
+    synchronized (this) {
+      mInFlight = false;
+      deliver = location != null && sequence > mLastDeliveredSequence;
+      if (deliver) mLastDeliveredSequence = sequence;
+      if (mHasPending) {
+        mHasPending = false;
+        send(mPendingX, mPendingY, mPendingSequence, mPendingNanos);
+      }
+    }
+    if (deliver) {
+      long locatedNanos = mLatency.located(requestNanos);
+      mListener.onLocation(location);
+      mLatency.updated(locatedNanos);
+    }
+  }
+}
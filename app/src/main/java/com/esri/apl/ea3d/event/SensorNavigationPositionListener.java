@@ -6,7 +6,11 @@ import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
 import android.util.Log;
+import android.view.Choreographer;
 
 import com.esri.apl.ea3d.MainActivity;
 import com.esri.arcgisruntime.mapping.view.Camera;
@@ -17,7 +21,10 @@ import com.esri.arcgisruntime.mapping.view.SceneView;
  * from the magnetometer/compass. This is best indoors or when lots of metal in the area
  * distorts the compass reading, causing bias and drift.<p/>
  * This could be made a function independent of the TouchListeners. For now, make it part
- * of a TouchListener and liberate it later if needed.
+ * of a TouchListener and liberate it later if needed.<p/>
+ * Sensor events arrive on a dedicated {@link HandlerThread}, where orientation is computed into
+ * preallocated buffers. The newest orientation is handed to the UI thread, which applies it to
+ * the scene at most once per rendered frame.
  */
 class SensorNavigationPositionListener implements SensorEventListener {
   private static final String TAG = "SensorNavListener";
@@ -39,6 +46,18 @@ class SensorNavigationPositionListener implements SensorEventListener {
   private final float[] mNewOrientationAngles = new float[] {Float.NaN, Float.NaN, Float.NaN};
 //  private final float[] mOldOrientationAngles = new float[] {Float.NaN, Float.NaN, Float.NaN};
 
+  // Sensor thread computes into mNewOrientationAngles, then publishes to mLatestOrientationAngles
+  // under mOrientationLock; the frame callback copies it to mFrameOrientationAngles to apply.
+  private final Object mOrientationLock = new Object();
+  private final float[] mLatestOrientationAngles = new float[3];
+  private final float[] mFrameOrientationAngles = new float[3];
+  private boolean mFramePending = false;
+  /** False once stopped, so a reading still in the sensor thread's queue can't post a frame */
+  private boolean mSensing = false;
+
+  private HandlerThread mSensorThread;
+  private Choreographer mChoreographer;
+
 
   public SensorNavigationPositionListener(SceneView sceneView, MainActivity parentActivity) {
     this.mSceneView = sceneView;
@@ -106,9 +125,16 @@ class SensorNavigationPositionListener implements SensorEventListener {
     mParentActivity.setCompassVisibility(false);
     mParentActivity.setRequestedOrientation(ActivityInfo.SCREEN_ORIENTATION_NOSENSOR);
 
+    // Called on the UI thread, so this is the UI thread's frame clock
+    mChoreographer = Choreographer.getInstance();
+    mSensorThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_DISPLAY);
+    mSensorThread.start();
+    synchronized (mOrientationLock) {
+      mSensing = true;
+    }
     mSensorManager.registerListener(this,
-        mSensorManager.getDefaultSensor(Sensor.TYPE_GAME_ROTATION_VECTOR), SENSOR_RATE);
-
+        mSensorManager.getDefaultSensor(Sensor.TYPE_GAME_ROTATION_VECTOR), SENSOR_RATE,
+        new Handler(mSensorThread.getLooper()));
   }
 
   /**
@@ -129,6 +155,15 @@ class SensorNavigationPositionListener implements SensorEventListener {
     mSceneView.setViewpointCameraAsync(cam, 1.0f);
 
     mSensorManager.unregisterListener(this);
+    if (mSensorThread != null) {
+      mSensorThread.quitSafely();
+      mSensorThread = null;
+    }
+    synchronized (mOrientationLock) {
+      mSensing = false;
+      if (mFramePending) mChoreographer.removeFrameCallback(mFrameCallback);
+      mFramePending = false;
+    }
   }
 
   /**
@@ -144,19 +179,40 @@ class SensorNavigationPositionListener implements SensorEventListener {
    */
   @Override
   public void onSensorChanged(SensorEvent event) {
-    if (!mSceneView.isNavigating()) {
-      System.arraycopy(event.values, 0,
-          mSensorReading, 0, mSensorReading.length);
-
-      // Get rotation matrix, which is needed to update orientation angles.
-      SensorManager.getRotationMatrixFromVector(mRotationMatrix, mSensorReading);
-
-      updateOrientationAnglesFromRotationMatrix();
-      updateSceneAbsolute();
-
-    } else Log.d(TAG, "Navigation canceled; already navigating");
+    // Runs on the sensor thread; nothing here allocates or touches the SceneView
+    System.arraycopy(event.values, 0,
+        mSensorReading, 0, mSensorReading.length);
+
+    // Get rotation matrix, which is needed to update orientation angles.
+    SensorManager.getRotationMatrixFromVector(mRotationMatrix, mSensorReading);
+
+    updateOrientationAnglesFromRotationMatrix();
+
+    synchronized (mOrientationLock) {
+      System.arraycopy(mNewOrientationAngles, 0,
+          mLatestOrientationAngles, 0, mLatestOrientationAngles.length);
+      // Readings arriving before the next frame just replace this one
+      if (mSensing && !mFramePending) {
+        mFramePending = true;
+        mChoreographer.postFrameCallback(mFrameCallback);
+      }
+    }
   }
 
+  /** Apply the newest sensor orientation to the scene, once per frame on the UI thread */
+  private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+    @Override
+    public void doFrame(long frameTimeNanos) {
+      synchronized (mOrientationLock) {
+        mFramePending = false;
+        System.arraycopy(mLatestOrientationAngles, 0,
+            mFrameOrientationAngles, 0, mFrameOrientationAngles.length);
+      }
+      if (!mSceneView.isNavigating()) updateSceneAbsolute();
+      else Log.d(TAG, "Navigation canceled; already navigating");
+    }
+  };
+
   // Compute the three orientation angles based on the most recent readings from
   // the device's accelerometer and magnetometer.
   private void updateOrientationAnglesFromRotationMatrix() {
@@ -174,7 +230,7 @@ class SensorNavigationPositionListener implements SensorEventListener {
   public void onAccuracyChanged(Sensor sensor, int accuracy) { /* Ignore; not much we can do here*/ }
 
   private void updateSceneAbsolute() {
-    double azimuth = Math.toDegrees(mNewOrientationAngles[0]);
+    double azimuth = Math.toDegrees(mFrameOrientationAngles[0]);
 
     // Figure out heading compensation for this session
     if (_needInitialSceneRecalibration) {
@@ -188,12 +244,9 @@ class SensorNavigationPositionListener implements SensorEventListener {
 
     azimuth += mHeadingCompensation;
     azimuth = (azimuth + 360) % 360;
-    double pitch = Math.toDegrees(mNewOrientationAngles[1]);
+    double pitch = Math.toDegrees(mFrameOrientationAngles[1]);
     pitch += 90;
-    double roll = Math.toDegrees(mNewOrientationAngles[2]);
-
-    Log.d(TAG, String.format("%f, %f, %f; Heading: %f, Pitch: %f, Roll: %f",
-        Math.toDegrees(mSensorReading[0]), mSensorReading[1], mSensorReading[2], azimuth, pitch, roll));
+    double roll = Math.toDegrees(mFrameOrientationAngles[2]);
 
     Camera newCam = mSceneView.getCurrentViewpointCamera().rotateTo(azimuth, pitch, roll);
     mSceneView.setViewpointCameraAsync(newCam, 0);
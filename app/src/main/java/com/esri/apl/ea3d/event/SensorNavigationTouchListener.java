@@ -12,7 +12,7 @@ import com.esri.arcgisruntime.mapping.view.SceneView;
  * can't be performed during the chaos of SensorNavigation mode.
  */
 public class SensorNavigationTouchListener extends DefaultSceneViewOnTouchListener
-    implements TouchListenerFinalizable {
+    implements InteractionMode {
   private SensorNavigationPositionListener mNavPosListener;
 
   public SensorNavigationTouchListener(SceneView sceneView, MainActivity mainActivity) {
@@ -32,12 +32,22 @@ public class SensorNavigationTouchListener extends DefaultSceneViewOnTouchListen
       stopSensor();
   }
 
+  @Override
+  public void enter() {
+    set_isActiveListener(true);
+  }
+
   @Override
   public void cleanup() {
     set_isActiveListener(false);
     mNavPosListener.set_needInitialSceneRecalibration(true);
   }
 
+  @Override
+  public void exit() {
+    cleanup();
+  }
+
   /**
    * Called when main activity resumes
    */
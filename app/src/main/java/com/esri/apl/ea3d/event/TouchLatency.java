@@ -0,0 +1,71 @@
+package com.esri.apl.ea3d.event;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+import com.esri.apl.ea3d.util.LatencyHistogram;
+
+import java.io.PrintWriter;
+
+/**
+ * Touch-to-result latency for one touch listener, in two stages: from the touch event until
+ * {@code screenToLocationAsync} completes, and from then until the listener has updated its
+ * analysis or graphics. Stamps are {@link System#nanoTime()} readings; see {@link #eventNanos}
+ * for where a gesture starts.
+ */
+public class TouchLatency {
+  private final String mName;
+  private final LatencyHistogram mLocate = new LatencyHistogram();
+  private final LatencyHistogram mUpdate = new LatencyHistogram();
+
+  TouchLatency(String name) {
+    this.mName = name;
+  }
+
+  private static final long NANOS_PER_MILLI = 1000000L;
+
+  /**
+   * When a touch event happened, as a {@link System#nanoTime()} reading. Event times are
+   * {@link SystemClock#uptimeMillis()} readings, so this counts the time the event spent being
+   * delivered and, for a confirmed tap, the double-tap timeout, which the user waited through too.
+   */
+  static long eventNanos(MotionEvent event) {
+    long ageMillis = SystemClock.uptimeMillis() - event.getEventTime();
+    return System.nanoTime() - Math.max(0, ageMillis) * NANOS_PER_MILLI;
+  }
+
+  public String get_name() {
+    return mName;
+  }
+
+  public LatencyHistogram get_locate() {
+    return mLocate;
+  }
+
+  public LatencyHistogram get_update() {
+    return mUpdate;
+  }
+
+  /** Record the locate stage
+   * @return when it ended, to pass to {@link #updated} */
+  long located(long gestureNanos) {
+    long now = System.nanoTime();
+    mLocate.record(now - gestureNanos);
+    return now;
+  }
+
+  /** Record the update stage */
+  void updated(long locatedNanos) {
+    mUpdate.recordSince(locatedNanos);
+  }
+
+  public void reset() {
+    mLocate.reset();
+    mUpdate.reset();
+  }
+
+  public void dump(PrintWriter writer, String prefix) {
+    mLocate.dump(writer, prefix, mName + " gesture->location");
+    mUpdate.dump(writer, prefix, mName + " location->update");
+  }
+}
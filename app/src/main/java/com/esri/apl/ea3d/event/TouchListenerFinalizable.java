@@ -1,5 +0,0 @@
-package com.esri.apl.ea3d.event;
-
-interface TouchListenerFinalizable {
-  void cleanup();
-}
@@ -0,0 +1,93 @@
+package com.esri.apl.ea3d.event;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Passes the viewshed distance from the distance slider straight to its listeners.<p/>
+ * While the slider is being dragged, {@link #publish} delivers at most one update per throttle
+ * interval, always with the newest value. {@link #commit} delivers the final value at once.
+ * Must be used on the UI thread.
+ */
+public class ViewshedDistanceChannel {
+  private static final long DEFAULT_THROTTLE_MS = 150;
+
+  public interface OnDistanceChangeListener {
+    /**
+     * @param distanceM new viewshed distance in meters
+     * @param isFinal false for live updates while the user is still choosing
+     */
+    void onDistanceChanged(int distanceM, boolean isFinal);
+  }
+
+  private final Handler mHandler = new Handler(Looper.getMainLooper());
+  private final List<OnDistanceChangeListener> mListeners = new ArrayList<>();
+  private final long mThrottleMs;
+
+  private int _distance;
+  private long mLastDeliveredAt = 0;
+  private boolean mDeliveryPending = false;
+
+  public ViewshedDistanceChannel(int initialDistance) {
+    this(initialDistance, DEFAULT_THROTTLE_MS);
+  }
+
+  public ViewshedDistanceChannel(int initialDistance, long throttleMs) {
+    this._distance = initialDistance;
+    this.mThrottleMs = throttleMs;
+  }
+
+  /** The newest distance published, whether or not it's been delivered yet */
+  public int get_distance() {
+    return _distance;
+  }
+
+  public void addListener(OnDistanceChangeListener listener) {
+    if (!mListeners.contains(listener)) mListeners.add(listener);
+  }
+
+  public void removeListener(OnDistanceChangeListener listener) {
+    mListeners.remove(listener);
+  }
+
+  /** Live update while the user is still choosing; throttled */
+  public void publish(int distance) {
+    if (distance == _distance) return;
+    _distance = distance;
+    if (mDeliveryPending) return; // It'll pick up the new value
+
+    long wait = mLastDeliveredAt + mThrottleMs - SystemClock.uptimeMillis();
+    if (wait <= 0) {
+      deliver(false);
+    } else {
+      mDeliveryPending = true;
+      mHandler.postDelayed(mDeliverLive, wait);
+    }
+  }
+
+  /** Final value; delivered right away, superseding any pending live update */
+  public void commit(int distance) {
+    _distance = distance;
+    mHandler.removeCallbacks(mDeliverLive);
+    mDeliveryPending = false;
+    deliver(true);
+  }
+
+  private final Runnable mDeliverLive = new Runnable() {
+    @Override
+    public void run() {
+      mDeliveryPending = false;
+      deliver(false);
+    }
+  };
+
+  private void deliver(boolean isFinal) {
+    mLastDeliveredAt = SystemClock.uptimeMillis();
+    for (OnDistanceChangeListener listener : new ArrayList<>(mListeners))
+      listener.onDistanceChanged(_distance, isFinal);
+  }
+}
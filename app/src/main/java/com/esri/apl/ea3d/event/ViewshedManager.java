@@ -0,0 +1,116 @@
+package com.esri.apl.ea3d.event;
+
+import android.util.Log;
+
+import com.esri.arcgisruntime.geoanalysis.LocationViewshed;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.mapping.view.AnalysisOverlay;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps a bounded pool of {@link LocationViewshed}s in an {@link AnalysisOverlay}, one per
+ * observer position.<p/>
+ * Viewsheds are never removed from the overlay once added; released ones are hidden and kept for
+ * reuse, so placing a new observer normally doesn't construct a new analysis. When the budget
+ * of live observers is reached, the least recently used observer is moved to the new position.
+ * Must be used on the UI thread.
+ */
+class ViewshedManager {
+  private static final String TAG = "ViewshedManager";
+
+  // Each viewshed covers a full circle horizontally; see LocationViewshed constructor
+  private static final double HEADING = 0;
+  private static final double PITCH = 90;
+  private static final double HORIZONTAL_ANGLE = 360;
+  private static final double VERTICAL_ANGLE = 120;
+  private static final double MIN_DISTANCE = 0;
+
+  private final AnalysisOverlay mOverlay;
+  private int _maxObservers;
+
+  /** Visible viewsheds, least recently used first */
+  private final List<LocationViewshed> mActive = new ArrayList<>();
+  /** Hidden viewsheds still in the overlay, ready for reuse */
+  private final Deque<LocationViewshed> mFree = new ArrayDeque<>();
+
+  ViewshedManager(AnalysisOverlay overlay, int maxObservers) {
+    this.mOverlay = overlay;
+    set_maxObservers(maxObservers);
+  }
+
+  int get_maxObservers() {
+    return _maxObservers;
+  }
+
+  /** Change the observer budget, evicting the least recently used observers beyond it */
+  void set_maxObservers(int maxObservers) {
+    if (maxObservers < 1) throw new IllegalArgumentException("Need room for at least one observer");
+    this._maxObservers = maxObservers;
+    while (mActive.size() > maxObservers) release(mActive.get(0));
+    // Pooled instances beyond the budget would never be reused
+    while (mActive.size() + mFree.size() > maxObservers)
+      mOverlay.getAnalyses().remove(mFree.pop());
+  }
+
+  int size() {
+    return mActive.size();
+  }
+
+  /** The most recently placed or moved observer, or null if there are none */
+  LocationViewshed current() {
+    return mActive.isEmpty() ? null : mActive.get(mActive.size() - 1);
+  }
+
+  /**
+   * Show a viewshed for a new observer. Reuses a hidden viewshed if there is one, or the least
+   * recently used observer if the budget is full.
+   */
+  LocationViewshed add(Point observer, double maxDistance) {
+    LocationViewshed lv;
+    if (!mFree.isEmpty()) {
+      lv = mFree.pop();
+    } else if (mActive.size() >= _maxObservers) {
+      lv = mActive.remove(0);
+      Log.d(TAG, "Budget of " + _maxObservers + " reached; reusing oldest observer");
+    } else {
+      lv = new LocationViewshed(observer, HEADING, PITCH,
+          HORIZONTAL_ANGLE, VERTICAL_ANGLE, MIN_DISTANCE, maxDistance);
+      mOverlay.getAnalyses().add(lv);
+    }
+    lv.setLocation(observer);
+    lv.setMaxDistance(maxDistance);
+    lv.setVisible(true);
+    mActive.add(lv);
+    return lv;
+  }
+
+  /** Move the current observer, or add one if there are none */
+  LocationViewshed moveCurrent(Point observer, double maxDistance) {
+    LocationViewshed lv = current();
+    if (lv == null) return add(observer, maxDistance);
+    lv.setLocation(observer);
+    lv.setMaxDistance(maxDistance);
+    return lv;
+  }
+
+  /** Apply a new viewing distance to every observer */
+  void setMaxDistance(double maxDistance) {
+    for (LocationViewshed lv : mActive) lv.setMaxDistance(maxDistance);
+  }
+
+  /** Hide an observer's viewshed and return it to the pool */
+  void release(LocationViewshed lv) {
+    if (!mActive.remove(lv)) return;
+    lv.setVisible(false);
+    mFree.push(lv);
+  }
+
+  /** Hide all observers, keeping their viewsheds for reuse */
+  void clear() {
+    while (!mActive.isEmpty()) release(mActive.get(mActive.size() - 1));
+  }
+}
@@ -1,8 +1,10 @@
 package com.esri.apl.ea3d.event;
 
 import android.content.Context;
-import android.content.SharedPreferences;
-import android.preference.PreferenceManager;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.design.widget.FloatingActionButton;
 import android.support.v7.widget.AppCompatImageView;
 import android.util.Log;
@@ -10,6 +12,12 @@ import android.view.MotionEvent;
 import android.view.View;
 
 import com.esri.apl.ea3d.R;
+import com.esri.apl.ea3d.analysis.Heightfield;
+import com.esri.apl.ea3d.analysis.RadialViewshed;
+import com.esri.apl.ea3d.analysis.ViewshedRaster;
+import com.esri.apl.ea3d.util.GeometryUtils;
+import com.esri.apl.ea3d.util.MessageUtils;
+import com.esri.apl.ea3d.util.Projection;
 import com.esri.arcgisruntime.ArcGISRuntimeException;
 import com.esri.arcgisruntime.concurrent.ListenableFuture;
 import com.esri.arcgisruntime.geoanalysis.LocationViewshed;
@@ -19,27 +27,57 @@ import com.esri.arcgisruntime.mapping.view.Camera;
 import com.esri.arcgisruntime.mapping.view.DefaultSceneViewOnTouchListener;
 import com.esri.arcgisruntime.mapping.view.SceneView;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Perform viewshed using tap or scroll location.
- * To avoid doing viewsheds while this listener isn't active, this assumes: <ul>
- *   <li>Shared preference pref_viewshed_dist won't be changed programmatically</li>
- *   <li>Viewshed distance slider won't be visible and changeable while this touch listener is inactive</li>
- * </ul>
+ * Perform viewshed using tap or scroll location. Each tap adds an observer, up to a budget after
+ * which the oldest is reused; dragging moves the most recent observer.<p/>
+ * Each viewshed first appears at short range and then grows in steps to the requested distance,
+ * so there's feedback without waiting on a full-range analysis.
+ * To avoid doing viewsheds while this listener isn't active, this assumes the viewshed distance
+ * slider won't be visible and changeable while this touch listener is inactive.<p/>
+ * If a Web Mercator {@link Heightfield} is set, each new observer and each final distance is also
+ * run through the CPU {@link RadialViewshed}, and its visible-area statistics and bitmap are
+ * written to the app's external files directory.
  */
-public class ViewshedTouchListener extends DefaultSceneViewOnTouchListener implements TouchListenerFinalizable {
+public class ViewshedTouchListener extends DefaultSceneViewOnTouchListener implements InteractionMode {
   private static final String TAG = "ViewshedListener";
 
+  // Progressive refinement: start distance, growth factor per step, and time between steps
+  private static final double REFINE_START_M = 200;
+  private static final double REFINE_GROWTH = 2;
+  private static final long REFINE_STEP_MS = 150;
+
+  // Exported visibility bitmaps: visible cells green and the rest red, like the SDK's viewshed
+  private static final int RASTER_VISIBLE_COLOR = Color.argb(128, 0, 255, 0);
+  private static final int RASTER_HIDDEN_COLOR = Color.argb(128, 255, 0, 0);
+
   private SceneView mSceneView;
   private FloatingActionButton mBtnZoomToViewshed, mBtnReturnToCamera;
   private AppCompatImageView mNavModeIndicator;
 
   private AnalysisOverlay mAnalyses = new AnalysisOverlay();
 
-  private LocationViewshed mLv1;
+  private final ViewshedManager mViewsheds;
   private Point mViewshedPoint;
 
+  private final ViewshedDistanceChannel mDistanceChannel;
+
+  private final Handler mRefineHandler = new Handler(Looper.getMainLooper());
+  /** Viewshed being grown, or null to grow all of them */
+  private LocationViewshed mRefineViewshed;
+  private double mRefineDistance;
+  private int mRefineTarget;
+  private boolean mRefining = false;
+
   /** Make a note of where we were when we zoomed into the viewshed result */
   private Camera mObserverCamera;
   private Camera mViewshedOriginCamera;
@@ -52,11 +90,34 @@ public class ViewshedTouchListener extends DefaultSceneViewOnTouchListener imple
    *  False: move the viewshed */
   private final static AtomicBoolean mScrollModePanView = new AtomicBoolean(false);
 
+  /** Drag points; only the newest is resolved to a map location */
+  private final ScreenLocationCoalescer mDragLocations;
+  private final TouchLatency mLatency = new TouchLatency("Viewshed");
+
+  // CPU viewshed, run alongside the SDK's while a heightfield is set
+  private Heightfield mHeightfield;
+  /** Writes raster results to disk */
+  private final ExecutorService mBackgroundExecutor;
+  /** Runs each raster computation, which waits on its sectors running on the workers */
+  private final ExecutorService mCoordinator;
+  private final ExecutorService mWorkers;
+
+  /**
+   * @param backgroundExecutor writes CPU viewshed results
+   * @param coordinator runs each CPU viewshed and waits on its sectors
+   * @param workers runs each CPU viewshed's sectors in parallel
+   */
   public ViewshedTouchListener(SceneView sceneView, FloatingActionButton btnZoomToViewshed,
-                               FloatingActionButton btnReturnToCamera, AppCompatImageView navModeIndicator) {
+                               FloatingActionButton btnReturnToCamera, AppCompatImageView navModeIndicator,
+                               ViewshedDistanceChannel distanceChannel, ExecutorService backgroundExecutor,
+                               ExecutorService coordinator, ExecutorService workers) {
     super(sceneView);
     this.mSceneView = sceneView;
-    mSceneView.getAnalysisOverlays().add(mAnalyses);
+    this.mBackgroundExecutor = backgroundExecutor;
+    this.mCoordinator = coordinator;
+    this.mWorkers = workers;
+    mViewsheds = new ViewshedManager(mAnalyses,
+        sceneView.getContext().getResources().getInteger(R.integer.setting_max_viewshed_observers));
 
     this.mBtnZoomToViewshed = btnZoomToViewshed;
     mBtnZoomToViewshed.setOnClickListener(mZoomToViewshedClickListener);
@@ -64,10 +125,16 @@ public class ViewshedTouchListener extends DefaultSceneViewOnTouchListener imple
     mBtnReturnToCamera.setOnClickListener(mReturnToCameraClickListener);
 
     this.mNavModeIndicator = navModeIndicator;
+    mDragLocations = new ScreenLocationCoalescer(sceneView, new ScreenLocationCoalescer.OnLocationListener() {
+      @Override
+      public void onLocation(Point location) {
+        setViewshedPointAndCompute(location, false);
+      }
+    }, mLatency);
 
-    /* Listen to shared preferences changing when the user changes viewshed dist slider */
-    SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mSceneView.getContext());
-    prefs.registerOnSharedPreferenceChangeListener(onPrefsChanged);
+    /* Listen to the distance changing when the user moves the viewshed dist slider */
+    this.mDistanceChannel = distanceChannel;
+    distanceChannel.addListener(mOnDistanceChanged);
   }
 
   @Override
@@ -77,26 +144,46 @@ public class ViewshedTouchListener extends DefaultSceneViewOnTouchListener imple
     return true;
   }
 
+  /** Touch-to-result latency for this listener */
+  public TouchLatency get_latency() {
+    return mLatency;
+  }
+
+  public Heightfield get_heightfield() {
+    return mHeightfield;
+  }
+
+  /** @param heightfield Web Mercator elevation grid for CPU viewsheds, or null for none */
+  public void set_heightfield(Heightfield heightfield) {
+    this.mHeightfield = heightfield;
+  }
+
+  /** Most observers shown at once */
+  public int get_maxObservers() {
+    return mViewsheds.get_maxObservers();
+  }
+
+  public void set_maxObservers(int maxObservers) {
+    mViewsheds.set_maxObservers(maxObservers);
+  }
+
   /**
-   * Start the viewshed analysis by finding where on the screen the user tapped
+   * Start the viewshed analysis for a new observer by finding where on the screen the user tapped
    * @param motionEvent Standard screen tap event containing screen point
    */
   private void findViewshedsFromScreenPoint(MotionEvent motionEvent) {
+    final long gestureNanos = TouchLatency.eventNanos(motionEvent);
     android.graphics.Point screenPoint = new android.graphics.Point();
     screenPoint.set((int) motionEvent.getX(), (int) motionEvent.getY());
 
-    final int observerHeight = mSceneView.getContext().getResources()
-        .getInteger(R.integer.geoanalysis_observer_height_m);
-
     final ListenableFuture<Point> lfDone = mSceneView.screenToLocationAsync(screenPoint);
     lfDone.addDoneListener(() -> {
       if (lfDone.isDone()) {
+        long locatedNanos = mLatency.located(gestureNanos);
         try {
-          final Point pt = lfDone.get();
-          mViewshedPoint = new Point(pt.getX(), pt.getY(), pt.getZ() + observerHeight,
-                  pt.getSpatialReference());
-          // Start the second part of the analysis now that we know where on earth they tapped
-          computeViewshedsFromGeoPoint();
+          setViewshedPointAndCompute(lfDone.get(), true);
+          mLatency.updated(locatedNanos);
+          exportVisibilityRaster();
         } catch (Exception exc) {
           Log.e(TAG, "Exception: " + exc.getMessage());
           exc.printStackTrace();
@@ -105,34 +192,130 @@ public class ViewshedTouchListener extends DefaultSceneViewOnTouchListener imple
     });
   }
 
-  /** Perform the viewshed analyses. There are three to make a complete circle.
-   * <b>Note:</b> Don't create a new analysis for each tap; reuse the old ones where possible.
+  /**
+   * Compute a visibility raster with the CPU {@link RadialViewshed} engine, for numbers the SDK's
+   * render-only viewshed can't give. Blocks until done, so call it off the UI thread.
+   * @param heightfield Web Mercator elevation grid around the observer
+   * @param observer observer eye location
+   * @param distance how far to look, in meters
+   * @param executor runs the sweep's sectors in parallel; null to run them on this thread
    */
-  private void computeViewshedsFromGeoPoint() {
-    Context ctx = mSceneView.getContext();
+  public static ViewshedRaster computeVisibilityRaster(Heightfield heightfield, Point observer,
+                                                       double distance, ExecutorService executor)
+      throws InterruptedException {
+    Point obsWM = GeometryUtils.toWebMercator(observer);
+    int sectors = 2 * Runtime.getRuntime().availableProcessors();
+    return new RadialViewshed(heightfield).compute(obsWM.getX(), obsWM.getY(), obsWM.getZ(),
+        distance, 0, Projection.webMercatorGroundScale(obsWM.getY()), executor, sectors);
+  }
 
-    // If analysis size stored in prefs, use it; otherwise use the default
-    int iDist = PreferenceManager.getDefaultSharedPreferences(ctx)
-        .getInt(ctx.getString(R.string.pref_viewshed_dist),
-            ctx.getResources().getInteger(R.integer.setting_initial_viewshed_dist_m));
+  /**
+   * With a heightfield set, compute the current observer's visibility raster on the coordinator,
+   * write its statistics (CSV) and bitmap (PNG) in the background, and tell the user the visible area
+   */
+  private void exportVisibilityRaster() {
+    final Heightfield heightfield = mHeightfield;
+    final Point observer = mViewshedPoint;
+    if (heightfield == null || observer == null) return;
+    final int distance = mDistanceChannel.get_distance();
+    final Context ctx = mSceneView.getContext();
+    File dir = ctx.getExternalFilesDir("viewsheds");
+    if (dir == null) dir = new File(ctx.getFilesDir(), "viewsheds");
+    final String baseName = "viewshed-" + System.currentTimeMillis();
+    final File dirOut = dir;
+
+    mCoordinator.execute(new Runnable() {
+      @Override
+      public void run() {
+        final ViewshedRaster raster;
+        try {
+          raster = computeVisibilityRaster(heightfield, observer, distance, mWorkers);
+        } catch (InterruptedException e) {
+          Log.w(TAG, "Viewshed raster interrupted");
+          return;
+        }
+        if (raster.get_cellsInRange() == 0) {
+          showMessage(ctx, ctx.getString(R.string.err_viewshed_off_terrain));
+          return;
+        }
+        final String summary = ctx.getString(R.string.msg_viewshed_summary,
+            raster.get_visibleArea() / 1e6, raster.get_visibleFraction() * 100, distance);
+        try {
+          mBackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+              try {
+                saveRaster(raster, new File(dirOut, baseName + ".csv"), new File(dirOut, baseName + ".png"));
+                showMessage(ctx, summary + "\n" + baseName);
+              } catch (IOException e) {
+                Log.e(TAG, "Couldn't save viewshed raster", e);
+                showMessage(ctx, summary + "\n"
+                    + ctx.getString(R.string.err_viewshed_export, e.getLocalizedMessage()));
+              }
+            }
+          });
+        } catch (RejectedExecutionException e) {
+          Log.w(TAG, "Shutting down; viewshed raster not saved");
+        }
+      }
+    });
+  }
+
+  /** Show a toast from any thread */
+  private void showMessage(final Context ctx, final String message) {
+    mSceneView.post(new Runnable() {
+      @Override
+      public void run() {
+        MessageUtils.showToast(ctx, message);
+      }
+    });
+  }
+
+  private static void saveRaster(ViewshedRaster raster, File csvFile, File pngFile) throws IOException {
+    if (!csvFile.getParentFile().isDirectory() && !csvFile.getParentFile().mkdirs())
+      throw new IOException("Couldn't create " + csvFile.getParent());
+    try (Writer writer = new FileWriter(csvFile)) {
+      raster.writeCsv(writer);
+    }
+    int size = raster.get_size();
+    Bitmap bitmap = Bitmap.createBitmap(raster.toPixels(RASTER_VISIBLE_COLOR, RASTER_HIDDEN_COLOR),
+        size, size, Bitmap.Config.ARGB_8888);
+    try (OutputStream out = new FileOutputStream(pngFile)) {
+      if (!bitmap.compress(Bitmap.CompressFormat.PNG, 100, out))
+        throw new IOException("Couldn't encode " + pngFile.getName());
+    } finally {
+      bitmap.recycle();
+    }
+  }
+
+  /** Raise a ground location to observer eye height and run the viewshed from there
+   * @param newObserver Add an observer, rather than moving the current one
+   */
+  private void setViewshedPointAndCompute(Point pt, boolean newObserver) {
+    final int observerHeight = mSceneView.getContext().getResources()
+        .getInteger(R.integer.geoanalysis_observer_height_m);
+    mViewshedPoint = new Point(pt.getX(), pt.getY(), pt.getZ() + observerHeight,
+        pt.getSpatialReference());
+    // Start the second part of the analysis now that we know where on earth they tapped
+    computeViewshedsFromGeoPoint(newObserver);
+  }
+
+  /** Perform the viewshed analysis for the current observer point.
+   * <b>Note:</b> Don't create a new analysis for each tap; the manager reuses old ones.
+   * @param newObserver Add an observer, rather than moving the current one
+   */
+  private void computeViewshedsFromGeoPoint(boolean newObserver) {
+    int iDist = mDistanceChannel.get_distance();
+    double startDist = Math.min(REFINE_START_M, iDist);
 
     // Don't try another if the first one's still running
     if (mCurrentlyProcessing.get()) return;
     mCurrentlyProcessing.set(true);
     try {
-      // Currently each viewshed is restricted to a 120-degree angle, so do three for
-      // a complete circle.
-      if (mLv1 == null) {
-        mLv1 = new LocationViewshed(mViewshedPoint, 0, 90, 360, 120, 0, iDist);
-      }
-      else {
-        mLv1.setLocation(mViewshedPoint);
-        mLv1.setMaxDistance(iDist);
-      }
-      if (!mAnalyses.getAnalyses().contains(mLv1)) {
-        mAnalyses.getAnalyses().add(mLv1);
-        Log.d(TAG, "added analysis overlay");
-      }
+      LocationViewshed lv = newObserver
+          ? mViewsheds.add(mViewshedPoint, startDist)
+          : mViewsheds.moveCurrent(mViewshedPoint, startDist);
+      startRefinement(lv, startDist, iDist);
 
       mViewshedOriginCamera = new Camera(mViewshedPoint, mSceneView.getCurrentViewpointCamera().getHeading(), 100, 0);
       mBtnReturnToCamera.setVisibility(View.INVISIBLE);
@@ -156,7 +339,8 @@ public class ViewshedTouchListener extends DefaultSceneViewOnTouchListener imple
       if (get_panEnabled())
         super.onScroll(motionEventFrom, motionEventTo, distanceX, distanceY);
       else // Viewshed mode? Create new viewsheds.
-        findViewshedsFromScreenPoint(motionEventTo);
+        mDragLocations.request((int) motionEventTo.getX(), (int) motionEventTo.getY(),
+            TouchLatency.eventNanos(motionEventTo));
     }
     return true;
   }
@@ -205,28 +389,82 @@ public class ViewshedTouchListener extends DefaultSceneViewOnTouchListener imple
     }
   };
 
-  private SharedPreferences.OnSharedPreferenceChangeListener onPrefsChanged = new SharedPreferences.OnSharedPreferenceChangeListener() {
+  private ViewshedDistanceChannel.OnDistanceChangeListener mOnDistanceChanged =
+      new ViewshedDistanceChannel.OnDistanceChangeListener() {
     @Override
-    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String s) {
-      Context ctx = mSceneView.getContext();
-
-      // Make sure it was the viewshed pref that changed and that there exists an analysis point
-      if  (s.equals(ctx.getString(R.string.pref_viewshed_dist))
-        && mViewshedPoint != null) {
-        computeViewshedsFromGeoPoint();
-        Log.d(TAG, ctx.getString(R.string.viewshed_dist_label,
-            sharedPreferences.getInt(
-                s, ctx.getResources().getInteger(R.integer.setting_initial_viewshed_dist_m))));
-      }
+    public void onDistanceChanged(int distanceM, boolean isFinal) {
+      // Make sure there exists an analysis point
+      LocationViewshed current = mViewsheds.current();
+      if (mViewshedPoint == null || current == null) return;
+
+      // Shrinking is cheap, so only grow progressively from where we are now
+      startRefinement(null, Math.min(current.getMaxDistance(), distanceM), distanceM);
+      Log.d(TAG, "Viewshed distance " + distanceM + (isFinal ? " (final)" : ""));
+      if (isFinal) exportVisibilityRaster();
+    }
+  };
+
+  /**
+   * Show a viewshed at a short distance now, then grow it in steps to the full distance.
+   * Any refinement already under way is finished at its full distance first.
+   * @param lv Viewshed to grow, or null for all observers
+   * @param startDistance Distance to show now
+   * @param targetDistance Distance to end up at
+   */
+  private void startRefinement(LocationViewshed lv, double startDistance, int targetDistance) {
+    if (mRefining) {
+      mRefineHandler.removeCallbacks(mRefineStep);
+      if (mRefineViewshed != lv) applyRefineDistance(mRefineTarget);
+    }
+    mRefineViewshed = lv;
+    mRefineTarget = targetDistance;
+    mRefineDistance = Math.min(startDistance, targetDistance);
+    applyRefineDistance(mRefineDistance);
+
+    mRefining = mRefineDistance < mRefineTarget;
+    if (mRefining) mRefineHandler.postDelayed(mRefineStep, REFINE_STEP_MS);
+  }
+
+  private final Runnable mRefineStep = new Runnable() {
+    @Override
+    public void run() {
+      mRefineDistance = Math.min(Math.max(mRefineDistance, 1) * REFINE_GROWTH, mRefineTarget);
+      applyRefineDistance(mRefineDistance);
+      mRefining = mRefineDistance < mRefineTarget;
+      if (mRefining) mRefineHandler.postDelayed(this, REFINE_STEP_MS);
     }
   };
 
+  private void applyRefineDistance(double distance) {
+    if (mRefineViewshed == null) mViewsheds.setMaxDistance(distance);
+    else mRefineViewshed.setMaxDistance(distance);
+  }
+
+  private void stopRefinement() {
+    mRefineHandler.removeCallbacks(mRefineStep);
+    mRefining = false;
+    mRefineViewshed = null;
+  }
+
+  @Override
+  public void enter() {
+    if (!mSceneView.getAnalysisOverlays().contains(mAnalyses))
+      mSceneView.getAnalysisOverlays().add(mAnalyses);
+  }
 
   @Override
   public void cleanup() {
-    mAnalyses.getAnalyses().clear();
-    mLv1 = null;
+    mDragLocations.cancel();
+    stopRefinement();
+    mViewsheds.clear();
+    mViewshedPoint = null;
     mBtnReturnToCamera.setVisibility(View.INVISIBLE);
     mBtnZoomToViewshed.setVisibility(View.INVISIBLE);
   }
+
+  @Override
+  public void exit() {
+    cleanup();
+    mSceneView.getAnalysisOverlays().remove(mAnalyses);
+  }
 }
@@ -0,0 +1,129 @@
+package com.esri.apl.ea3d.model;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Plain-Java description of a scene camera as stored in webscene JSON. Holds only primitives,
+ * so it can be parsed, cached and compared without touching the (native-backed) SDK
+ * geometry classes. Use CameraSerialization to turn it into an SDK Camera.
+ */
+public class CameraSpec {
+  public static final int DEFAULT_WKID = 4326;
+
+  private final double _x, _y, _z;
+  private final int _wkid;
+  private final double _heading, _pitch, _roll;
+
+  public CameraSpec(double x, double y, double z, int wkid, double heading, double pitch, double roll) {
+    this._x = x; this._y = y; this._z = z;
+    this._wkid = wkid;
+    this._heading = heading; this._pitch = pitch; this._roll = roll;
+  }
+
+  /** Parse a webscene viewpoint.camera object from a Gson tree */
+  public static CameraSpec fromJSON(JsonObject jsonCamera) {
+    JsonObject position = jsonCamera.getAsJsonObject("position");
+    JsonElement z = position.get("z");
+    int wkid = DEFAULT_WKID;
+    JsonObject sr = position.getAsJsonObject("spatialReference");
+    if (sr != null && sr.has("wkid")) wkid = sr.get("wkid").getAsInt();
+    return new CameraSpec(
+        position.get("x").getAsDouble(), position.get("y").getAsDouble(),
+        (z != null && !z.isJsonNull()) ? z.getAsDouble() : 0d,
+        wkid,
+        jsonCamera.get("heading").getAsDouble(), jsonCamera.get("tilt").getAsDouble(), 0d);
+  }
+
+  /** Parse a webscene viewpoint.camera object from ArcGISScene.getUnsupportedJson() values */
+  public static CameraSpec fromUnsupportedJSON(Map<String, Object> camera) {
+    double fPitch = (double)camera.get("tilt");
+    double fHeading = (double)camera.get("heading");
+    Map<String, Object> oPoint = (Map<String, Object>)camera.get("position");
+    double x = (double)oPoint.get("x"); double y = (double)oPoint.get("y");
+    Object z = oPoint.get("z");
+    Map<String, Object> sr = (Map<String, Object>)oPoint.get("spatialReference");
+    double wkid = (sr != null && sr.get("wkid") != null) ? (double)sr.get("wkid") : DEFAULT_WKID;
+    return new CameraSpec(x, y, (z != null) ? (double)z : 0d, (int)wkid, fHeading, fPitch, 0d);
+  }
+
+  /** Stream a webscene viewpoint.camera object; the reader must be positioned at its start */
+  public static CameraSpec fromJsonReader(JsonReader reader) throws IOException {
+    double x = 0d, y = 0d, z = 0d, heading = 0d, pitch = 0d;
+    int wkid = DEFAULT_WKID;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "heading":
+          heading = reader.nextDouble();
+          break;
+        case "tilt":
+          pitch = reader.nextDouble();
+          break;
+        case "position":
+          reader.beginObject();
+          while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+              reader.skipValue();
+              continue;
+            }
+            switch (name) {
+              case "x": x = reader.nextDouble(); break;
+              case "y": y = reader.nextDouble(); break;
+              case "z": z = reader.nextDouble(); break;
+              case "spatialReference":
+                reader.beginObject();
+                while (reader.hasNext()) {
+                  if (reader.nextName().equals("wkid")) wkid = reader.nextInt();
+                  else reader.skipValue();
+                }
+                reader.endObject();
+                break;
+              default:
+                reader.skipValue();
+            }
+          }
+          reader.endObject();
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return new CameraSpec(x, y, z, wkid, heading, pitch, 0d);
+  }
+
+  public double get_x() {
+    return _x;
+  }
+
+  public double get_y() {
+    return _y;
+  }
+
+  public double get_z() {
+    return _z;
+  }
+
+  public int get_wkid() {
+    return _wkid;
+  }
+
+  public double get_heading() {
+    return _heading;
+  }
+
+  public double get_pitch() {
+    return _pitch;
+  }
+
+  public double get_roll() {
+    return _roll;
+  }
+}
@@ -0,0 +1,53 @@
+package com.esri.apl.ea3d.model;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps a scene's operational layer ids to their positions in the operational layer list.
+ * Built once per scene, so sets of layers (e.g. a slide's visible layers) can be held as
+ * compact {@link BitSet}s indexed the same way as the layer list.
+ */
+public class LayerIdDictionary {
+  private final Map<String, Integer> mIndexById;
+  private final String[] mIds;
+
+  /**
+   * @param layerIds operational layer ids, in layer list order
+   */
+  public LayerIdDictionary(List<String> layerIds) {
+    mIds = layerIds.toArray(new String[layerIds.size()]);
+    mIndexById = new HashMap<>(mIds.length * 2);
+    for (int i = 0; i < mIds.length; i++) {
+      // Keep the first occurrence if an id is somehow repeated
+      if (mIds[i] != null && !mIndexById.containsKey(mIds[i])) mIndexById.put(mIds[i], i);
+    }
+  }
+
+  public int size() {
+    return mIds.length;
+  }
+
+  /** @return the layer list position for this id, or -1 if the scene has no such layer */
+  public int indexOf(String layerId) {
+    Integer index = mIndexById.get(layerId);
+    return (index != null) ? index : -1;
+  }
+
+  public String getId(int index) {
+    return mIds[index];
+  }
+
+  /** Ids that aren't layers in this scene are ignored */
+  public BitSet toBits(Collection<String> layerIds) {
+    BitSet bits = new BitSet(mIds.length);
+    for (String id : layerIds) {
+      int index = indexOf(id);
+      if (index >= 0) bits.set(index);
+    }
+    return bits;
+  }
+}
@@ -0,0 +1,122 @@
+package com.esri.apl.ea3d.model;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * On-disk list of a portal user's web scenes, one JSON file per portal URL and user:
+ * <pre>
+ *   {"portalUrl": ..., "user": ..., "entries": [{"id", "title", "modified", "folderId"}, ...]}
+ * </pre>
+ * File names are derived from a hash of the URL and user name; the file's own portalUrl and
+ * user are checked on load, so a hash collision just reads as a cache miss.
+ */
+public class PortalListingCache {
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final String SUFFIX = ".listing.json";
+
+  private PortalListingCache() {}
+
+  /** Cache file location for a portal user */
+  public static File fileFor(File cacheDir, String portalUrl, String user) {
+    String key = portalUrl + "\n" + user;
+    return new File(cacheDir, Integer.toHexString(key.hashCode()) + SUFFIX);
+  }
+
+  /**
+   * Read the cached listing for a portal user
+   * @return the entries, in the order they were saved, or null if nothing is cached
+   * @throws IOException if the file exists but can't be read
+   */
+  public static List<WebsceneEntry> load(File cacheDir, String portalUrl, String user)
+      throws IOException {
+    File file = fileFor(cacheDir, portalUrl, user);
+    if (!file.isFile()) return null;
+
+    String fileUrl = null, fileUser = null;
+    List<WebsceneEntry> entries = new ArrayList<>();
+    try (JsonReader reader = new JsonReader(new InputStreamReader(new FileInputStream(file), UTF8))) {
+      reader.beginObject();
+      while (reader.hasNext()) {
+        switch (reader.nextName()) {
+          case "portalUrl": fileUrl = reader.nextString(); break;
+          case "user": fileUser = reader.nextString(); break;
+          case "entries":
+            reader.beginArray();
+            while (reader.hasNext()) entries.add(readEntry(reader));
+            reader.endArray();
+            break;
+          default: reader.skipValue();
+        }
+      }
+      reader.endObject();
+    } catch (IllegalStateException | NumberFormatException e) {
+      throw new IOException("Corrupt portal listing " + file.getName(), e);
+    }
+    return (portalUrl.equals(fileUrl) && user.equals(fileUser)) ? entries : null;
+  }
+
+  /** Replace the cached listing for a portal user */
+  public static void save(File cacheDir, String portalUrl, String user,
+                          List<WebsceneEntry> entries) throws IOException {
+    if (!cacheDir.isDirectory() && !cacheDir.mkdirs())
+      throw new IOException("Can't create " + cacheDir);
+
+    File file = fileFor(cacheDir, portalUrl, user);
+    File tmp = new File(file.getPath() + ".tmp");
+    try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(new FileOutputStream(tmp), UTF8))) {
+      writer.beginObject();
+      writer.name("portalUrl").value(portalUrl);
+      writer.name("user").value(user);
+      writer.name("entries").beginArray();
+      for (WebsceneEntry entry : entries) {
+        writer.beginObject();
+        writer.name("id").value(entry.get_itemId());
+        writer.name("title").value(entry.get_title());
+        writer.name("modified").value(entry.get_modified());
+        if (entry.get_folderId() != null) writer.name("folderId").value(entry.get_folderId());
+        writer.endObject();
+      }
+      writer.endArray();
+      writer.endObject();
+    }
+    if (!tmp.renameTo(file)) {
+      tmp.delete();
+      throw new IOException("Can't replace " + file);
+    }
+  }
+
+  private static WebsceneEntry readEntry(JsonReader reader) throws IOException {
+    String id = null, title = null, folderId = null;
+    long modified = 0;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (reader.peek() == JsonToken.NULL) {
+        reader.nextNull();
+        continue;
+      }
+      switch (name) {
+        case "id": id = reader.nextString(); break;
+        case "title": title = reader.nextString(); break;
+        case "modified": modified = reader.nextLong(); break;
+        case "folderId": folderId = reader.nextString(); break;
+        default: reader.skipValue();
+      }
+    }
+    reader.endObject();
+    if (id == null) throw new IOException("Portal listing entry without an id");
+    return new WebsceneEntry(id, title, modified, folderId);
+  }
+}
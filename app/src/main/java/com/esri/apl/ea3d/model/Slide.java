@@ -0,0 +1,145 @@
+package com.esri.apl.ea3d.model;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The SDK-independent part of a web scene slide: id, title, camera values and visible layers.
+ * Kept free of SDK classes so slide parsing can run (and be benchmarked) on a plain JVM.<p/>
+ * A slide created from a {@link SlideSource} knows only its id and title until its camera or
+ * visible layers are first asked for.
+ * @see Bookmark3D
+ */
+public class Slide {
+  private String _id;
+  private String _title;
+  private CameraSpec _cameraSpec;
+
+  private List<String> _visibleLayerIds = new ArrayList<>();
+
+  /** Visible layers as bits of the dictionary they were last resolved against */
+  private BitSet _visibleLayerBits;
+  private LayerIdDictionary _visibleLayerDictionary;
+
+  /** Where to decode the camera and visible layers from; null once they're known */
+  private SlideSource _source;
+  private int _sourceIndex;
+
+  /** Constructor for a lazily-decoded slide
+   *
+   * @param id Slide id
+   * @param title Slide title text
+   * @param source Where to read the camera and visible layers from when first needed
+   * @param sourceIndex Position of this slide within the source
+   */
+  public Slide(String id, String title, SlideSource source, int sourceIndex) {
+    _id = id;
+    _title = title;
+    _source = source;
+    _sourceIndex = sourceIndex;
+  }
+
+  /** Constructor for use when parsing webscene JSON manually
+   *
+   * @param jsonObj A JSON Object for the presentation.slides portion of the webscene JSON
+   */
+  public Slide(JsonObject jsonObj) {
+    _id = jsonObj.get("id").getAsString();
+    _title = jsonObj.getAsJsonObject("title").get("text").getAsString();
+
+    JsonObject jsonCamera = jsonObj.getAsJsonObject("viewpoint").getAsJsonObject("camera");
+    _cameraSpec = CameraSpec.fromJSON(jsonCamera);
+
+    JsonArray jsonVisLyrs = jsonObj.getAsJsonArray("visibleLayers");
+    for (JsonElement visLyr : jsonVisLyrs) {
+      String sLyrId = visLyr.getAsJsonObject().get("id").getAsString();
+      _visibleLayerIds.add(sLyrId);
+    }
+  }
+
+  /** Constructor for use with the item, value pairs of ArcGISScene.getUnsupportedJson()
+   * @param slide A set of item,value pairs corresponding to a slide within the
+   *             presentation.slides portion of the webscene JSON
+   */
+  public Slide(Map<String, Object> slide) {
+    _id = slide.get("id").toString();
+    _title = ((Map<String, Object>)slide.get("title")).get("text").toString();
+
+    Map<String, Object> viewpoint = (Map<String, Object>) slide.get("viewpoint");
+    Map<String, Object> camera = (Map<String, Object>) viewpoint.get("camera");
+    _cameraSpec = CameraSpec.fromUnsupportedJSON(camera);
+
+    if (slide.containsKey("visibleLayers")) {
+      List<Object> visLayers = (List<Object>) slide.get("visibleLayers");
+      for (Object visLyr : visLayers) {
+        String sLyrId = ((Map<String, Object>) visLyr).get("id").toString();
+        _visibleLayerIds.add(sLyrId);
+      }
+    }
+  }
+
+  public String get_id() {
+    return _id;
+  }
+
+  public String get_title() {
+    return _title;
+  }
+
+  public CameraSpec get_cameraSpec() {
+    ensureDetails();
+    return _cameraSpec;
+  }
+
+  public List<String> get_visibleLayerIds() {
+    ensureDetails();
+    return _visibleLayerIds;
+  }
+
+  public synchronized void set_visibleLayerIds(List<String> _visibleLayerIds) {
+    ensureDetails();
+    this._visibleLayerIds = _visibleLayerIds;
+    this._visibleLayerBits = null;
+  }
+
+  /**
+   * Visible layers as a bitset, indexed by position in the scene's operational layer list.
+   * Computed once per dictionary and then reused; don't modify the result.
+   * @param layerIds dictionary of the current scene's operational layers
+   */
+  public synchronized BitSet get_visibleLayers(LayerIdDictionary layerIds) {
+    if (_visibleLayerBits == null || _visibleLayerDictionary != layerIds) {
+      _visibleLayerBits = layerIds.toBits(get_visibleLayerIds());
+      _visibleLayerDictionary = layerIds;
+    }
+    return _visibleLayerBits;
+  }
+
+  /** Called by a {@link SlideSource} with the decoded camera and visible layers */
+  public void set_details(CameraSpec cameraSpec, List<String> visibleLayerIds) {
+    this._cameraSpec = cameraSpec;
+    this._visibleLayerIds = visibleLayerIds;
+  }
+
+  /** Whether the camera and visible layers have been decoded yet */
+  public synchronized boolean is_detailsLoaded() {
+    return _source == null;
+  }
+
+  private synchronized void ensureDetails() {
+    if (_source == null) return;
+    try {
+      _source.loadDetails(_sourceIndex, this);
+      _source = null;
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read details of slide " + _id, e);
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package com.esri.apl.ea3d.model;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * On-disk cache of a webscene's parsed slides, keyed by portal item id and the item's
+ * modified timestamp.<p/>
+ * The file is a compact binary layout read through a memory-mapped {@link ByteBuffer}:
+ * <pre>
+ *   int magic, int version, long itemModified, int slideCount,
+ *   int[slideCount] record offsets,
+ *   per slide: str id, str title,
+ *              double x, y, z, int wkid, double heading, pitch, roll,
+ *              int layerCount, str[layerCount] visible layer ids
+ * </pre>
+ * where {@code str} is an int byte length followed by UTF-8 bytes. Opening the cache reads only
+ * ids and titles; the rest of each record is decoded when a slide's details are first needed.
+ */
+public class SlideCache implements SlideSource {
+  private static final int MAGIC = 0x45413353; // "EA3S"
+  private static final int VERSION = 1;
+  private static final String SUFFIX = ".slides";
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final ByteBuffer mBuffer;
+  private final long mItemModified;
+  private final int[] mOffsets;
+  private final String[] mIds;
+  private final String[] mTitles;
+
+  private SlideCache(ByteBuffer buffer) throws IOException {
+    mBuffer = buffer;
+    if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+      throw new IOException("Not a slide cache, or an unsupported version");
+    mItemModified = buffer.getLong();
+    int count = buffer.getInt();
+    mOffsets = new int[count];
+    for (int i = 0; i < count; i++) mOffsets[i] = buffer.getInt();
+
+    mIds = new String[count];
+    mTitles = new String[count];
+    for (int i = 0; i < count; i++) {
+      buffer.position(mOffsets[i]);
+      mIds[i] = readString(buffer);
+      mTitles[i] = readString(buffer);
+    }
+  }
+
+  /** Cache file location for a portal item */
+  public static File fileFor(File cacheDir, String itemId) {
+    return new File(cacheDir, itemId + SUFFIX);
+  }
+
+  /**
+   * Map a cache file and read its slide ids and titles
+   * @return the cache, or null if there's no cache file for this item
+   * @throws IOException if the file exists but can't be read
+   */
+  public static SlideCache open(File cacheDir, String itemId) throws IOException {
+    File file = fileFor(cacheDir, itemId);
+    if (!file.isFile()) return null;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+         FileChannel channel = raf.getChannel()) {
+      // The mapping stays valid after the channel is closed
+      return new SlideCache(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    } catch (RuntimeException e) { // e.g. BufferUnderflowException from a truncated file
+      throw new IOException("Corrupt slide cache " + file.getName(), e);
+    }
+  }
+
+  /**
+   * Write slides to the cache, replacing any existing file for the item. This decodes every
+   * slide's details, so call it off the UI thread, and pass slides nothing else holds on to
+   * (e.g. from {@link SlideIndex#toSlides()}) unless their details are already decoded.
+   * @param itemModified the portal item's modified time, in ms since the epoch
+   */
+  public static void write(File cacheDir, String itemId, long itemModified,
+                           List<? extends Slide> slides) throws IOException {
+    if (!cacheDir.isDirectory() && !cacheDir.mkdirs())
+      throw new IOException("Can't create " + cacheDir);
+
+    // Encode records first so the offset table can be written ahead of them
+    int count = slides.size();
+    int[] offsets = new int[count];
+    int headerSize = 4 + 4 + 8 + 4 + 4 * count;
+    ByteArrayOutputStream records = new ByteArrayOutputStream(count * 256);
+    DataOutputStream recordsOut = new DataOutputStream(records);
+    for (int i = 0; i < count; i++) {
+      offsets[i] = headerSize + records.size();
+      encode(slides.get(i), recordsOut);
+    }
+    recordsOut.flush();
+
+    File file = fileFor(cacheDir, itemId);
+    File tmp = new File(cacheDir, itemId + SUFFIX + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(tmp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(itemModified);
+      out.writeInt(count);
+      for (int o : offsets) out.writeInt(o);
+      records.writeTo(out);
+    }
+    if (!tmp.renameTo(file)) {
+      tmp.delete();
+      throw new IOException("Can't replace " + file);
+    }
+  }
+
+  public long get_itemModified() {
+    return mItemModified;
+  }
+
+  public int size() {
+    return mIds.length;
+  }
+
+  public String getId(int index) {
+    return mIds[index];
+  }
+
+  public String getTitle(int index) {
+    return mTitles[index];
+  }
+
+  @Override
+  public void loadDetails(int index, Slide target) throws IOException {
+    // Work on a duplicate so concurrent readers don't share a position
+    ByteBuffer buffer = mBuffer.duplicate();
+    try {
+      buffer.position(mOffsets[index]);
+      skipString(buffer); // id
+      skipString(buffer); // title
+      double x = buffer.getDouble(), y = buffer.getDouble(), z = buffer.getDouble();
+      int wkid = buffer.getInt();
+      double heading = buffer.getDouble(), pitch = buffer.getDouble(), roll = buffer.getDouble();
+      int layerCount = buffer.getInt();
+      List<String> layerIds = new ArrayList<>(layerCount);
+      for (int i = 0; i < layerCount; i++) layerIds.add(readString(buffer));
+      target.set_details(new CameraSpec(x, y, z, wkid, heading, pitch, roll), layerIds);
+    } catch (RuntimeException e) {
+      throw new IOException("Corrupt slide cache record " + index, e);
+    }
+  }
+
+  private static void encode(Slide slide, DataOutputStream out) throws IOException {
+    writeString(out, slide.get_id());
+    writeString(out, slide.get_title());
+    CameraSpec cam = slide.get_cameraSpec();
+    out.writeDouble(cam.get_x()); out.writeDouble(cam.get_y()); out.writeDouble(cam.get_z());
+    out.writeInt(cam.get_wkid());
+    out.writeDouble(cam.get_heading()); out.writeDouble(cam.get_pitch()); out.writeDouble(cam.get_roll());
+    List<String> layerIds = slide.get_visibleLayerIds();
+    out.writeInt(layerIds.size());
+    for (String id : layerIds) writeString(out, id);
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = (s != null ? s : "").getBytes(UTF8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, UTF8);
+  }
+
+  private static void skipString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    buffer.position(buffer.position() + length);
+  }
+}
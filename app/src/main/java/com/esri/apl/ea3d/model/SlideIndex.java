@@ -0,0 +1,304 @@
+package com.esri.apl.ea3d.model;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming index of the presentation slides in raw webscene JSON.<p/>
+ * {@link #parse(byte[])} makes one pass over the bytes to find where each slide's JSON object
+ * starts and ends, without decoding or building a tree, then reads only the id and title of each
+ * with a Gson {@link JsonReader}. Cameras and visible layers are decoded later, one slide at a
+ * time, by reading just that slide's bytes again (see {@link #loadDetails(int, Slide)}), so
+ * decoding any one slide costs the same wherever it is in the presentation. Only the bytes of the
+ * slides array are kept, not the whole webscene.
+ */
+public class SlideIndex implements SlideSource {
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  /** Just the presentation.slides array; the rest of the webscene isn't kept */
+  private byte[] mJson;
+  /** Byte offset of each slide's JSON object in {@link #mJson}, and of the byte just past it */
+  private int[] mStarts = new int[16], mEnds = new int[16];
+  private int mCount;
+  /** Set by {@link #findSlides}: offset just past the slides array in the whole webscene */
+  private int mArrayEnd;
+  private final List<String> mIds = new ArrayList<>();
+  private final List<String> mTitles = new ArrayList<>();
+
+  private SlideIndex() {}
+
+  /**
+   * Index the slides in a webscene
+   * @param websceneJson UTF-8 webscene item data
+   * @return An index of slide ids and titles; empty if the webscene has no presentation
+   */
+  public static SlideIndex parse(byte[] websceneJson) throws IOException {
+    SlideIndex index = new SlideIndex();
+    int arrayStart = index.findSlides(websceneJson);
+    if (arrayStart < 0) {
+      index.mJson = new byte[0];
+      return index;
+    }
+    // Keep a copy of the slides array alone, so the layer definitions and everything else in the
+    // webscene can be collected
+    int arrayEnd = index.mArrayEnd;
+    index.mJson = Arrays.copyOfRange(websceneJson, arrayStart, arrayEnd);
+    for (int i = 0; i < index.mCount; i++) {
+      index.mStarts[i] -= arrayStart;
+      index.mEnds[i] -= arrayStart;
+    }
+    // One reader for all the headers, which is cheaper than one per slide
+    try (JsonReader reader = new JsonReader(new InputStreamReader(
+        new ByteArrayInputStream(index.mJson), UTF8))) {
+      reader.beginArray();
+      for (int i = 0; i < index.mCount; i++) index.readHeader(reader);
+    } catch (IllegalStateException e) {
+      // JsonReader reports a value of the wrong type this way
+      throw new IOException("Malformed webscene slide", e);
+    }
+    return index;
+  }
+
+  /**
+   * Index the slides in a webscene. The stream is read fully but not closed.
+   * @param websceneJson UTF-8 webscene item data, as returned by PortalItem.fetchDataAsync()
+   */
+  public static SlideIndex parse(InputStream websceneJson) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+    byte[] buf = new byte[16 * 1024];
+    for (int n; (n = websceneJson.read(buf)) != -1; ) bytes.write(buf, 0, n);
+    return parse(bytes.toByteArray());
+  }
+
+  public int size() {
+    return mIds.size();
+  }
+
+  public String getId(int index) {
+    return mIds.get(index);
+  }
+
+  public String getTitle(int index) {
+    return mTitles.get(index);
+  }
+
+  /** Create lightweight slides whose details will be read from this index on first use */
+  public List<Slide> toSlides() {
+    List<Slide> slides = new ArrayList<>(size());
+    for (int i = 0; i < size(); i++) slides.add(new Slide(getId(i), getTitle(i), this, i));
+    return slides;
+  }
+
+  @Override
+  public void loadDetails(int index, Slide target) throws IOException {
+    if (index < 0 || index >= size()) throw new IOException("No slide at index " + index);
+    try (JsonReader reader = openSlide(index)) {
+      readDetails(reader, target);
+    } catch (IllegalStateException e) {
+      throw new IOException("Malformed slide " + target.get_id(), e);
+    }
+  }
+
+  /** A reader over just one slide's JSON object */
+  private JsonReader openSlide(int index) {
+    return new JsonReader(new InputStreamReader(
+        new ByteArrayInputStream(mJson, mStarts[index], mEnds[index] - mStarts[index]), UTF8));
+  }
+
+  /**
+   * Record the byte range of each element of presentation.slides. Only JSON structure is
+   * looked at: every byte that matters (quotes, brackets, commas) is ASCII, and UTF-8 never
+   * uses ASCII bytes inside a multi-byte character, so no decoding is needed.
+   * @return offset of the slides array, or -1 if there isn't one; {@link #mArrayEnd} is set
+   *     just past it
+   */
+  private int findSlides(byte[] json) throws IOException {
+    int pos = skipWhitespace(json, 0);
+    // UTF-8 byte order mark
+    if (pos + 2 < json.length && json[pos] == (byte) 0xef && json[pos + 1] == (byte) 0xbb
+        && json[pos + 2] == (byte) 0xbf) pos = skipWhitespace(json, pos + 3);
+    pos = findMember(json, pos, "presentation");
+    if (pos < 0) return -1;
+    pos = findMember(json, pos, "slides");
+    if (pos < 0 || json[pos] != '[') return -1;
+
+    int arrayStart = pos;
+    int count = 0;
+    pos = skipWhitespace(json, pos + 1);
+    while (at(json, pos) != ']') {
+      int end = skipValue(json, pos);
+      if (count == mStarts.length) {
+        mStarts = Arrays.copyOf(mStarts, count * 2);
+        mEnds = Arrays.copyOf(mEnds, count * 2);
+      }
+      mStarts[count] = pos;
+      mEnds[count] = end;
+      count++;
+      pos = skipWhitespace(json, end);
+      byte b = at(json, pos);
+      if (b == ',') pos = skipWhitespace(json, pos + 1);
+      else if (b != ']') throw malformed(pos);
+    }
+    mCount = count;
+    mArrayEnd = pos + 1;
+    return arrayStart;
+  }
+
+  /**
+   * Find a member of the object starting at {@code pos}. Names are compared as raw bytes, so
+   * this only finds names written without escapes, which is how webscenes write theirs.
+   * @return offset of the member's value, or -1 if the value there isn't an object or it has
+   *     no such member
+   */
+  private static int findMember(byte[] json, int pos, String name) throws IOException {
+    if (at(json, pos) != '{') return -1;
+    pos = skipWhitespace(json, pos + 1);
+    while (at(json, pos) != '}') {
+      int nameEnd = skipString(json, pos);
+      boolean match = (nameEnd - pos - 2 == name.length());
+      for (int i = 0; match && i < name.length(); i++) match = (json[pos + 1 + i] == name.charAt(i));
+      pos = skipWhitespace(json, nameEnd);
+      if (at(json, pos) != ':') throw malformed(pos);
+      pos = skipWhitespace(json, pos + 1);
+      if (match) return pos;
+      pos = skipWhitespace(json, skipValue(json, pos));
+      byte b = at(json, pos);
+      if (b == ',') pos = skipWhitespace(json, pos + 1);
+      else if (b != '}') throw malformed(pos);
+    }
+    return -1;
+  }
+
+  /**
+   * @return offset just past the value starting at {@code pos}, which is always past {@code pos}
+   * @throws IOException if there's no value there
+   */
+  private static int skipValue(byte[] json, int pos) throws IOException {
+    byte b = at(json, pos);
+    if (b == '"') return skipString(json, pos);
+    if (b == '}' || b == ']' || b == ',' || b == ':') throw malformed(pos);
+    if (b == '{' || b == '[') {
+      int depth = 0;
+      do {
+        b = at(json, pos);
+        if (b == '"') {
+          pos = skipString(json, pos);
+          continue;
+        }
+        if (b == '{' || b == '[') depth++;
+        else if (b == '}' || b == ']') depth--;
+        pos++;
+      } while (depth > 0);
+      return pos;
+    }
+    // Number, true, false or null
+    int start = pos;
+    while (pos < json.length && (b = json[pos]) != ',' && b != '}' && b != ']' && b != ':'
+        && b != ' ' && b != '\t' && b != '\n' && b != '\r') pos++;
+    if (pos == start) throw malformed(pos);
+    return pos;
+  }
+
+  /** @return offset just past the closing quote of the string starting at {@code pos} */
+  private static int skipString(byte[] json, int pos) throws IOException {
+    if (at(json, pos) != '"') throw malformed(pos);
+    for (pos++; ; pos++) {
+      byte b = at(json, pos);
+      if (b == '\\') pos++;
+      else if (b == '"') return pos + 1;
+    }
+  }
+
+  private static int skipWhitespace(byte[] json, int pos) {
+    while (pos < json.length) {
+      byte b = json[pos];
+      if (b != ' ' && b != '\t' && b != '\n' && b != '\r') break;
+      pos++;
+    }
+    return pos;
+  }
+
+  private static byte at(byte[] json, int pos) throws IOException {
+    if (pos >= json.length) throw new IOException("Webscene JSON ends unexpectedly");
+    return json[pos];
+  }
+
+  private static IOException malformed(int pos) {
+    return new IOException("Malformed webscene JSON at byte " + pos);
+  }
+
+  private void readHeader(JsonReader reader) throws IOException {
+    String id = null, title = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "id":
+          id = reader.nextString();
+          break;
+        case "title":
+          title = readTitle(reader);
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+    mIds.add(id);
+    mTitles.add(title);
+  }
+
+  private static String readTitle(JsonReader reader) throws IOException {
+    String text = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if (reader.nextName().equals("text")) text = reader.nextString();
+      else reader.skipValue();
+    }
+    reader.endObject();
+    return text;
+  }
+
+  private static void readDetails(JsonReader reader, Slide target) throws IOException {
+    CameraSpec camera = null;
+    List<String> visibleLayerIds = new ArrayList<>();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "viewpoint":
+          reader.beginObject();
+          while (reader.hasNext()) {
+            if (reader.nextName().equals("camera")) camera = CameraSpec.fromJsonReader(reader);
+            else reader.skipValue();
+          }
+          reader.endObject();
+          break;
+        case "visibleLayers":
+          reader.beginArray();
+          while (reader.hasNext()) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+              if (reader.nextName().equals("id")) visibleLayerIds.add(reader.nextString());
+              else reader.skipValue();
+            }
+            reader.endObject();
+          }
+          reader.endArray();
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+    if (camera == null) throw new IOException("Slide " + target.get_id() + " has no camera");
+    target.set_details(camera, visibleLayerIds);
+  }
+}
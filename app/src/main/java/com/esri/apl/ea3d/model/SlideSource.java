@@ -0,0 +1,17 @@
+package com.esri.apl.ea3d.model;
+
+import java.io.IOException;
+
+/**
+ * Somewhere the full details of a slide (camera and visible layers) can be read from on demand,
+ * so that only a slide's id and title need to be decoded up front.
+ */
+public interface SlideSource {
+  /**
+   * Decode the camera and visible layers of one slide and hand them to
+   * {@link Slide#set_details(CameraSpec, java.util.List)}
+   * @param index position of the slide within the presentation
+   * @param target slide to populate
+   */
+  void loadDetails(int index, Slide target) throws IOException;
+}
@@ -0,0 +1,54 @@
+package com.esri.apl.ea3d.model;
+
+/**
+ * What the web scene picker needs to know about one portal item; kept in the
+ * {@link PortalListingCache} between sessions.
+ */
+public class WebsceneEntry {
+  private final String _itemId;
+  private final String _title;
+  /** Item's modified time, in ms since the epoch */
+  private final long _modified;
+  /** Folder the item is in, or null for the user's root folder */
+  private final String _folderId;
+
+  public WebsceneEntry(String itemId, String title, long modified, String folderId) {
+    this._itemId = itemId;
+    this._title = title;
+    this._modified = modified;
+    this._folderId = folderId;
+  }
+
+  public String get_itemId() {
+    return _itemId;
+  }
+
+  public String get_title() {
+    return _title;
+  }
+
+  public long get_modified() {
+    return _modified;
+  }
+
+  public String get_folderId() {
+    return _folderId;
+  }
+
+  /** Whether this is a newer or otherwise different version of the same item */
+  public boolean differsFrom(WebsceneEntry other) {
+    return _modified != other._modified
+        || !equalOrBothNull(_title, other._title)
+        || !equalOrBothNull(_folderId, other._folderId);
+  }
+
+  private static boolean equalOrBothNull(String a, String b) {
+    return (a == null) ? b == null : a.equals(b);
+  }
+
+  /** Title, so entries can go straight into a list adapter */
+  @Override
+  public String toString() {
+    return _title;
+  }
+}
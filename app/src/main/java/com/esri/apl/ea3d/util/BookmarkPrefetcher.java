@@ -0,0 +1,313 @@
+package com.esri.apl.ea3d.util;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.Log;
+
+import com.esri.apl.ea3d.model.Bookmark3D;
+import com.esri.apl.ea3d.model.CameraSpec;
+import com.esri.apl.ea3d.model.LayerIdDictionary;
+import com.esri.arcgisruntime.geometry.GeometryEngine;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.SpatialReference;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
+import com.esri.arcgisruntime.layers.Layer;
+import com.esri.arcgisruntime.loadable.LoadStatus;
+import com.esri.arcgisruntime.mapping.ArcGISScene;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Warms what each bookmark's first visit needs, one bookmark at a time in list order, starting
+ * each when the UI thread is idle: the slide's camera and layer list are decoded on a background
+ * executor, then, back on the UI thread, layers it shows are loaded and surface elevation where
+ * its camera looks is sampled (which also caches it in the {@link ElevationService}). Tiles drawn
+ * for the new view can't be requested without moving the view, so those still stream in on the
+ * first visit.<p/>
+ * Prefetching stops for good on {@link #stop()} (e.g. when the user touches the screen), or
+ * when the Java heap passes its budget or the system reports low memory.
+ * Must be used on the UI thread.
+ */
+public class BookmarkPrefetcher {
+  private static final String TAG = "BookmarkPrefetcher";
+  /** Farthest ahead a camera looking at or near the horizon is taken to be looking */
+  private static final double MAX_LOOK_DISTANCE_M = 20000;
+
+  private final ActivityManager mActivityManager;
+  private final ElevationService mElevations;
+  private final ExecutorService mDecodeExecutor;
+  private final Handler mHandler = new Handler(Looper.getMainLooper());
+  private final float mHeapBudget;
+  private final ActivityManager.MemoryInfo mMemoryInfo = new ActivityManager.MemoryInfo();
+
+  private ArcGISScene mScene;
+  private List<Bookmark3D> mBookmarks;
+  private LayerIdDictionary mLayerIds;
+  private int mNext;
+  private boolean mRunning = false;
+  /** Whether the idle handler is registered; it's only there while there's a bookmark to start */
+  private boolean mIdleArmed = false;
+  /** Bumped on each start and stop, so decodes finishing afterward are ignored */
+  private int mGeneration;
+  /** Async loads still outstanding for the bookmark being prefetched */
+  private int mPendingLoads;
+  private Bookmark3D mCurrent;
+
+  private final Set<Bookmark3D> mPrefetched = new HashSet<>();
+  private int mHits, mMisses;
+
+  /**
+   * @param decodeExecutor decodes slide details off the UI thread
+   * @param heapBudget stop once this share of the maximum Java heap is in use, from 0 to 1
+   */
+  public BookmarkPrefetcher(Context ctx, ElevationService elevations,
+                            ExecutorService decodeExecutor, float heapBudget) {
+    this.mActivityManager = (ActivityManager) ctx.getSystemService(Context.ACTIVITY_SERVICE);
+    this.mElevations = elevations;
+    this.mDecodeExecutor = decodeExecutor;
+    this.mHeapBudget = heapBudget;
+  }
+
+  /**
+   * Start prefetching a scene's bookmarks, replacing any earlier run
+   * @param bookmarks read as prefetching goes, so it may still be filling in; call
+   *     {@link #bookmarksAdded()} after adding to it
+   */
+  public void start(ArcGISScene scene, List<Bookmark3D> bookmarks, LayerIdDictionary layerIds) {
+    stop();
+    mScene = scene;
+    mBookmarks = bookmarks;
+    mLayerIds = layerIds;
+    mNext = 0;
+    mCurrent = null;
+    mPendingLoads = 0;
+    mPrefetched.clear();
+    mGeneration++;
+    mRunning = true;
+    armIdleHandler();
+  }
+
+  /** Carry on prefetching if it had run out of bookmarks */
+  public void bookmarksAdded() {
+    if (mRunning && mCurrent == null) armIdleHandler();
+  }
+
+  public void stop() {
+    if (!mRunning) return;
+    mRunning = false;
+    mGeneration++;
+    mCurrent = null;
+    mIdleArmed = false;
+    Looper.myQueue().removeIdleHandler(mIdleHandler);
+    Log.d(TAG, "Stopped after " + mPrefetched.size() + " bookmarks; " + countersText());
+  }
+
+  public boolean isRunning() {
+    return mRunning;
+  }
+
+  /** Note a bookmark visit as a hit if it had been prefetched, or a miss if not */
+  public void recordVisit(Bookmark3D bookmark) {
+    if (mPrefetched.contains(bookmark)) mHits++;
+    else mMisses++;
+    Log.d(TAG, countersText());
+  }
+
+  public int get_hits() {
+    return mHits;
+  }
+
+  public int get_misses() {
+    return mMisses;
+  }
+
+  public int get_prefetchedCount() {
+    return mPrefetched.size();
+  }
+
+  public void resetCounters() {
+    mHits = mMisses = 0;
+  }
+
+  private String countersText() {
+    return "Prefetch hits " + mHits + ", misses " + mMisses;
+  }
+
+  private void armIdleHandler() {
+    if (mIdleArmed) return;
+    mIdleArmed = true;
+    Looper.myQueue().addIdleHandler(mIdleHandler);
+  }
+
+  /**
+   * Starts one bookmark, then unregisters itself; it's registered again once that bookmark is
+   * done, so the UI thread isn't polled while waiting or after the last bookmark
+   */
+  private final MessageQueue.IdleHandler mIdleHandler = new MessageQueue.IdleHandler() {
+    @Override
+    public boolean queueIdle() {
+      mIdleArmed = false;
+      if (!mRunning || mCurrent != null) return false;
+      if (mNext >= mBookmarks.size()) {
+        Log.d(TAG, "Prefetched all " + mNext + " bookmarks");
+        return false;
+      }
+      if (overBudget()) {
+        Log.d(TAG, "Memory budget reached");
+        stop();
+        return false;
+      }
+      prefetch(mBookmarks.get(mNext++));
+      return false;
+    }
+  };
+
+  private boolean overBudget() {
+    Runtime rt = Runtime.getRuntime();
+    if (rt.totalMemory() - rt.freeMemory() > mHeapBudget * rt.maxMemory()) return true;
+    mActivityManager.getMemoryInfo(mMemoryInfo);
+    return mMemoryInfo.lowMemory;
+  }
+
+  /** Decode a bookmark's details in the background, then warm up what it shows */
+  private void prefetch(final Bookmark3D bookmark) {
+    mCurrent = bookmark;
+    final int generation = mGeneration;
+    final LayerIdDictionary layerIds = mLayerIds;
+    try {
+      mDecodeExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            final CameraSpec camera = bookmark.get_cameraSpec();
+            final BitSet visible = (layerIds != null) ? bookmark.get_visibleLayers(layerIds) : null;
+            mHandler.post(new Runnable() {
+              @Override
+              public void run() {
+                if (generation == mGeneration && bookmark == mCurrent) warmUp(bookmark, camera, visible);
+              }
+            });
+          } catch (Exception e) {
+            Log.w(TAG, "Couldn't decode " + bookmark.get_title(), e);
+            mHandler.post(new Runnable() {
+              @Override
+              public void run() {
+                if (generation == mGeneration && bookmark == mCurrent) {
+                  mCurrent = null;
+                  armIdleHandler();
+                }
+              }
+            });
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      stop(); // Shutting down
+    }
+  }
+
+  /** Load the bookmark's layers and sample elevation where it looks, on the UI thread */
+  private void warmUp(final Bookmark3D bookmark, CameraSpec camera, BitSet visible) {
+    mPendingLoads = 1; // Held until everything's been started
+    try {
+      List<Layer> layers = mScene.getOperationalLayers();
+      if (visible != null && mLayerIds != null && mLayerIds.size() == layers.size()) {
+        for (int iLyr = visible.nextSetBit(0); iLyr >= 0; iLyr = visible.nextSetBit(iLyr + 1)) {
+          final Layer lyr = layers.get(iLyr);
+          if (lyr.getLoadStatus() == LoadStatus.LOADED) continue;
+          mPendingLoads++;
+          lyr.addDoneLoadingListener(new Runnable() {
+            @Override
+            public void run() {
+              loadDone(bookmark);
+            }
+          });
+          lyr.loadAsync();
+        }
+      }
+
+      // The ground under the camera tells how far ahead its line of sight meets the ground
+      final double[] camLonLat = new double[2];
+      if (toWgs84(camera, camLonLat)) {
+        final double camZ = camera.get_z(), heading = camera.get_heading(), pitch = camera.get_pitch();
+        mPendingLoads++;
+        mElevations.getElevation(mScene.getBaseSurface(),
+            new Point(camLonLat[0], camLonLat[1], SpatialReferences.getWgs84()),
+            new ElevationService.OnElevationListener() {
+          @Override
+          public void onElevation(double groundM) {
+            if (bookmark == mCurrent) {
+              double[] target = new double[2];
+              lookAt(camLonLat[0], camLonLat[1], camZ, heading, pitch,
+                  Double.isNaN(groundM) ? 0 : groundM, target);
+              mPendingLoads++;
+              mElevations.getElevation(mScene.getBaseSurface(),
+                  new Point(target[0], target[1], SpatialReferences.getWgs84()),
+                  new ElevationService.OnElevationListener() {
+                @Override
+                public void onElevation(double elevationM) {
+                  loadDone(bookmark);
+                }
+              });
+            }
+            loadDone(bookmark);
+          }
+        });
+      }
+    } catch (Exception e) {
+      Log.w(TAG, "Couldn't prefetch " + bookmark.get_title(), e);
+    }
+    loadDone(bookmark);
+  }
+
+  /** @return false if the camera's location couldn't be put in WGS84 */
+  private static boolean toWgs84(CameraSpec camera, double[] lonLat) {
+    int wkid = camera.get_wkid();
+    if (Projection.isWgs84(wkid)) {
+      lonLat[0] = camera.get_x();
+      lonLat[1] = camera.get_y();
+    } else if (Projection.isWebMercator(wkid)) {
+      Projection.webMercatorToWgs84(camera.get_x(), camera.get_y(), lonLat, 0);
+    } else {
+      Point pt = (Point) GeometryEngine.project(
+          new Point(camera.get_x(), camera.get_y(), SpatialReference.create(wkid)),
+          SpatialReferences.getWgs84());
+      if (pt == null) return false;
+      lonLat[0] = pt.getX();
+      lonLat[1] = pt.getY();
+    }
+    return true;
+  }
+
+  /**
+   * Where a camera's line of sight meets level ground, or, looking at or above the horizon,
+   * the point {@link #MAX_LOOK_DISTANCE_M} ahead
+   * @param pitch degrees from straight down (0) to horizontal (90)
+   * @param groundM elevation of the ground, in meters
+   * @param out receives longitude, latitude
+   */
+  private static void lookAt(double lon, double lat, double z, double heading, double pitch,
+                     double groundM, double[] out) {
+    double height = Math.max(0, z - groundM);
+    double distance = (pitch < 90)
+        ? Math.min(height * Math.tan(Math.toRadians(pitch)), MAX_LOOK_DISTANCE_M)
+        : MAX_LOOK_DISTANCE_M;
+    Geodesy.destination(lon, lat, heading, distance, out, 0);
+  }
+
+  private void loadDone(Bookmark3D bookmark) {
+    // Ignore loads finishing after a restart
+    if (bookmark != mCurrent || --mPendingLoads > 0) return;
+    mCurrent = null;
+    mPrefetched.add(bookmark);
+    if (mRunning) armIdleHandler();
+  }
+}
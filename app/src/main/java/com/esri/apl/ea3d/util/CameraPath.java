@@ -0,0 +1,118 @@
+package com.esri.apl.ea3d.util;
+
+import com.esri.apl.ea3d.model.CameraSpec;
+
+/**
+ * A camera flight between two cameras, sampled ahead of time so playback only interpolates.<p/>
+ * The ground track follows the great circle between the two positions; the camera climbs in an
+ * arc proportional to the distance covered, so long hops fly over rather than through the scene.
+ * Heading turns the short way round, and easing is baked into the samples, which are evenly
+ * spaced in time. Positions are WGS84 longitude/latitude in degrees and elevation in meters.
+ */
+public class CameraPath {
+  /** Peak climb above the straight line between the two cameras, as a share of ground distance */
+  public static final double ARC_LIFT = 0.25;
+
+  /** Doubles per sample written by {@link #sampleAt}: lon, lat, z, heading, pitch, roll */
+  public static final int STRIDE = 6;
+
+  private final int mSamples;
+  private final double[] mSamplesPacked;
+
+  private CameraPath(int samples, double[] packed) {
+    this.mSamples = samples;
+    this.mSamplesPacked = packed;
+  }
+
+  /**
+   * Sample a flight
+   * @param samples how many samples, evenly spaced in time; at least 2
+   * @param easing progress along the route over time
+   * @throws IllegalArgumentException if a camera isn't in WGS84 or Web Mercator
+   */
+  public static CameraPath between(CameraSpec from, CameraSpec to, int samples, Easing easing) {
+    if (samples < 2) throw new IllegalArgumentException("Need at least two samples");
+    double[] lonLat0 = toWgs84(from), lonLat1 = toWgs84(to);
+    double[] ecef0 = new double[3], ecef1 = new double[3], scratch = new double[3];
+    Projection.wgs84ToEcef(lonLat0[0], lonLat0[1], 0, ecef0, 0);
+    Projection.wgs84ToEcef(lonLat1[0], lonLat1[1], 0, ecef1, 0);
+    double ground = Geodesy.surfaceDistance(lonLat0[0], lonLat0[1], lonLat1[0], lonLat1[1]);
+    double turn = ((to.get_heading() - from.get_heading()) % 360 + 540) % 360 - 180;
+
+    double[] packed = new double[samples * STRIDE];
+    for (int i = 0; i < samples; i++) {
+      double u = easing.ease((double) i / (samples - 1));
+      int o = i * STRIDE;
+      if (i == 0 || i == samples - 1) {
+        double[] lonLat = (i == 0) ? lonLat0 : lonLat1;
+        packed[o] = lonLat[0];
+        packed[o + 1] = lonLat[1];
+      } else {
+        // Along the chord, projected back onto the ellipsoid: the great circle, near enough
+        Projection.ecefToWgs84(lerp(ecef0[0], ecef1[0], u), lerp(ecef0[1], ecef1[1], u),
+            lerp(ecef0[2], ecef1[2], u), scratch, 0);
+        packed[o] = scratch[0];
+        packed[o + 1] = scratch[1];
+      }
+      packed[o + 2] = lerp(from.get_z(), to.get_z(), u) + ARC_LIFT * ground * 4 * u * (1 - u);
+      packed[o + 3] = normalizeHeading(from.get_heading() + turn * u);
+      packed[o + 4] = lerp(from.get_pitch(), to.get_pitch(), u);
+      packed[o + 5] = lerp(from.get_roll(), to.get_roll(), u);
+    }
+    return new CameraPath(samples, packed);
+  }
+
+  public int get_samples() {
+    return mSamples;
+  }
+
+  /**
+   * Interpolate the camera at a point in the flight
+   * @param t share of the flight's time elapsed; clamped to [0, 1]
+   * @param out receives {@link #STRIDE} values at {@code out[offset]}
+   */
+  public void sampleAt(double t, double[] out, int offset) {
+    double pos = Math.max(0, Math.min(1, t)) * (mSamples - 1);
+    int i = Math.min((int) pos, mSamples - 2);
+    double f = pos - i;
+    int a = i * STRIDE, b = a + STRIDE;
+    double[] s = mSamplesPacked;
+    // Longitude and heading may wrap between neighbouring samples
+    out[offset] = normalizeLon(s[a] + wrapDelta(s[b] - s[a]) * f);
+    out[offset + 1] = lerp(s[a + 1], s[b + 1], f);
+    out[offset + 2] = lerp(s[a + 2], s[b + 2], f);
+    out[offset + 3] = normalizeHeading(s[a + 3] + wrapDelta(s[b + 3] - s[a + 3]) * f);
+    out[offset + 4] = lerp(s[a + 4], s[b + 4], f);
+    out[offset + 5] = lerp(s[a + 5], s[b + 5], f);
+  }
+
+  private static double[] toWgs84(CameraSpec camera) {
+    double[] lonLat = new double[2];
+    if (Projection.isWgs84(camera.get_wkid())) {
+      lonLat[0] = camera.get_x();
+      lonLat[1] = camera.get_y();
+    } else if (Projection.isWebMercator(camera.get_wkid())) {
+      Projection.webMercatorToWgs84(camera.get_x(), camera.get_y(), lonLat, 0);
+    } else {
+      throw new IllegalArgumentException("Unsupported camera spatial reference " + camera.get_wkid());
+    }
+    return lonLat;
+  }
+
+  private static double lerp(double a, double b, double f) {
+    return a + (b - a) * f;
+  }
+
+  /** Shortest signed difference for an angle difference in degrees */
+  private static double wrapDelta(double delta) {
+    return ((delta % 360) + 540) % 360 - 180;
+  }
+
+  private static double normalizeHeading(double heading) {
+    return ((heading % 360) + 360) % 360;
+  }
+
+  private static double normalizeLon(double lon) {
+    return ((lon + 180) % 360 + 360) % 360 - 180;
+  }
+}
@@ -1,5 +1,6 @@
 package com.esri.apl.ea3d.util;
 
+import com.esri.apl.ea3d.model.CameraSpec;
 import com.esri.arcgisruntime.geometry.Point;
 import com.esri.arcgisruntime.geometry.SpatialReference;
 import com.esri.arcgisruntime.mapping.view.Camera;
@@ -10,22 +11,26 @@ import java.util.Map;
 /** Utilities to help deserialize a scene camera from JSON */
 public class CameraSerialization {
   public static Camera cameraFromJSON(JsonObject jsonCamera) {
-    Point pt = (Point) Point.fromJson(jsonCamera.getAsJsonObject("position").toString());
-    double fPitch = jsonCamera.get("tilt").getAsDouble();
-    double fHeading = jsonCamera.get("heading").getAsDouble();
-    return new Camera(pt, fHeading, fPitch, 0d);
+    return cameraFromSpec(CameraSpec.fromJSON(jsonCamera));
   }
 
   public static Camera cameraFromUnsupportedJSON(Map<String, Object> camera) {
-    double fPitch = (double)camera.get("tilt");
-    double fHeading = (double)camera.get("heading");
-    Map<String, Object> oPoint = (Map<String, Object>)camera.get("position");
-    double x = (double)oPoint.get("x"); double y = (double)oPoint.get("y"); double z = (double)oPoint.get("z");
-    Map<String, Object> sr = (Map<String, Object>)oPoint.get("spatialReference");
-    double wkid = (double)sr.get("wkid");
-    SpatialReference spatialReference = SpatialReference.create((int)wkid);
-    Point pt = new Point(x, y, z, spatialReference);
+    return cameraFromSpec(CameraSpec.fromUnsupportedJSON(camera));
+  }
+
+  /** Build an SDK camera from parsed camera values */
+  public static Camera cameraFromSpec(CameraSpec spec) {
+    SpatialReference spatialReference = SpatialReference.create(spec.get_wkid());
+    Point pt = new Point(spec.get_x(), spec.get_y(), spec.get_z(), spatialReference);
+    return new Camera(pt, spec.get_heading(), spec.get_pitch(), spec.get_roll());
+  }
 
-    return new Camera(pt, fHeading, fPitch, 0);
+  /** Copy an SDK camera's values into plain Java */
+  public static CameraSpec specFromCamera(Camera camera) {
+    Point pt = camera.getLocation();
+    SpatialReference sr = pt.getSpatialReference();
+    return new CameraSpec(pt.getX(), pt.getY(), pt.getZ(),
+        (sr != null) ? sr.getWkid() : CameraSpec.DEFAULT_WKID,
+        camera.getHeading(), camera.getPitch(), camera.getRoll());
   }
 }
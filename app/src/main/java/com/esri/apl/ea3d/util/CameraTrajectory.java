@@ -0,0 +1,261 @@
+package com.esri.apl.ea3d.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ConcurrentModificationException;
+
+/**
+ * A recorded camera trajectory held in a fixed number of bytes, oldest samples dropped first.<p/>
+ * Each sample is a timestamp plus a WGS84 camera (longitude, latitude, elevation, heading, pitch,
+ * roll), quantized to 1e-7 degree, 1 cm, 0.001 degree and 1 ms. The oldest sample is kept whole;
+ * every later one is stored as the zigzag varint-encoded difference from the one before, which for
+ * a camera moving smoothly frame to frame is a few bytes per value rather than eight.
+ * Longitude and heading differences take the short way round.
+ */
+public class CameraTrajectory {
+  /** Doubles per sample read by a {@link Cursor}: ms since the first sample, lon, lat, z, heading, pitch, roll */
+  public static final int STRIDE = 7;
+
+  private static final int FIELDS = 7;
+  private static final int T = 0, LON = 1, LAT = 2, Z = 3, HEADING = 4, PITCH = 5, ROLL = 6;
+  /** Units per degree for positions, and per meter for elevation; see {@link #quantize} */
+  private static final double DEG_POSITION = 1e7, METERS = 100, DEG_ANGLE = 1000;
+  private static final long LON_TURN = (long) (360 * DEG_POSITION);
+  private static final long HEADING_TURN = (long) (360 * DEG_ANGLE);
+  /** Largest encoded sample: ten bytes per 64-bit varint */
+  private static final int MAX_RECORD_BYTES = FIELDS * 10;
+  /** Largest capacity a saved file may claim; far beyond any recording the app makes */
+  private static final int MAX_FILE_CAPACITY_BYTES = 64 * 1024 * 1024;
+
+  private static final int FILE_MAGIC = 0x45413354; // "EA3T"
+  private static final int FILE_VERSION = 1;
+
+  private final byte[] mBuf;
+  /** Ring of encoded differences: next to read (oldest), next to write, and bytes in use */
+  private int mHead, mTail, mUsed;
+  private int mCount;
+  /** Oldest sample, and newest sample (which the next difference is taken from) */
+  private final long[] mFirst = new long[FIELDS], mLast = new long[FIELDS];
+  private final long[] mScratch = new long[FIELDS];
+  private int mModCount;
+
+  /** @param capacityBytes space for encoded samples; a few hundred KB holds a long walkthrough */
+  public CameraTrajectory(int capacityBytes) {
+    if (capacityBytes < MAX_RECORD_BYTES)
+      throw new IllegalArgumentException("Capacity must be at least " + MAX_RECORD_BYTES + " bytes");
+    this.mBuf = new byte[capacityBytes];
+  }
+
+  public int get_capacityBytes() {
+    return mBuf.length;
+  }
+
+  /** Bytes taken by samples after the first */
+  public int get_usedBytes() {
+    return mUsed;
+  }
+
+  public int get_count() {
+    return mCount;
+  }
+
+  /** Milliseconds from the oldest to the newest sample */
+  public long get_durationMillis() {
+    return (mCount == 0) ? 0 : mLast[T] - mFirst[T];
+  }
+
+  public void clear() {
+    mHead = mTail = mUsed = mCount = 0;
+    mModCount++;
+  }
+
+  /**
+   * Add a sample, dropping the oldest ones if there's no room
+   * @param timeMillis any monotonic clock, e.g. {@code SystemClock.elapsedRealtime()}
+   */
+  public void append(long timeMillis, double lon, double lat, double z,
+                     double heading, double pitch, double roll) {
+    long[] q = mScratch;
+    quantize(timeMillis, lon, lat, z, heading, pitch, roll, q);
+    mModCount++;
+    if (mCount == 0) {
+      System.arraycopy(q, 0, mFirst, 0, FIELDS);
+      System.arraycopy(q, 0, mLast, 0, FIELDS);
+      mCount = 1;
+      return;
+    }
+    while (mBuf.length - mUsed < MAX_RECORD_BYTES) dropOldest();
+    for (int f = 0; f < FIELDS; f++) {
+      long delta = q[f] - mLast[f];
+      if (f == LON) delta = wrap(delta, LON_TURN);
+      else if (f == HEADING) delta = wrap(delta, HEADING_TURN);
+      writeVarint((delta << 1) ^ (delta >> 63));
+      mLast[f] += delta;
+    }
+    mCount++;
+  }
+
+  /** Read the samples from oldest to newest; invalid once the trajectory changes */
+  public Cursor cursor() {
+    return new Cursor();
+  }
+
+  /** Steps through samples in order without decoding them all up front */
+  public class Cursor {
+    private final long[] mValue = new long[FIELDS];
+    private final int mExpectedModCount = mModCount;
+    private int mPos = mHead;
+    private int mRead = 0;
+
+    private Cursor() {}
+
+    /**
+     * Move to the next sample and decode it
+     * @param out receives {@link #STRIDE} values at {@code out[offset]}
+     * @return false if there are no more samples
+     */
+    public boolean next(double[] out, int offset) {
+      if (mModCount != mExpectedModCount) throw new ConcurrentModificationException();
+      if (mRead == mCount) return false;
+      if (mRead == 0) {
+        System.arraycopy(mFirst, 0, mValue, 0, FIELDS);
+      } else {
+        mPos = (mPos + decode(mPos, mValue)) % mBuf.length;
+      }
+      mRead++;
+      dequantize(mValue, mFirst[T], out, offset);
+      return true;
+    }
+  }
+
+  /**
+   * Save in a compact binary form that {@link #readFrom} restores
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(FILE_MAGIC);
+    data.writeInt(FILE_VERSION);
+    data.writeInt(mBuf.length);
+    data.writeInt(mCount);
+    if (mCount > 0) {
+      for (long v : mFirst) data.writeLong(v);
+      data.writeInt(mUsed);
+      int firstPart = Math.min(mUsed, mBuf.length - mHead);
+      data.write(mBuf, mHead, firstPart);
+      data.write(mBuf, 0, mUsed - firstPart);
+    }
+    data.flush();
+  }
+
+  /**
+   * Load a trajectory saved with {@link #writeTo}. The header isn't trusted for sizing: the buffer
+   * holds the saved samples plus room for one more, never more than the capacity saved
+   */
+  public static CameraTrajectory readFrom(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    if (data.readInt() != FILE_MAGIC) throw new IOException("Not a camera trajectory");
+    int version = data.readInt();
+    if (version != FILE_VERSION) throw new IOException("Unsupported trajectory version " + version);
+    int capacity = data.readInt();
+    int count = data.readInt();
+    if (capacity < MAX_RECORD_BYTES || capacity > MAX_FILE_CAPACITY_BYTES || count < 0)
+      throw new IOException("Corrupt trajectory header");
+
+    if (count == 0) return new CameraTrajectory(MAX_RECORD_BYTES);
+    long[] first = new long[FIELDS];
+    for (int f = 0; f < FIELDS; f++) first[f] = data.readLong();
+    int used = data.readInt();
+    // Every sample after the first takes at least a byte per field
+    if (used < 0 || used > capacity || (count - 1) > used / FIELDS)
+      throw new IOException("Corrupt trajectory header");
+    CameraTrajectory trajectory = new CameraTrajectory(Math.min(capacity, used + MAX_RECORD_BYTES));
+    System.arraycopy(first, 0, trajectory.mFirst, 0, FIELDS);
+    data.readFully(trajectory.mBuf, 0, used);
+    trajectory.mUsed = used;
+    trajectory.mTail = used % trajectory.mBuf.length;
+    trajectory.mCount = count;
+
+    // Decode once to find the newest sample, and to check the data is whole
+    System.arraycopy(trajectory.mFirst, 0, trajectory.mLast, 0, FIELDS);
+    int pos = 0;
+    for (int i = 1; i < count; i++) {
+      pos += trajectory.decode(pos, trajectory.mLast);
+      if (pos > used) throw new IOException("Truncated trajectory");
+    }
+    if (pos != used) throw new IOException("Trailing data in trajectory");
+    return trajectory;
+  }
+
+  /** Forget the oldest sample: the next one becomes the whole first sample */
+  private void dropOldest() {
+    int length = decode(mHead, mFirst);
+    mHead = (mHead + length) % mBuf.length;
+    mUsed -= length;
+    mCount--;
+  }
+
+  /**
+   * Add one encoded sample's differences to {@code values}
+   * @param pos where the sample starts in the ring
+   * @return bytes the sample takes up
+   */
+  private int decode(int pos, long[] values) {
+    int length = 0;
+    for (int f = 0; f < FIELDS; f++) {
+      long zigzag = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = mBuf[(pos + length++) % mBuf.length];
+        zigzag |= (long) (b & 0x7f) << shift;
+        shift += 7;
+      } while (b < 0 && shift < 64);
+      values[f] += (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+    return length;
+  }
+
+  private void writeVarint(long v) {
+    while ((v & ~0x7fL) != 0) {
+      mBuf[mTail] = (byte) ((v & 0x7f) | 0x80);
+      mTail = (mTail + 1) % mBuf.length;
+      mUsed++;
+      v >>>= 7;
+    }
+    mBuf[mTail] = (byte) v;
+    mTail = (mTail + 1) % mBuf.length;
+    mUsed++;
+  }
+
+  private static void quantize(long timeMillis, double lon, double lat, double z,
+                               double heading, double pitch, double roll, long[] out) {
+    out[T] = timeMillis;
+    out[LON] = Math.round(lon * DEG_POSITION);
+    out[LAT] = Math.round(lat * DEG_POSITION);
+    out[Z] = Math.round(z * METERS);
+    out[HEADING] = Math.round(heading * DEG_ANGLE);
+    out[PITCH] = Math.round(pitch * DEG_ANGLE);
+    out[ROLL] = Math.round(roll * DEG_ANGLE);
+  }
+
+  private static void dequantize(long[] q, long startMillis, double[] out, int offset) {
+    out[offset] = q[T] - startMillis;
+    double lon = q[LON] / DEG_POSITION;
+    out[offset + 1] = ((lon + 180) % 360 + 360) % 360 - 180;
+    out[offset + 2] = q[LAT] / DEG_POSITION;
+    out[offset + 3] = q[Z] / METERS;
+    out[offset + 4] = ((q[HEADING] / DEG_ANGLE) % 360 + 360) % 360;
+    out[offset + 5] = q[PITCH] / DEG_ANGLE;
+    out[offset + 6] = q[ROLL] / DEG_ANGLE;
+  }
+
+  /** The difference closest to zero that's equivalent modulo one full turn */
+  private static long wrap(long delta, long turn) {
+    long half = turn / 2;
+    delta = ((delta % turn) + turn) % turn;
+    return (delta > half) ? delta - turn : delta;
+  }
+}
@@ -0,0 +1,42 @@
+package com.esri.apl.ea3d.util;
+
+/**
+ * Maps linear animation progress to eased progress. Both run from 0 at the start of the
+ * animation to 1 at the end.
+ */
+public interface Easing {
+  double ease(double t);
+
+  /** Constant speed */
+  Easing LINEAR = new Easing() {
+    @Override
+    public double ease(double t) {
+      return t;
+    }
+  };
+
+  /** Starts slowly and speeds up */
+  Easing EASE_IN = new Easing() {
+    @Override
+    public double ease(double t) {
+      return t * t * t;
+    }
+  };
+
+  /** Starts quickly and slows down */
+  Easing EASE_OUT = new Easing() {
+    @Override
+    public double ease(double t) {
+      double u = 1 - t;
+      return 1 - u * u * u;
+    }
+  };
+
+  /** Slow at both ends, fastest halfway (cubic smoothstep) */
+  Easing EASE_IN_OUT = new Easing() {
+    @Override
+    public double ease(double t) {
+      return t * t * (3 - 2 * t);
+    }
+  };
+}
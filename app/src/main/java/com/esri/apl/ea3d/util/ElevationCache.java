@@ -0,0 +1,81 @@
+package com.esri.apl.ea3d.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least-recently-used cache of surface elevations, keyed by lon/lat quantized to a grid of
+ * cells {@code resolution} degrees on a side. Every location in a cell shares one elevation,
+ * which should be sampled at {@link #centerLon}/{@link #centerLat}.
+ */
+public class ElevationCache {
+  private final double mResolution;
+  private final LinkedHashMap<Long, Double> mEntries;
+  private int mHits, mMisses;
+
+  /**
+   * @param resolution cell size in degrees; at least about 8.4e-8 (a centimeter), so row and
+   *     column numbers fit in a key
+   * @param maxEntries how many cells to keep before evicting the least recently used
+   */
+  public ElevationCache(double resolution, final int maxEntries) {
+    if (!(resolution > 0)) throw new IllegalArgumentException("Resolution must be positive");
+    if (180 / resolution > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("Resolution " + resolution + " is too fine for 32-bit cell numbers");
+    if (maxEntries < 1) throw new IllegalArgumentException("Need room for at least one entry");
+    this.mResolution = resolution;
+    this.mEntries = new LinkedHashMap<Long, Double>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, Double> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  public double get_resolution() {
+    return mResolution;
+  }
+
+  /** Cell key for a longitude within +/-180: row in the high 32 bits, column in the low 32 */
+  public long keyFor(double lon, double lat) {
+    long col = (long) Math.floor(lon / mResolution);
+    long row = (long) Math.floor(lat / mResolution);
+    return (row << 32) | (col & 0xFFFFFFFFL);
+  }
+
+  public double centerLon(long key) {
+    return ((int) key + 0.5) * mResolution;
+  }
+
+  public double centerLat(long key) {
+    return ((int) (key >> 32) + 0.5) * mResolution;
+  }
+
+  /** @return the cell's elevation, or null if it isn't cached */
+  public Double get(long key) {
+    Double elev = mEntries.get(key);
+    if (elev != null) mHits++;
+    else mMisses++;
+    return elev;
+  }
+
+  public void put(long key, double elevation) {
+    mEntries.put(key, elevation);
+  }
+
+  public int size() {
+    return mEntries.size();
+  }
+
+  public void clear() {
+    mEntries.clear();
+  }
+
+  public int get_hits() {
+    return mHits;
+  }
+
+  public int get_misses() {
+    return mMisses;
+  }
+}
@@ -0,0 +1,97 @@
+package com.esri.apl.ea3d.util;
+
+import android.util.Log;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.geometry.GeometryEngine;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.SpatialReference;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
+import com.esri.arcgisruntime.mapping.Surface;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Surface elevation lookups through an {@link ElevationCache}.<p/>
+ * A cache miss samples the surface at the center of the location's cell. Concurrent lookups in
+ * the same cell share that one request rather than each sampling the surface. The cache is
+ * emptied whenever lookups move to a different surface (e.g. a new scene was loaded).
+ * Must be used on the UI thread, where the SDK calls done listeners.
+ */
+public class ElevationService {
+  private static final String TAG = "ElevationService";
+
+  public interface OnElevationListener {
+    /** @param elevationM surface elevation in meters, or NaN if it couldn't be found */
+    void onElevation(double elevationM);
+  }
+
+  private final ElevationCache mCache;
+  private final Map<Long, ListenableFuture<Double>> mInFlight = new HashMap<>();
+  private Surface mSurface;
+
+  /**
+   * @param resolutionDeg cache cell size in degrees
+   * @param maxEntries cells to keep
+   */
+  public ElevationService(double resolutionDeg, int maxEntries) {
+    mCache = new ElevationCache(resolutionDeg, maxEntries);
+  }
+
+  public ElevationCache get_cache() {
+    return mCache;
+  }
+
+  /**
+   * Look up the surface elevation at a point. Cached elevations are passed to the listener
+   * before this returns; otherwise it's called when the surface has been sampled.
+   */
+  public void getElevation(Surface surface, Point pt, final OnElevationListener listener) {
+    if (surface != mSurface) {
+      mCache.clear();
+      mInFlight.clear();
+      mSurface = surface;
+    }
+    if (surface == null) {
+      listener.onElevation(Double.NaN);
+      return;
+    }
+
+    SpatialReference sr = pt.getSpatialReference();
+    if (sr == null || !Projection.isWgs84(sr.getWkid()))
+      pt = (Point) GeometryEngine.project(pt, SpatialReferences.getWgs84());
+    final long key = mCache.keyFor(pt.getX(), pt.getY());
+
+    Double elev = mCache.get(key);
+    if (elev != null) {
+      listener.onElevation(elev);
+      return;
+    }
+
+    ListenableFuture<Double> lfElev = mInFlight.get(key);
+    if (lfElev == null) {
+      lfElev = surface.getElevationAsync(new Point(mCache.centerLon(key), mCache.centerLat(key),
+          SpatialReferences.getWgs84()));
+      mInFlight.put(key, lfElev);
+    }
+    final ListenableFuture<Double> lfShared = lfElev;
+    lfShared.addDoneListener(new Runnable() {
+      @Override
+      public void run() {
+        double elevation = Double.NaN;
+        try {
+          if (!lfShared.isCancelled()) elevation = lfShared.get();
+        } catch (Exception e) {
+          Log.e(TAG, "Error getting elevation", e);
+        }
+        // The first listener to run files the result for everyone
+        if (mInFlight.get(key) == lfShared) {
+          mInFlight.remove(key);
+          if (!Double.isNaN(elevation)) mCache.put(key, elevation);
+        }
+        listener.onElevation(elevation);
+      }
+    });
+  }
+}
@@ -0,0 +1,128 @@
+package com.esri.apl.ea3d.util;
+
+/**
+ * Allocation-free geodesy kernel. Works only on primitive doubles; anything that returns more
+ * than one value writes into a caller-supplied {@code double[]} so it can be called many times
+ * per frame without creating garbage.<p/>
+ * Planar functions expect projected coordinates in meters (e.g. Web Mercator);
+ * spherical functions expect WGS84 longitude/latitude in degrees.
+ * @see <a href="https://www.movable-type.co.uk/scripts/latlong.html">https://www.movable-type.co.uk/scripts/latlong.html</a>
+ */
+public final class Geodesy {
+  /** Mean earth radius in meters, as used by the spherical formulas */
+  public static final double EARTH_RADIUS_M = 6371008.8;
+
+  private Geodesy() {}
+
+  /**
+   * Straight-line distance between two projected points
+   * @return distance in meters; Z is ignored if either Z is NaN
+   */
+  public static double distance(double x1, double y1, double z1, double x2, double y2, double z2) {
+    double dx = x2 - x1;
+    double dy = y2 - y1;
+    double dz = z2 - z1;
+    if (Double.isNaN(dz)) dz = 0d;
+    return Math.sqrt(dx * dx + dy * dy + dz * dz);
+  }
+
+  /**
+   * Great-circle (haversine) distance between two WGS84 positions
+   * @return surface distance in meters
+   */
+  public static double surfaceDistance(double lon1, double lat1, double lon2, double lat2) {
+    double phi1 = Math.toRadians(lat1);
+    double phi2 = Math.toRadians(lat2);
+    double sinDPhi = Math.sin((phi2 - phi1) / 2d);
+    double sinDLambda = Math.sin(Math.toRadians(lon2 - lon1) / 2d);
+    double a = sinDPhi * sinDPhi + Math.cos(phi1) * Math.cos(phi2) * sinDLambda * sinDLambda;
+    return 2d * EARTH_RADIUS_M * Math.atan2(Math.sqrt(a), Math.sqrt(1d - a));
+  }
+
+  /**
+   * Initial bearing from one WGS84 position to another
+   * @return bearing in degrees, clockwise from north, in the range [0, 360)
+   */
+  public static double bearing(double lon1, double lat1, double lon2, double lat2) {
+    double phi1 = Math.toRadians(lat1);
+    double phi2 = Math.toRadians(lat2);
+    double dLambda = Math.toRadians(lon2 - lon1);
+    double cosPhi2 = Math.cos(phi2);
+    double y = Math.sin(dLambda) * cosPhi2;
+    double x = Math.cos(phi1) * Math.sin(phi2) - Math.sin(phi1) * cosPhi2 * Math.cos(dLambda);
+    return (Math.toDegrees(Math.atan2(y, x)) + 360d) % 360d;
+  }
+
+  /**
+   * Midpoint of a straight line between two projected points
+   * @param out receives x, y, z at {@code out[offset]}; z is NaN if either input Z is NaN
+   */
+  public static void midpoint(double x1, double y1, double z1, double x2, double y2, double z2,
+                              double[] out, int offset) {
+    out[offset] = x1 + (x2 - x1) / 2d;
+    out[offset + 1] = y1 + (y2 - y1) / 2d;
+    out[offset + 2] = (Double.isNaN(z1) || Double.isNaN(z2)) ? Double.NaN : z1 + (z2 - z1) / 2d;
+  }
+
+  /**
+   * Destination reached by travelling along a great circle from a WGS84 start position
+   * @param bearing initial bearing in degrees clockwise from north
+   * @param distance surface distance in meters
+   * @param out receives longitude, latitude (degrees) at {@code out[offset]}
+   */
+  public static void destination(double lon, double lat, double bearing, double distance,
+                                 double[] out, int offset) {
+    double delta = distance / EARTH_RADIUS_M;
+    double theta = Math.toRadians(bearing);
+    double phi1 = Math.toRadians(lat);
+    double sinPhi1 = Math.sin(phi1), cosPhi1 = Math.cos(phi1);
+    double sinDelta = Math.sin(delta), cosDelta = Math.cos(delta);
+
+    double sinPhi2 = sinPhi1 * cosDelta + cosPhi1 * sinDelta * Math.cos(theta);
+    double phi2 = Math.asin(sinPhi2);
+    double lambda = Math.atan2(Math.sin(theta) * sinDelta * cosPhi1, cosDelta - sinPhi1 * sinPhi2);
+
+    out[offset] = ((lon + Math.toDegrees(lambda) + 540d) % 360d) - 180d;
+    out[offset + 1] = Math.toDegrees(phi2);
+  }
+
+  // Batch variants. Point arrays are packed x, y, z triples (or lon, lat pairs for the spherical
+  // functions); results are written to out[0 .. count-1].
+
+  /** {@link #distance} from one origin to {@code count} packed x, y, z targets */
+  public static void distances(double x, double y, double z, double[] xyz, double[] out, int count) {
+    for (int i = 0, j = 0; i < count; i++, j += 3)
+      out[i] = distance(x, y, z, xyz[j], xyz[j + 1], xyz[j + 2]);
+  }
+
+  /** {@link #distance} between {@code count} pairs of packed x, y, z points */
+  public static void distances(double[] fromXyz, double[] toXyz, double[] out, int count) {
+    for (int i = 0, j = 0; i < count; i++, j += 3)
+      out[i] = distance(fromXyz[j], fromXyz[j + 1], fromXyz[j + 2], toXyz[j], toXyz[j + 1], toXyz[j + 2]);
+  }
+
+  /** {@link #bearing} from one origin to {@code count} packed lon, lat targets */
+  public static void bearings(double lon, double lat, double[] lonLat, double[] out, int count) {
+    for (int i = 0, j = 0; i < count; i++, j += 2)
+      out[i] = bearing(lon, lat, lonLat[j], lonLat[j + 1]);
+  }
+
+  /** {@link #surfaceDistance} from one origin to {@code count} packed lon, lat targets */
+  public static void surfaceDistances(double lon, double lat, double[] lonLat, double[] out, int count) {
+    for (int i = 0, j = 0; i < count; i++, j += 2)
+      out[i] = surfaceDistance(lon, lat, lonLat[j], lonLat[j + 1]);
+  }
+
+  /** {@link #midpoint} between {@code count} pairs of packed x, y, z points, written as packed x, y, z */
+  public static void midpoints(double[] fromXyz, double[] toXyz, double[] outXyz, int count) {
+    for (int i = 0, j = 0; i < count; i++, j += 3)
+      midpoint(fromXyz[j], fromXyz[j + 1], fromXyz[j + 2], toXyz[j], toXyz[j + 1], toXyz[j + 2], outXyz, j);
+  }
+
+  /** {@link #destination} from one origin along {@code count} bearing/distance pairs, written as packed lon, lat */
+  public static void destinations(double lon, double lat, double[] bearings, double[] distances,
+                                  double[] outLonLat, int count) {
+    for (int i = 0; i < count; i++)
+      destination(lon, lat, bearings[i], distances[i], outLonLat, i * 2);
+  }
+}
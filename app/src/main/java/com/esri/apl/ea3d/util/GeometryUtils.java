@@ -1,6 +1,9 @@
 package com.esri.apl.ea3d.util;
 
+import com.esri.arcgisruntime.geometry.GeometryEngine;
 import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.SpatialReference;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
 
 /**
  * A utility class to help with miscellaneous geometrical operations
@@ -12,15 +15,27 @@ public class GeometryUtils {
    * @param from camera/observer point (x, y, z in meters)
    * @param to target/destination point (x, y, z in meters)
    * @return distance in meters
+   * @see Geodesy#distance(double, double, double, double, double, double)
    */
   public static double distance(Point from, Point to) {
-    // Use Pythagorean Theorem to approximate target distance
-    double vDiff = Math.abs(from.getZ() - to.getZ());
-    double hDiff = Math.sqrt(
-        Math.pow(from.getX() - to.getX(), 2f) +
-            Math.pow(from.getY() - to.getY(), 2f)
-    );
-    // Distance from camera to tap point in meters
-    return Math.sqrt(Math.pow(hDiff, 2f) + Math.pow(vDiff, 2f));
+    return Geodesy.distance(from.getX(), from.getY(), from.getZ(), to.getX(), to.getY(), to.getZ());
+  }
+
+  /**
+   * Project a point to Web Mercator. WGS84 and Web Mercator inputs take the pure-Java
+   * {@link Projection} fast path; anything else falls back to {@link GeometryEngine#project}.
+   * @param pt point to project
+   * @return the point in Web Mercator, with Z unchanged
+   */
+  public static Point toWebMercator(Point pt) {
+    SpatialReference sr = pt.getSpatialReference();
+    int wkid = (sr != null) ? sr.getWkid() : 0;
+    if (Projection.isWebMercator(wkid)) return pt;
+    if (Projection.isWgs84(wkid)) {
+      double[] xy = new double[2];
+      Projection.wgs84ToWebMercator(pt.getX(), pt.getY(), xy, 0);
+      return new Point(xy[0], xy[1], pt.getZ(), SpatialReferences.getWebMercator());
+    }
+    return (Point) GeometryEngine.project(pt, SpatialReferences.getWebMercator());
   }
 }
@@ -0,0 +1,117 @@
+package com.esri.apl.ea3d.util;
+
+import android.util.Log;
+
+import com.esri.apl.ea3d.analysis.Heightfield;
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
+import com.esri.arcgisruntime.mapping.Surface;
+
+/**
+ * Builds a Web Mercator {@link Heightfield} for the CPU analysis engines by sampling a scene's
+ * surface at every cell center of a square grid.<p/>
+ * Each cell is one elevation request; only a limited number are in flight at once, so a large grid
+ * doesn't swamp the SDK. Cells whose elevation can't be found are left as no data.
+ * Must be used on the UI thread, where the SDK calls done listeners.
+ */
+public class HeightfieldSampler {
+  private static final String TAG = "HeightfieldSampler";
+
+  public interface OnHeightfieldListener {
+    /** @param heightfield the sampled grid, or null if no cell could be sampled */
+    void onHeightfield(Heightfield heightfield);
+  }
+
+  private final int mMaxInFlight;
+
+  // Current grid; a new sample() or cancel() bumps the generation so stale results are ignored
+  private int mGeneration;
+  private boolean mSampling = false;
+  private Surface mSurface;
+  private OnHeightfieldListener mListener;
+  private float[] mHeights;
+  private int mCells;
+  private double mOriginX, mOriginY, mCellSize;
+  private int mNext, mInFlight, mDone, mFound;
+  private final double[] mLonLat = new double[2];
+
+  /** @param maxInFlight elevation requests to have outstanding at once */
+  public HeightfieldSampler(int maxInFlight) {
+    this.mMaxInFlight = Math.max(1, maxInFlight);
+  }
+
+  public boolean isSampling() {
+    return mSampling;
+  }
+
+  /**
+   * Sample a grid centered on a Web Mercator location, replacing any sampling under way
+   * @param cells cells along each side
+   * @param cellSize width and height of a cell in Web Mercator meters, which cover
+   *     cos(latitude) meters on the ground
+   */
+  public void sample(Surface surface, double centerX, double centerY, int cells, double cellSize,
+                     OnHeightfieldListener listener) {
+    cancel();
+    mSurface = surface;
+    mListener = listener;
+    mCells = cells;
+    mCellSize = cellSize;
+    mOriginX = centerX - (cells - 1) * cellSize / 2;
+    mOriginY = centerY - (cells - 1) * cellSize / 2;
+    mHeights = new float[cells * cells];
+    mNext = mInFlight = mDone = mFound = 0;
+    mSampling = true;
+    requestMore(mGeneration);
+  }
+
+  /** Drop the sampling under way; its listener isn't called */
+  public void cancel() {
+    mGeneration++;
+    mSampling = false;
+    mSurface = null;
+    mListener = null;
+    mHeights = null;
+  }
+
+  private void requestMore(final int generation) {
+    int total = mCells * mCells;
+    while (mInFlight < mMaxInFlight && mNext < total) {
+      final int cell = mNext++;
+      Projection.webMercatorToWgs84(mOriginX + (cell % mCells) * mCellSize,
+          mOriginY + (cell / mCells) * mCellSize, mLonLat, 0);
+      final ListenableFuture<Double> lfElev = mSurface.getElevationAsync(
+          new Point(mLonLat[0], mLonLat[1], SpatialReferences.getWgs84()));
+      mInFlight++;
+      lfElev.addDoneListener(new Runnable() {
+        @Override
+        public void run() {
+          if (generation != mGeneration) return;
+          double elevation = Double.NaN;
+          try {
+            if (!lfElev.isCancelled()) elevation = lfElev.get();
+          } catch (Exception e) {
+            Log.w(TAG, "Error getting elevation", e);
+          }
+          mHeights[cell] = (float) elevation;
+          if (!Double.isNaN(elevation)) mFound++;
+          mInFlight--;
+          mDone++;
+          if (mDone == mCells * mCells) finish();
+          else requestMore(generation);
+        }
+      });
+    }
+  }
+
+  private void finish() {
+    Heightfield heightfield = (mFound > 0)
+        ? new Heightfield(mHeights, mCells, mCells, mOriginX, mOriginY, mCellSize)
+        : null;
+    Log.d(TAG, "Sampled " + mFound + " of " + mCells * mCells + " cells");
+    OnHeightfieldListener listener = mListener;
+    cancel();
+    listener.onHeightfield(heightfield);
+  }
+}
@@ -0,0 +1,86 @@
+package com.esri.apl.ea3d.util;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Fixed-bucket latency histogram that doesn't allocate while recording.<p/>
+ * Latencies are kept in microseconds, in four buckets per power of two (about 19% wide), from
+ * 1 µs up to about a minute; anything longer lands in the last bucket. Percentiles are reported
+ * as the upper bound of the bucket they fall in, so they're never optimistic.
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKETS = 4;
+  private static final int MAX_EXPONENT = 26; // 2^26 µs ~ 67 s
+  static final int BUCKETS = MAX_EXPONENT * SUB_BUCKETS;
+
+  private final long[] mCounts = new long[BUCKETS];
+  private long mCount;
+  private long mMaxMicros;
+
+  /** Record the time elapsed since a {@link System#nanoTime()} reading */
+  public void recordSince(long startNanos) {
+    record(System.nanoTime() - startNanos);
+  }
+
+  public synchronized void record(long nanos) {
+    long micros = Math.max(nanos / 1000, 0);
+    mCounts[bucketFor(micros)]++;
+    mCount++;
+    if (micros > mMaxMicros) mMaxMicros = micros;
+  }
+
+  public synchronized long get_count() {
+    return mCount;
+  }
+
+  public synchronized long get_maxMicros() {
+    return mMaxMicros;
+  }
+
+  /**
+   * @param fraction e.g. 0.95 for p95
+   * @return upper bound in microseconds of the bucket holding that percentile, or 0 if empty
+   */
+  public synchronized long percentileMicros(double fraction) {
+    if (mCount == 0) return 0;
+    long rank = Math.max((long) Math.ceil(fraction * mCount), 1);
+    long seen = 0;
+    for (int iBucket = 0; iBucket < BUCKETS; iBucket++) {
+      seen += mCounts[iBucket];
+      if (seen >= rank) return Math.min(upperBound(iBucket), mMaxMicros);
+    }
+    return mMaxMicros;
+  }
+
+  public synchronized void reset() {
+    for (int iBucket = 0; iBucket < BUCKETS; iBucket++) mCounts[iBucket] = 0;
+    mCount = 0;
+    mMaxMicros = 0;
+  }
+
+  /** One line: count, then p50/p95/p99 and max in milliseconds */
+  public synchronized void dump(PrintWriter writer, String prefix, String name) {
+    writer.println(String.format(Locale.US, "%s%s: n=%d p50=%.1f p95=%.1f p99=%.1f max=%.1f",
+        prefix, name, mCount, percentileMicros(0.50) / 1000d, percentileMicros(0.95) / 1000d,
+        percentileMicros(0.99) / 1000d, mMaxMicros / 1000d));
+  }
+
+  /** Values 0-3 get their own buckets; above that, four per power of two */
+  static int bucketFor(long micros) {
+    if (micros < SUB_BUCKETS) return (int) micros;
+    int exponent = 63 - Long.numberOfLeadingZeros(micros);
+    if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+    int sub = (int) (micros >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+    return (exponent - 1) * SUB_BUCKETS + sub;
+  }
+
+  /** Smallest value in the next bucket up */
+  static long upperBound(int bucket) {
+    int next = bucket + 1;
+    if (next < SUB_BUCKETS) return next;
+    if (next >= BUCKETS) return Long.MAX_VALUE;
+    int exponent = next / SUB_BUCKETS + 1;
+    return (long) (SUB_BUCKETS + next % SUB_BUCKETS) << (exponent - 2);
+  }
+}
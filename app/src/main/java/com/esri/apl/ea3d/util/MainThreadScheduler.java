@@ -0,0 +1,25 @@
+package com.esri.apl.ea3d.util;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/** Runs {@link PortalContentEnumerator} timing on the UI thread */
+public class MainThreadScheduler implements PortalContentEnumerator.Scheduler {
+  private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+  @Override
+  public void postDelayed(Runnable r, long delayMs) {
+    mHandler.postDelayed(r, delayMs);
+  }
+
+  @Override
+  public void removeCallbacks(Runnable r) {
+    mHandler.removeCallbacks(r);
+  }
+
+  @Override
+  public long uptimeMillis() {
+    return SystemClock.uptimeMillis();
+  }
+}
@@ -0,0 +1,100 @@
+package com.esri.apl.ea3d.util;
+
+import java.util.Arrays;
+
+/**
+ * A measured path of projected (x, y, z in meters) vertices with a running prefix sum of
+ * segment lengths. Appending a vertex, removing the last one, and the length of any span
+ * of the path are all O(1) (appends are amortized, as the backing arrays grow by doubling).
+ */
+public class PathMeasurement {
+  private double[] mXyz;
+  /** mPrefix[i] is the path length from vertex 0 to vertex i */
+  private double[] mPrefix;
+  private int mCount;
+
+  public PathMeasurement() {
+    this(64);
+  }
+
+  public PathMeasurement(int initialCapacity) {
+    int capacity = Math.max(initialCapacity, 2);
+    mXyz = new double[capacity * 3];
+    mPrefix = new double[capacity];
+  }
+
+  /**
+   * Add a vertex to the end of the path
+   * @return length of the new segment, or 0 for the first vertex
+   */
+  public double append(double x, double y, double z) {
+    if (mCount == mPrefix.length) {
+      mPrefix = Arrays.copyOf(mPrefix, mCount * 2);
+      mXyz = Arrays.copyOf(mXyz, mCount * 2 * 3);
+    }
+    int j = mCount * 3;
+    mXyz[j] = x; mXyz[j + 1] = y; mXyz[j + 2] = z;
+    double segment = 0d;
+    if (mCount > 0) {
+      segment = Geodesy.distance(mXyz[j - 3], mXyz[j - 2], mXyz[j - 1], x, y, z);
+      mPrefix[mCount] = mPrefix[mCount - 1] + segment;
+    } else {
+      mPrefix[0] = 0d;
+    }
+    mCount++;
+    return segment;
+  }
+
+  /** @return false if the path was already empty */
+  public boolean removeLast() {
+    if (mCount == 0) return false;
+    mCount--;
+    return true;
+  }
+
+  public void clear() {
+    mCount = 0;
+  }
+
+  public int size() {
+    return mCount;
+  }
+
+  /** Total length of the path in meters */
+  public double length() {
+    return (mCount > 0) ? mPrefix[mCount - 1] : 0d;
+  }
+
+  /** Length in meters along the path between two vertex indexes (in either order) */
+  public double spanLength(int fromVertex, int toVertex) {
+    checkIndex(fromVertex);
+    checkIndex(toVertex);
+    return Math.abs(mPrefix[toVertex] - mPrefix[fromVertex]);
+  }
+
+  /** Length in meters of the segment ending at the given vertex; 0 for the first vertex */
+  public double segmentLength(int toVertex) {
+    checkIndex(toVertex);
+    return (toVertex > 0) ? mPrefix[toVertex] - mPrefix[toVertex - 1] : 0d;
+  }
+
+  public double getX(int vertex) {
+    checkIndex(vertex);
+    return mXyz[vertex * 3];
+  }
+
+  public double getY(int vertex) {
+    checkIndex(vertex);
+    return mXyz[vertex * 3 + 1];
+  }
+
+  public double getZ(int vertex) {
+    checkIndex(vertex);
+    return mXyz[vertex * 3 + 2];
+  }
+
+  private void checkIndex(int vertex) {
+    if (vertex < 0 || vertex >= mCount)
+      throw new IndexOutOfBoundsException("Vertex " + vertex + " of " + mCount);
+  }
+}
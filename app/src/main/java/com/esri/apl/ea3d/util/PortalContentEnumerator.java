@@ -0,0 +1,195 @@
+package com.esri.apl.ea3d.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds all of a portal user's items of one type, in the root folder and every subfolder,
+ * without blocking.<p/>
+ * Folder contents are fetched concurrently, up to a limit on requests in flight, and each
+ * folder's matching items are passed to the listener as soon as they arrive. The whole
+ * enumeration has one deadline; anything not fetched by then is abandoned. Folders that fail
+ * are skipped. Fetching goes through a {@link ContentSource} (see {@link PortalUserContentSource}
+ * for the SDK one) and timing through a {@link Scheduler}, so this class is plain Java.
+ * Must be used on the scheduler's thread, which is where the source has to call back.
+ * @param <F> folder type
+ * @param <I> item type
+ */
+public class PortalContentEnumerator<F, I> {
+  /** Fetches folder contents */
+  public interface ContentSource<F, I> {
+    /**
+     * Start fetching one folder's items
+     * @param folder the folder, or null for the root folder
+     * @return a handle to cancel the fetch with
+     */
+    Request fetch(F folder, ContentCallback<F, I> callback);
+
+    /** Whether an item is of the type being looked for */
+    boolean matches(I item);
+  }
+
+  /** Result of a {@link ContentSource#fetch}; called once, on the scheduler's thread */
+  public interface ContentCallback<F, I> {
+    /** @param subfolders folders inside the one fetched; empty if it has none */
+    void onContent(List<I> items, List<F> subfolders);
+
+    void onError(Exception e);
+  }
+
+  /** A fetch in flight */
+  public interface Request {
+    void cancel();
+  }
+
+  /** Runs the deadline on the enumerator's thread, and tells the time */
+  public interface Scheduler {
+    void postDelayed(Runnable r, long delayMs);
+
+    void removeCallbacks(Runnable r);
+
+    /** A monotonic clock, in milliseconds */
+    long uptimeMillis();
+  }
+
+  public interface Listener<F, I> {
+    /**
+     * Matching items from one folder
+     * @param folder the folder they're in, or null for the root folder
+     */
+    void onItems(F folder, List<I> items);
+
+    /** @param complete false if the deadline passed or a fetch failed before every folder was read */
+    void onFinished(boolean complete);
+  }
+
+  private final ContentSource<F, I> mSource;
+  private final Scheduler mScheduler;
+  private final int mMaxConcurrent;
+  private final long mDeadlineMs;
+  private final Listener<F, I> mListener;
+
+  private final Deque<F> mPending = new ArrayDeque<>();
+  private final Set<Fetch> mInFlight = new LinkedHashSet<>();
+  private long mDeadlineAt;
+  private boolean mStarted = false;
+  private boolean mFinished = false;
+  private boolean mComplete = true;
+
+  /**
+   * @param maxConcurrent most folder requests in flight at once
+   * @param deadlineMs time allowed for the whole enumeration
+   */
+  public PortalContentEnumerator(ContentSource<F, I> source, Scheduler scheduler, int maxConcurrent,
+                                 long deadlineMs, Listener<F, I> listener) {
+    if (maxConcurrent < 1) throw new IllegalArgumentException("Need at least one request at a time");
+    this.mSource = source;
+    this.mScheduler = scheduler;
+    this.mMaxConcurrent = maxConcurrent;
+    this.mDeadlineMs = deadlineMs;
+    this.mListener = listener;
+  }
+
+  public void start() {
+    if (mStarted) throw new IllegalStateException("Already started");
+    mStarted = true;
+    mDeadlineAt = mScheduler.uptimeMillis() + mDeadlineMs;
+    mScheduler.postDelayed(mOnDeadline, mDeadlineMs);
+    new Fetch(null).start();
+  }
+
+  /** Stop, abandoning any requests in flight. The listener isn't called again. */
+  public void cancel() {
+    if (mFinished) return;
+    mFinished = true;
+    abandon();
+  }
+
+  public boolean isFinished() {
+    return mFinished;
+  }
+
+  /** Folder requests in flight, including the root folder's */
+  public int get_inFlightCount() {
+    return mInFlight.size();
+  }
+
+  /** One folder's request; its callback is ignored once it's no longer in flight */
+  private class Fetch implements ContentCallback<F, I> {
+    private final F mFolder;
+    private Request mRequest;
+
+    Fetch(F folder) {
+      this.mFolder = folder;
+    }
+
+    void start() {
+      mInFlight.add(this);
+      Request request = mSource.fetch(mFolder, this);
+      // A source answering at once has already finished with this fetch
+      if (mInFlight.contains(this)) mRequest = request;
+    }
+
+    void cancel() {
+      if (mRequest != null) mRequest.cancel();
+    }
+
+    @Override
+    public void onContent(List<I> items, List<F> subfolders) {
+      if (!mInFlight.remove(this) || mFinished) return;
+      List<I> matches = new ArrayList<>();
+      for (I item : items)
+        if (mSource.matches(item)) matches.add(item);
+      if (!matches.isEmpty()) mListener.onItems(mFolder, matches);
+      if (mFinished) return; // The listener cancelled
+      mPending.addAll(subfolders);
+      fetchMore();
+    }
+
+    @Override
+    public void onError(Exception e) {
+      if (!mInFlight.remove(this) || mFinished) return;
+      mComplete = false;
+      fetchMore();
+    }
+  }
+
+  private void fetchMore() {
+    // The deadline runnable may be queued behind callbacks; don't start anything after it
+    if (!mFinished && mScheduler.uptimeMillis() >= mDeadlineAt) {
+      mComplete = false;
+      finish();
+      return;
+    }
+    while (!mFinished && mInFlight.size() < mMaxConcurrent && !mPending.isEmpty())
+      new Fetch(mPending.poll()).start();
+    if (!mFinished && mInFlight.isEmpty() && mPending.isEmpty()) finish();
+  }
+
+  private final Runnable mOnDeadline = new Runnable() {
+    @Override
+    public void run() {
+      if (mFinished) return;
+      mComplete = false;
+      finish();
+    }
+  };
+
+  private void finish() {
+    mFinished = true;
+    abandon();
+    mListener.onFinished(mComplete);
+  }
+
+  private void abandon() {
+    mScheduler.removeCallbacks(mOnDeadline);
+    List<Fetch> inFlight = new ArrayList<>(mInFlight);
+    mInFlight.clear();
+    mPending.clear();
+    for (Fetch fetch : inFlight) fetch.cancel();
+  }
+}
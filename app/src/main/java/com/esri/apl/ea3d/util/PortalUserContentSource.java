@@ -0,0 +1,87 @@
+package com.esri.apl.ea3d.util;
+
+import android.util.Log;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.portal.PortalFolder;
+import com.esri.arcgisruntime.portal.PortalItem;
+import com.esri.arcgisruntime.portal.PortalUser;
+import com.esri.arcgisruntime.portal.PortalUserContent;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link PortalContentEnumerator.ContentSource} over a signed-in portal user's folders.
+ * The SDK calls done listeners on the UI thread, so use it with {@link MainThreadScheduler}.
+ */
+public class PortalUserContentSource
+    implements PortalContentEnumerator.ContentSource<PortalFolder, PortalItem> {
+  private static final String TAG = "PortalUserContentSource";
+
+  private final PortalUser mUser;
+  private final PortalItem.Type mType;
+
+  /** @param type item type to look for, e.g. {@link PortalItem.Type#WEB_SCENE} */
+  public PortalUserContentSource(PortalUser user, PortalItem.Type type) {
+    this.mUser = user;
+    this.mType = type;
+  }
+
+  @Override
+  public PortalContentEnumerator.Request fetch(
+      final PortalFolder folder,
+      final PortalContentEnumerator.ContentCallback<PortalFolder, PortalItem> callback) {
+    if (folder == null) {
+      final ListenableFuture<PortalUserContent> lfContent = mUser.fetchContentAsync();
+      lfContent.addDoneListener(new Runnable() {
+        @Override
+        public void run() {
+          PortalUserContent content;
+          try {
+            content = lfContent.get();
+          } catch (Exception e) {
+            if (!lfContent.isCancelled()) Log.e(TAG, "Error getting root folder content", e);
+            callback.onError(e);
+            return;
+          }
+          callback.onContent(content.getItems(), content.getFolders());
+        }
+      });
+      return cancelling(lfContent);
+    }
+
+    final ListenableFuture<List<PortalItem>> lfFolder =
+        mUser.fetchContentInFolderAsync(folder.getFolderId());
+    lfFolder.addDoneListener(new Runnable() {
+      @Override
+      public void run() {
+        List<PortalItem> items;
+        try {
+          items = lfFolder.get();
+        } catch (Exception e) {
+          if (!lfFolder.isCancelled()) Log.i(TAG, "Error getting items in folder '"
+              + folder.getTitle() + "': " + e.getLocalizedMessage());
+          callback.onError(e);
+          return;
+        }
+        callback.onContent(items, Collections.<PortalFolder>emptyList());
+      }
+    });
+    return cancelling(lfFolder);
+  }
+
+  @Override
+  public boolean matches(PortalItem item) {
+    return item.getType() == mType;
+  }
+
+  private static PortalContentEnumerator.Request cancelling(final ListenableFuture<?> future) {
+    return new PortalContentEnumerator.Request() {
+      @Override
+      public void cancel() {
+        future.cancel(true);
+      }
+    };
+  }
+}
@@ -0,0 +1,125 @@
+package com.esri.apl.ea3d.util;
+
+/**
+ * Closed-form transforms between the spatial references this app actually uses:
+ * WGS84 geographic (4326), Web Mercator (3857/102100) and earth-centred, earth-fixed (ECEF)
+ * Cartesian coordinates on the WGS84 ellipsoid.<p/>
+ * Everything here is pure Java, so it avoids the native round trip of
+ * {@code GeometryEngine.project()} on hot gesture paths. Single-point functions write into a
+ * caller-supplied {@code double[]}; batch functions take packed coordinate arrays and may be
+ * called with the same array for input and output.
+ */
+public final class Projection {
+  public static final int WKID_WGS84 = 4326;
+  public static final int WKID_WEB_MERCATOR = 3857;
+  /** Legacy Esri WKID for Web Mercator; still common in webscene JSON */
+  public static final int WKID_WEB_MERCATOR_LEGACY = 102100;
+
+  /** WGS84 semi-major axis, in meters; also the Web Mercator sphere radius */
+  public static final double WGS84_A = 6378137d;
+  /** WGS84 flattening */
+  public static final double WGS84_F = 1d / 298.257223563;
+  private static final double WGS84_B = WGS84_A * (1d - WGS84_F);
+  private static final double WGS84_E2 = WGS84_F * (2d - WGS84_F);
+  private static final double WGS84_EP2 = WGS84_E2 / (1d - WGS84_E2);
+
+  /** Web Mercator is undefined at the poles; clamp latitude to the usual tiling limit */
+  public static final double MAX_MERCATOR_LAT = 85.0511287798066;
+
+  private Projection() {}
+
+  public static boolean isWgs84(int wkid) {
+    return wkid == WKID_WGS84;
+  }
+
+  public static boolean isWebMercator(int wkid) {
+    return wkid == WKID_WEB_MERCATOR || wkid == WKID_WEB_MERCATOR_LEGACY;
+  }
+
+  /**
+   * @param out receives Web Mercator x, y (meters) at {@code out[offset]}
+   */
+  public static void wgs84ToWebMercator(double lon, double lat, double[] out, int offset) {
+    double clampedLat = Math.max(-MAX_MERCATOR_LAT, Math.min(MAX_MERCATOR_LAT, lat));
+    out[offset] = WGS84_A * Math.toRadians(lon);
+    out[offset + 1] = WGS84_A * Math.log(Math.tan(Math.PI / 4d + Math.toRadians(clampedLat) / 2d));
+  }
+
+  /**
+   * @param out receives longitude, latitude (degrees) at {@code out[offset]}
+   */
+  public static void webMercatorToWgs84(double x, double y, double[] out, int offset) {
+    out[offset] = Math.toDegrees(x / WGS84_A);
+    out[offset + 1] = Math.toDegrees(2d * Math.atan(Math.exp(y / WGS84_A)) - Math.PI / 2d);
+  }
+
+  /**
+   * Ground meters per Web Mercator meter at a Web Mercator y: the cosine of the latitude there.
+   * Mercator distances and cell sizes are that much larger than the ground they cover.
+   */
+  public static double webMercatorGroundScale(double y) {
+    return 1d / Math.cosh(y / WGS84_A);
+  }
+
+  /**
+   * @param height ellipsoidal height in meters
+   * @param out receives ECEF x, y, z (meters) at {@code out[offset]}
+   */
+  public static void wgs84ToEcef(double lon, double lat, double height, double[] out, int offset) {
+    double phi = Math.toRadians(lat);
+    double lambda = Math.toRadians(lon);
+    double sinPhi = Math.sin(phi), cosPhi = Math.cos(phi);
+    double n = WGS84_A / Math.sqrt(1d - WGS84_E2 * sinPhi * sinPhi);
+    out[offset] = (n + height) * cosPhi * Math.cos(lambda);
+    out[offset + 1] = (n + height) * cosPhi * Math.sin(lambda);
+    out[offset + 2] = (n * (1d - WGS84_E2) + height) * sinPhi;
+  }
+
+  /**
+   * Closed-form (Bowring) inverse; sub-millimeter accurate for terrestrial and aerial positions.
+   * @param out receives longitude, latitude (degrees) and ellipsoidal height (meters) at {@code out[offset]}
+   */
+  public static void ecefToWgs84(double x, double y, double z, double[] out, int offset) {
+    double p = Math.sqrt(x * x + y * y);
+    double theta = Math.atan2(z * WGS84_A, p * WGS84_B);
+    double sinTheta = Math.sin(theta), cosTheta = Math.cos(theta);
+    double phi = Math.atan2(z + WGS84_EP2 * WGS84_B * sinTheta * sinTheta * sinTheta,
+        p - WGS84_E2 * WGS84_A * cosTheta * cosTheta * cosTheta);
+    double sinPhi = Math.sin(phi);
+    double n = WGS84_A / Math.sqrt(1d - WGS84_E2 * sinPhi * sinPhi);
+    double height = (p > 1d) ? p / Math.cos(phi) - n : Math.abs(z) - WGS84_B;
+
+    out[offset] = Math.toDegrees(Math.atan2(y, x));
+    out[offset + 1] = Math.toDegrees(phi);
+    out[offset + 2] = height;
+  }
+
+  // Batch variants. Geographic and Web Mercator arrays are packed x, y, z triples; Z is passed
+  // through unchanged between those two. ECEF arrays are packed x, y, z triples as well.
+
+  public static void wgs84ToWebMercator(double[] in, double[] out, int count) {
+    for (int i = 0, j = 0; i < count; i++, j += 3) {
+      double z = in[j + 2];
+      wgs84ToWebMercator(in[j], in[j + 1], out, j);
+      out[j + 2] = z;
+    }
+  }
+
+  public static void webMercatorToWgs84(double[] in, double[] out, int count) {
+    for (int i = 0, j = 0; i < count; i++, j += 3) {
+      double z = in[j + 2];
+      webMercatorToWgs84(in[j], in[j + 1], out, j);
+      out[j + 2] = z;
+    }
+  }
+
+  public static void wgs84ToEcef(double[] in, double[] out, int count) {
+    for (int i = 0, j = 0; i < count; i++, j += 3)
+      wgs84ToEcef(in[j], in[j + 1], in[j + 2], out, j);
+  }
+
+  public static void ecefToWgs84(double[] in, double[] out, int count) {
+    for (int i = 0, j = 0; i < count; i++, j += 3)
+      ecefToWgs84(in[j], in[j + 1], in[j + 2], out, j);
+  }
+}
@@ -0,0 +1,115 @@
+package com.esri.apl.ea3d.util;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Named spans with monotonic ({@link System#nanoTime}) timestamps, written as Chrome Trace Event
+ * JSON, which chrome://tracing and Perfetto can open.<p/>
+ * A span is begun and ended with the token {@link #begin} returns, so it can end on a different
+ * thread or in a callback. A disabled trace does nothing, and spans begun while disabled are
+ * ignored when ended.
+ */
+public class StartupTrace {
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  /** Token for spans that aren't being recorded */
+  public static final int NO_SPAN = -1;
+
+  private final long mOriginNanos = System.nanoTime();
+  private boolean _enabled;
+
+  private String[] mNames = new String[32];
+  private long[] mStarts = new long[32];
+  /** End time, or -1 while the span is still open */
+  private long[] mEnds = new long[32];
+  private long[] mThreads = new long[32];
+  private int mCount;
+  private int mOpen;
+
+  public StartupTrace(boolean enabled) {
+    this._enabled = enabled;
+  }
+
+  public synchronized boolean is_enabled() {
+    return _enabled;
+  }
+
+  /** Start a span now */
+  public synchronized int begin(String name) {
+    if (!_enabled) return NO_SPAN;
+    if (mCount == mNames.length) {
+      int capacity = mCount * 2;
+      mNames = Arrays.copyOf(mNames, capacity);
+      mStarts = Arrays.copyOf(mStarts, capacity);
+      mEnds = Arrays.copyOf(mEnds, capacity);
+      mThreads = Arrays.copyOf(mThreads, capacity);
+    }
+    mNames[mCount] = name;
+    mStarts[mCount] = System.nanoTime();
+    mEnds[mCount] = -1;
+    mThreads[mCount] = Thread.currentThread().getId();
+    mOpen++;
+    return mCount++;
+  }
+
+  /** End a span now; ending one twice, or ending {@link #NO_SPAN}, does nothing */
+  public synchronized void end(int span) {
+    if (!_enabled || span < 0 || span >= mCount || mEnds[span] >= 0) return;
+    mEnds[span] = System.nanoTime();
+    mOpen--;
+  }
+
+  /** A span from when this trace was created until now, e.g. for the first rendered frame */
+  public synchronized void sinceStart(String name) {
+    int span = begin(name);
+    if (span == NO_SPAN) return;
+    mStarts[span] = mOriginNanos;
+    end(span);
+  }
+
+  /** Spans begun but not yet ended */
+  public synchronized int get_openSpans() {
+    return mOpen;
+  }
+
+  /**
+   * Write the spans recorded so far, then stop recording. Spans still open are written as
+   * ending now.
+   */
+  public synchronized void finish(File file) throws IOException {
+    if (!_enabled) return;
+    _enabled = false;
+    long now = System.nanoTime();
+
+    File dir = file.getParentFile();
+    if (dir != null && !dir.isDirectory() && !dir.mkdirs())
+      throw new IOException("Can't create " + dir);
+    try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(new FileOutputStream(file), UTF8))) {
+      writer.beginObject();
+      writer.name("displayTimeUnit").value("ms");
+      writer.name("traceEvents").beginArray();
+      for (int i = 0; i < mCount; i++) {
+        long end = (mEnds[i] >= 0) ? mEnds[i] : now;
+        // Complete ("X") events, microseconds from trace start
+        writer.beginObject();
+        writer.name("name").value(mNames[i]);
+        writer.name("cat").value("startup");
+        writer.name("ph").value("X");
+        writer.name("ts").value((mStarts[i] - mOriginNanos) / 1000.0);
+        writer.name("dur").value((end - mStarts[i]) / 1000.0);
+        writer.name("pid").value(0);
+        writer.name("tid").value(mThreads[i]);
+        if (mEnds[i] < 0) writer.name("args").beginObject().name("unfinished").value(true).endObject();
+        writer.endObject();
+      }
+      writer.endArray();
+      writer.endObject();
+    }
+  }
+}
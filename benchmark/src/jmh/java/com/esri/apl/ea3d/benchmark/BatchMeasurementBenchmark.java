@@ -0,0 +1,61 @@
+package com.esri.apl.ea3d.benchmark;
+
+import com.esri.apl.ea3d.analysis.BatchMeasurement;
+import com.esri.apl.ea3d.analysis.MeasurementTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BatchMeasurement from one observer to targets scattered within about 5 km of it: a site's
+ * worth of assets, and a large imported list. Threads = 1 measures serially.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BatchMeasurementBenchmark {
+  private static final double LON = -117.195, LAT = 34.057, Z = 400;
+
+  @Param({"250", "100000"})
+  public int targets;
+
+  @Param({"1", "4"})
+  public int threads;
+
+  private double[] mTargets;
+  private ExecutorService mExecutor;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(42L);
+    mTargets = new double[3 * targets];
+    for (int i = 0; i < targets; i++) {
+      mTargets[3 * i] = LON + (random.nextDouble() - 0.5) * 0.1;
+      mTargets[3 * i + 1] = LAT + (random.nextDouble() - 0.5) * 0.1;
+      mTargets[3 * i + 2] = Z + (random.nextDouble() - 0.5) * 200;
+    }
+    mExecutor = (threads > 1) ? Executors.newFixedThreadPool(threads) : null;
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (mExecutor != null) mExecutor.shutdown();
+  }
+
+  @Benchmark
+  public MeasurementTable measure() throws InterruptedException {
+    return BatchMeasurement.compute(LON, LAT, Z, mTargets, targets, mExecutor, threads);
+  }
+}
@@ -0,0 +1,52 @@
+package com.esri.apl.ea3d.benchmark;
+
+import com.esri.apl.ea3d.model.CameraSpec;
+import com.esri.apl.ea3d.util.CameraPath;
+import com.esri.apl.ea3d.util.Easing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Camera flights between two slides about 3 km apart (Web Mercator, as webscenes store them):
+ * sampling a whole path, as on a cache miss, and interpolating one frame along it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CameraPathBenchmark {
+  private static final int SAMPLES = 120;
+
+  private final CameraSpec mFrom =
+      new CameraSpec(-13046000, 4036000, 1200, 102100, 20, 65, 0);
+  private final CameraSpec mTo =
+      new CameraSpec(-13043500, 4037800, 450, 102100, 310, 75, 0);
+  private CameraPath mPath;
+  private final double[] mOut = new double[CameraPath.STRIDE];
+  private double mT;
+
+  @Setup
+  public void setup() {
+    mPath = CameraPath.between(mFrom, mTo, SAMPLES, Easing.EASE_IN_OUT);
+  }
+
+  @Benchmark
+  public CameraPath samplePath() {
+    return CameraPath.between(mFrom, mTo, SAMPLES, Easing.EASE_IN_OUT);
+  }
+
+  @Benchmark
+  public double[] frame() {
+    mT += 1d / 240;
+    if (mT > 1) mT = 0;
+    mPath.sampleAt(mT, mOut, 0);
+    return mOut;
+  }
+}
@@ -0,0 +1,58 @@
+package com.esri.apl.ea3d.benchmark;
+
+import com.esri.apl.ea3d.util.CameraTrajectory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CameraTrajectory on a walkthrough-like camera: walking pace at 60 samples a second, slowly
+ * turning. Recording one frame into a full ring (so every append also drops the oldest sample),
+ * and decoding a whole full ring for playback.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CameraTrajectoryBenchmark {
+  private static final int CAPACITY_BYTES = 512 * 1024;
+  private static final double LON = -117.195, LAT = 34.057;
+
+  private CameraTrajectory mTrajectory;
+  private final double[] mOut = new double[CameraTrajectory.STRIDE];
+  private long mFrame;
+
+  @Setup
+  public void setup() {
+    mTrajectory = new CameraTrajectory(CAPACITY_BYTES);
+    while (mTrajectory.get_usedBytes() < CAPACITY_BYTES - 1024) appendFrame();
+  }
+
+  private void appendFrame() {
+    long i = mFrame++;
+    double walked = i * 1.4 / 60 * 1e-5;
+    mTrajectory.append(i * 16, LON + walked * Math.cos(i * 1e-4), LAT + walked * Math.sin(i * 1e-4),
+        420 + Math.sin(i * 1e-2), (i * 0.05) % 360, 80 + Math.sin(i * 1e-3), 0);
+  }
+
+  @Benchmark
+  public int recordFrame() {
+    appendFrame();
+    return mTrajectory.get_count();
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public double decodeAll() {
+    CameraTrajectory.Cursor cursor = mTrajectory.cursor();
+    double sum = 0;
+    while (cursor.next(mOut, 0)) sum += mOut[1];
+    return sum;
+  }
+}
@@ -0,0 +1,108 @@
+package com.esri.apl.ea3d.benchmark;
+
+import com.esri.apl.ea3d.util.Geodesy;
+import com.esri.apl.ea3d.util.Projection;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-tap measurement math: GeometryUtils.distance (which delegates to Geodesy.distance) and
+ * the bearing/midpoint used by MeasurementTouchListener. The legacy* benchmarks keep the
+ * original Math.pow/allocating implementations as a baseline for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GeometryBenchmark {
+  @Param({"1", "1000"})
+  public int pointCount;
+
+  private double[] mFromXyz, mToXyz, mFromLonLat, mToLonLat, mOut, mOutXyz;
+
+  @Setup
+  public void setup() {
+    Random rnd = new Random(7L);
+    mFromXyz = new double[pointCount * 3]; mToXyz = new double[pointCount * 3];
+    mFromLonLat = new double[pointCount * 2]; mToLonLat = new double[pointCount * 2];
+    for (int i = 0; i < pointCount; i++) {
+      mFromLonLat[i * 2] = -117 + rnd.nextDouble(); mFromLonLat[i * 2 + 1] = 34 + rnd.nextDouble();
+      mToLonLat[i * 2] = -117 + rnd.nextDouble(); mToLonLat[i * 2 + 1] = 34 + rnd.nextDouble();
+      Projection.wgs84ToWebMercator(mFromLonLat[i * 2], mFromLonLat[i * 2 + 1], mFromXyz, i * 3);
+      Projection.wgs84ToWebMercator(mToLonLat[i * 2], mToLonLat[i * 2 + 1], mToXyz, i * 3);
+      mFromXyz[i * 3 + 2] = 500 + rnd.nextDouble() * 1000;
+      mToXyz[i * 3 + 2] = rnd.nextDouble() * 100;
+    }
+    mOut = new double[pointCount];
+    mOutXyz = new double[pointCount * 3];
+  }
+
+  @Benchmark
+  public void distance(Blackhole bh) {
+    for (int i = 0, j = 0; i < pointCount; i++, j += 3)
+      bh.consume(Geodesy.distance(mFromXyz[j], mFromXyz[j + 1], mFromXyz[j + 2],
+          mToXyz[j], mToXyz[j + 1], mToXyz[j + 2]));
+  }
+
+  @Benchmark
+  public double[] distanceBatch() {
+    Geodesy.distances(mFromXyz, mToXyz, mOut, pointCount);
+    return mOut;
+  }
+
+  @Benchmark
+  public void legacyDistance(Blackhole bh) {
+    for (int i = 0, j = 0; i < pointCount; i++, j += 3) {
+      double vDiff = Math.abs(mFromXyz[j + 2] - mToXyz[j + 2]);
+      double hDiff = Math.sqrt(Math.pow(mFromXyz[j] - mToXyz[j], 2f) + Math.pow(mFromXyz[j + 1] - mToXyz[j + 1], 2f));
+      bh.consume(Math.sqrt(Math.pow(hDiff, 2f) + Math.pow(vDiff, 2f)));
+    }
+  }
+
+  @Benchmark
+  public void bearing(Blackhole bh) {
+    for (int i = 0, j = 0; i < pointCount; i++, j += 2)
+      bh.consume(Geodesy.bearing(mFromLonLat[j], mFromLonLat[j + 1], mToLonLat[j], mToLonLat[j + 1]));
+  }
+
+  @Benchmark
+  public void legacyBearing(Blackhole bh) {
+    for (int i = 0, j = 0; i < pointCount; i++, j += 2) {
+      double lonDiff = mToLonLat[j] - mFromLonLat[j];
+      double y = Math.sin(Math.toRadians(lonDiff)) * Math.cos(Math.toRadians(mToLonLat[j + 1]));
+      double x = Math.cos(Math.toRadians(mFromLonLat[j + 1])) * Math.sin(Math.toRadians(mToLonLat[j + 1])) -
+          Math.sin(Math.toRadians(mFromLonLat[j + 1])) * Math.cos(Math.toRadians(mToLonLat[j + 1])) *
+              Math.cos(Math.toRadians(lonDiff));
+      bh.consume((Math.toDegrees(Math.atan2(y, x)) + 360) % 360);
+    }
+  }
+
+  @Benchmark
+  public double[] midpointBatch() {
+    Geodesy.midpoints(mFromXyz, mToXyz, mOutXyz, pointCount);
+    return mOutXyz;
+  }
+
+  /** Original midpoint allocated a result Point per call; a double[] stands in for it here */
+  @Benchmark
+  public void legacyMidpoint(Blackhole bh) {
+    for (int i = 0, j = 0; i < pointCount; i++, j += 3) {
+      double dx = (mToXyz[j] - mFromXyz[j]) / 2d;
+      double dy = (mToXyz[j + 1] - mFromXyz[j + 1]) / 2d;
+      double dz = (Double.isNaN(mFromXyz[j + 2]) || Double.isNaN(mToXyz[j + 2])) ?
+          Double.NaN : (mToXyz[j + 2] - mFromXyz[j + 2]) / 2d;
+      bh.consume(new double[] { mFromXyz[j] + dx, mFromXyz[j + 1] + dy,
+          Double.isNaN(dz) ? Double.NaN : mFromXyz[j + 2] + dz });
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package com.esri.apl.ea3d.benchmark;
+
+import com.esri.apl.ea3d.model.LayerIdDictionary;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Slide switching in MainActivity.moveToBookmark: the original List.contains scan over every
+ * layer versus the bitset diff. Each benchmark flips through all slides once; a boolean[]
+ * stands in for the layers, and setVisible calls are counted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LayerVisibilityBenchmark {
+  private static final int SLIDE_COUNT = 20;
+
+  @Param({"50", "500"})
+  public int layerCount;
+
+  private List<String> mLayerIds;
+  private List<List<String>> mSlideLayerIds;
+  private LayerIdDictionary mDictionary;
+  private BitSet[] mSlideBits;
+  private boolean[] mLayerVisible;
+  private BitSet mVisible;
+
+  @Setup
+  public void setup() {
+    Random rnd = new Random(3L);
+    mLayerIds = new ArrayList<>(layerCount);
+    for (int i = 0; i < layerCount; i++) mLayerIds.add(WebscenePayloads.layerId(i));
+    mDictionary = new LayerIdDictionary(mLayerIds);
+
+    mSlideLayerIds = new ArrayList<>(SLIDE_COUNT);
+    mSlideBits = new BitSet[SLIDE_COUNT];
+    for (int s = 0; s < SLIDE_COUNT; s++) {
+      List<String> ids = new ArrayList<>();
+      for (String id : mLayerIds) if (rnd.nextInt(4) != 0) ids.add(id);
+      mSlideLayerIds.add(ids);
+      mSlideBits[s] = mDictionary.toBits(ids);
+    }
+    mLayerVisible = new boolean[layerCount];
+    mVisible = new BitSet(layerCount);
+  }
+
+  @Benchmark
+  public int legacyContainsScan() {
+    int setVisibleCalls = 0;
+    for (List<String> slideIds : mSlideLayerIds) {
+      for (int i = 0; i < layerCount; i++) {
+        mLayerVisible[i] = slideIds.contains(mLayerIds.get(i));
+        setVisibleCalls++;
+      }
+    }
+    return setVisibleCalls;
+  }
+
+  @Benchmark
+  public int bitsetDiff() {
+    int setVisibleCalls = 0;
+    for (BitSet visible : mSlideBits) {
+      BitSet changed = (BitSet) mVisible.clone();
+      changed.xor(visible);
+      for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+        mLayerVisible[i] = visible.get(i);
+        setVisibleCalls++;
+      }
+      mVisible.clear();
+      mVisible.or(visible);
+    }
+    return setVisibleCalls;
+  }
+}
@@ -0,0 +1,62 @@
+package com.esri.apl.ea3d.benchmark;
+
+import com.esri.apl.ea3d.analysis.Heightfield;
+import com.esri.apl.ea3d.analysis.HeightfieldLineOfSight;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HeightfieldLineOfSight over synthetic hills at 10 m cells: a single sightline across the
+ * grid, and batches of 1000 targets from one observer and as independent pairs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LineOfSightBenchmark {
+  private static final int BATCH = 1000;
+  private static final double OBSERVER_HEIGHT_M = 2;
+
+  @Param({"256", "1024"})
+  public int gridSize;
+
+  private HeightfieldLineOfSight mLos;
+  private double[] mObserver, mObservers, mTargets, mOut;
+
+  @Setup
+  public void setup() {
+    Heightfield hf = SyntheticTerrain.hills(gridSize, 10, 42L);
+    mLos = new HeightfieldLineOfSight(hf);
+    mObserver = SyntheticTerrain.pointsOn(hf, 1, OBSERVER_HEIGHT_M, 1L);
+    mObservers = SyntheticTerrain.pointsOn(hf, BATCH, OBSERVER_HEIGHT_M, 2L);
+    mTargets = SyntheticTerrain.pointsOn(hf, BATCH, 0, 3L);
+    mOut = new double[BATCH];
+  }
+
+  /** Corner to corner, so the whole diagonal is marched unless something blocks it */
+  @Benchmark
+  public double singleRayDiagonal() {
+    Heightfield hf = mLos.get_heightfield();
+    double span = (gridSize - 1) * hf.get_cellSize();
+    double x0 = hf.get_originX(), y0 = hf.get_originY();
+    return mLos.obstruction(x0, y0, 10000, x0 + span, y0 + span, 10000);
+  }
+
+  @Benchmark
+  public int batchOneObserver() {
+    return mLos.obstructions(mObserver[0], mObserver[1], mObserver[2], mTargets, BATCH, mOut);
+  }
+
+  @Benchmark
+  public int batchPairs() {
+    return mLos.obstructions(mObservers, mTargets, BATCH, mOut);
+  }
+}
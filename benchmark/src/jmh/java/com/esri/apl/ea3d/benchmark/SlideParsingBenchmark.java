@@ -0,0 +1,140 @@
+package com.esri.apl.ea3d.benchmark;
+
+import com.esri.apl.ea3d.model.CameraSpec;
+import com.esri.apl.ea3d.model.Slide;
+import com.esri.apl.ea3d.model.SlideCache;
+import com.esri.apl.ea3d.model.SlideIndex;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scene-open cost of turning webscene slides into bookmarks.<p/>
+ * Bookmark3D and CameraSerialization finish by constructing ArcGIS Runtime Camera/Point
+ * objects, which are backed by native code and can't load on a plain JVM. These benchmarks
+ * cover everything up to that boundary: the same Gson-tree and unsupported-JSON map walks the
+ * Bookmark3D constructors do (via Slide), and the decoding half of
+ * CameraSerialization.cameraFromJSON/cameraFromUnsupportedJSON (via CameraSpec).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SlideParsingBenchmark {
+  @Param({"10", "100", "1000", "10000"})
+  public int slideCount;
+
+  private String mWebsceneJson;
+  private byte[] mWebsceneBytes;
+  private SlideIndex mSlideIndex;
+  private File mCacheDir;
+  private List<JsonObject> mJsonCameras;
+  private List<Map<String, Object>> mUnsupportedSlides;
+  private List<Map<String, Object>> mUnsupportedCameras;
+
+  @Setup
+  public void setup() {
+    mWebsceneJson = WebscenePayloads.webscene(slideCount, 42L);
+    mWebsceneBytes = mWebsceneJson.getBytes(Charset.forName("UTF-8"));
+    try {
+      mSlideIndex = SlideIndex.parse(mWebsceneBytes);
+      mCacheDir = Files.createTempDirectory("slidecache").toFile();
+      SlideCache.write(mCacheDir, "bench", 1L, mSlideIndex.toSlides());
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+
+    JsonArray slides = slidesFromJson(mWebsceneJson);
+    mJsonCameras = new ArrayList<>(slides.size());
+    for (JsonElement slide : slides)
+      mJsonCameras.add(slide.getAsJsonObject().getAsJsonObject("viewpoint").getAsJsonObject("camera"));
+
+    // ArcGISScene.getUnsupportedJson() hands back nested maps and lists with Double numbers,
+    // which is also what Gson produces for an untyped Map.
+    Map<String, Object> webscene = new Gson().fromJson(mWebsceneJson, Map.class);
+    Map<String, Object> presentation = (Map<String, Object>) webscene.get("presentation");
+    mUnsupportedSlides = (List<Map<String, Object>>) presentation.get("slides");
+    mUnsupportedCameras = new ArrayList<>(mUnsupportedSlides.size());
+    for (Map<String, Object> slide : mUnsupportedSlides)
+      mUnsupportedCameras.add((Map<String, Object>)
+          ((Map<String, Object>) slide.get("viewpoint")).get("camera"));
+  }
+
+  @TearDown
+  public void tearDown() {
+    SlideCache.fileFor(mCacheDir, "bench").delete();
+    mCacheDir.delete();
+  }
+
+  private static JsonArray slidesFromJson(String json) {
+    return new JsonParser().parse(json).getAsJsonObject()
+        .getAsJsonObject("presentation").getAsJsonArray("slides");
+  }
+
+  /** Bookmark3D(JsonObject) path, including parsing the webscene text into a Gson tree */
+  @Benchmark
+  public void slidesFromGsonTree(Blackhole bh) {
+    for (JsonElement slide : slidesFromJson(mWebsceneJson))
+      bh.consume(new Slide(slide.getAsJsonObject()));
+  }
+
+  /** Bookmark3D(Map) path, as used by MainActivity.loadWebscene */
+  @Benchmark
+  public void slidesFromUnsupportedJson(Blackhole bh) {
+    for (Map<String, Object> slide : mUnsupportedSlides)
+      bh.consume(new Slide(slide));
+  }
+
+  /** Streaming index: ids and titles only, as done at scene open */
+  @Benchmark
+  public SlideIndex slideIndexFromStream() throws IOException {
+    return SlideIndex.parse(mWebsceneBytes);
+  }
+
+  /** Lazy decode of one slide's camera and layers when chosen, taken from the middle of the deck */
+  @Benchmark
+  public Slide slideDetailsOnDemand() {
+    Slide slide = new Slide(null, null, mSlideIndex, slideCount / 2);
+    slide.get_cameraSpec();
+    return slide;
+  }
+
+  /** Cold-start path: map the binary slide cache and read ids and titles */
+  @Benchmark
+  public SlideCache slideCacheOpen() throws IOException {
+    return SlideCache.open(mCacheDir, "bench");
+  }
+
+  @Benchmark
+  public void cameraFromJSON(Blackhole bh) {
+    for (JsonObject camera : mJsonCameras)
+      bh.consume(CameraSpec.fromJSON(camera));
+  }
+
+  @Benchmark
+  public void cameraFromUnsupportedJSON(Blackhole bh) {
+    for (Map<String, Object> camera : mUnsupportedCameras)
+      bh.consume(CameraSpec.fromUnsupportedJSON(camera));
+  }
+}
@@ -0,0 +1,61 @@
+package com.esri.apl.ea3d.benchmark;
+
+import com.esri.apl.ea3d.analysis.Heightfield;
+import com.esri.apl.ea3d.analysis.RadialViewshed;
+import com.esri.apl.ea3d.analysis.ViewshedRaster;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RadialViewshed over synthetic hills at 10 m cells, from the middle of the grid, at the
+ * viewshed slider's shortest and longest distances. Threads = 1 runs the sweep serially.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ViewshedBenchmark {
+  private static final int GRID_SIZE = 1024;
+  private static final double CELL_SIZE_M = 10;
+
+  @Param({"200", "5000"})
+  public double radius;
+
+  @Param({"1", "4"})
+  public int threads;
+
+  private RadialViewshed mViewshed;
+  private ExecutorService mExecutor;
+  private double mX, mY, mZ;
+
+  @Setup
+  public void setup() {
+    Heightfield hf = SyntheticTerrain.hills(GRID_SIZE, CELL_SIZE_M, 42L);
+    mViewshed = new RadialViewshed(hf);
+    mX = hf.get_originX() + GRID_SIZE / 2 * CELL_SIZE_M;
+    mY = hf.get_originY() + GRID_SIZE / 2 * CELL_SIZE_M;
+    mZ = hf.elevationAt(mX, mY) + 2;
+    mExecutor = (threads > 1) ? Executors.newFixedThreadPool(threads) : null;
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (mExecutor != null) mExecutor.shutdown();
+  }
+
+  @Benchmark
+  public ViewshedRaster viewshed() throws InterruptedException {
+    return mViewshed.compute(mX, mY, mZ, radius, 0, 1, mExecutor, Math.max(1, threads * 2));
+  }
+}
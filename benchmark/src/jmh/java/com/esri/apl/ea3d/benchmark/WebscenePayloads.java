@@ -0,0 +1,63 @@
+package com.esri.apl.ea3d.benchmark;
+
+import java.util.Random;
+
+/** Builds synthetic webscene JSON with a presentation of any number of slides */
+final class WebscenePayloads {
+  /** Distinct operational layers referenced by the synthetic slides */
+  static final int LAYER_COUNT = 200;
+  /** Visible layers per slide */
+  static final int VISIBLE_LAYERS_PER_SLIDE = 20;
+
+  private WebscenePayloads() {}
+
+  static String layerId(int i) {
+    return "layer-" + Integer.toHexString(0x10000 + i);
+  }
+
+  /**
+   * @param slideCount number of presentation slides
+   * @param seed random seed, so runs are repeatable
+   * @return webscene JSON text, shaped like the portal item data
+   */
+  static String webscene(int slideCount, long seed) {
+    Random rnd = new Random(seed);
+    StringBuilder sb = new StringBuilder(slideCount * 1200);
+    sb.append("{\"operationalLayers\":[");
+    for (int i = 0; i < LAYER_COUNT; i++) {
+      if (i > 0) sb.append(',');
+      sb.append("{\"id\":\"").append(layerId(i)).append("\",\"title\":\"Layer ").append(i)
+          .append("\",\"layerType\":\"ArcGISSceneServiceLayer\",\"visibility\":true}");
+    }
+    sb.append("],\"presentation\":{\"slides\":[");
+    for (int i = 0; i < slideCount; i++) {
+      if (i > 0) sb.append(',');
+      appendSlide(sb, i, rnd);
+    }
+    sb.append("]},\"version\":\"1.12\"}");
+    return sb.toString();
+  }
+
+  private static void appendSlide(StringBuilder sb, int i, Random rnd) {
+    sb.append("{\"id\":\"slide_").append(i).append("\",")
+        .append("\"title\":{\"text\":\"Slide ").append(i).append("\"},")
+        .append("\"thumbnail\":{\"url\":\"data:image/png;base64,iVBORw0KGgoAAAANSUhEUgAAAAE\"},")
+        .append("\"viewpoint\":{\"rotation\":0,\"scale\":").append(1000 + rnd.nextInt(100000)).append(',')
+        .append("\"targetGeometry\":{\"spatialReference\":{\"wkid\":102100},\"x\":").append(rnd.nextDouble() * 1e6)
+        .append(",\"y\":").append(rnd.nextDouble() * 1e6).append("},")
+        .append("\"camera\":{\"position\":{\"spatialReference\":{\"wkid\":102100},")
+        .append("\"x\":").append(-1.3e7 + rnd.nextDouble() * 1e5)
+        .append(",\"y\":").append(4.0e6 + rnd.nextDouble() * 1e5)
+        .append(",\"z\":").append(100 + rnd.nextDouble() * 5000).append("},")
+        .append("\"heading\":").append(rnd.nextDouble() * 360)
+        .append(",\"tilt\":").append(rnd.nextDouble() * 90).append("}},")
+        .append("\"visibleLayers\":[");
+    int first = rnd.nextInt(LAYER_COUNT);
+    for (int j = 0; j < VISIBLE_LAYERS_PER_SLIDE; j++) {
+      if (j > 0) sb.append(',');
+      sb.append("{\"id\":\"").append(layerId((first + j * 7) % LAYER_COUNT)).append("\"}");
+    }
+    sb.append("],\"environment\":{\"lighting\":{\"date\":\"2018-06-21T19:00:00.000Z\",")
+        .append("\"directShadowsEnabled\":false}}}");
+  }
+}
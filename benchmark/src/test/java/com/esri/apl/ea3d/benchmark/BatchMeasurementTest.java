@@ -0,0 +1,50 @@
+package com.esri.apl.ea3d.benchmark;
+
+import com.esri.apl.ea3d.analysis.BatchMeasurement;
+import com.esri.apl.ea3d.analysis.MeasurementTable;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchMeasurementTest {
+  private static final double LON = -117.195, LAT = 34.057, Z = 400;
+
+  private static double[] targets(int count) {
+    Random random = new Random(17L);
+    double[] targets = new double[3 * count];
+    for (int i = 0; i < count; i++) {
+      targets[3 * i] = LON + (random.nextDouble() - 0.5) * 0.1;
+      targets[3 * i + 1] = LAT + (random.nextDouble() - 0.5) * 0.1;
+      targets[3 * i + 2] = Z + (random.nextDouble() - 0.5) * 200;
+    }
+    return targets;
+  }
+
+  @Test
+  public void siteSizedBatchIsSplitAndMatchesSerial() throws InterruptedException {
+    int count = 250;
+    double[] targets = targets(count);
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(4, 4, 0, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>());
+    try {
+      MeasurementTable serial = BatchMeasurement.compute(LON, LAT, Z, targets, count, null, 4);
+      MeasurementTable chunked = BatchMeasurement.compute(LON, LAT, Z, targets, count, executor, 4);
+
+      assertTrue("A few hundred targets should run in chunks", executor.getTaskCount() > 1);
+      for (int i = 0; i < count; i++) {
+        assertEquals(serial.distanceAt(i), chunked.distanceAt(i), 0);
+        assertEquals(serial.bearingAt(i), chunked.bearingAt(i), 0);
+        assertEquals(serial.elevationAngleAt(i), chunked.elevationAngleAt(i), 0);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
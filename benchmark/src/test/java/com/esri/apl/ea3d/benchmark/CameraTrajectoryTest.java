@@ -0,0 +1,88 @@
+package com.esri.apl.ea3d.benchmark;
+
+import com.esri.apl.ea3d.util.CameraTrajectory;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CameraTrajectoryTest {
+  private static final int MAGIC = 0x45413354, VERSION = 1;
+
+  private static CameraTrajectory walk(int capacityBytes, int samples) {
+    CameraTrajectory trajectory = new CameraTrajectory(capacityBytes);
+    for (int i = 0; i < samples; i++) {
+      trajectory.append(16L * i, -117.195 + i * 1e-6, 34.057, 400 + i * 0.01, i * 0.1 % 360, 75, 0);
+    }
+    return trajectory;
+  }
+
+  private static byte[] save(CameraTrajectory trajectory) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    trajectory.writeTo(out);
+    return out.toByteArray();
+  }
+
+  private static void assertRejected(byte[] file) {
+    try {
+      CameraTrajectory.readFrom(new ByteArrayInputStream(file));
+      fail("Loaded a corrupt trajectory");
+    } catch (IOException expected) {
+      // Reported as a bad file rather than running out of memory
+    }
+  }
+
+  @Test
+  public void roundTripKeepsSamplesButNotSpareCapacity() throws IOException {
+    CameraTrajectory saved = walk(512 * 1024, 500);
+
+    CameraTrajectory loaded = CameraTrajectory.readFrom(new ByteArrayInputStream(save(saved)));
+
+    assertEquals(saved.get_count(), loaded.get_count());
+    assertEquals(saved.get_usedBytes(), loaded.get_usedBytes());
+    assertTrue(loaded.get_capacityBytes() < saved.get_capacityBytes());
+    CameraTrajectory.Cursor a = saved.cursor(), b = loaded.cursor();
+    double[] sa = new double[CameraTrajectory.STRIDE], sb = new double[CameraTrajectory.STRIDE];
+    while (a.next(sa, 0)) {
+      assertTrue(b.next(sb, 0));
+      assertArrayEquals(sa, sb, 0);
+    }
+    assertFalse(b.next(sb, 0));
+  }
+
+  @Test
+  public void hugeCapacityIsRejected() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream data = new DataOutputStream(bytes);
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeInt(Integer.MAX_VALUE);
+    data.writeInt(0);
+
+    assertRejected(bytes.toByteArray());
+  }
+
+  @Test
+  public void moreSamplesThanBytesIsRejected() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream data = new DataOutputStream(bytes);
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeInt(1024);
+    data.writeInt(Integer.MAX_VALUE);
+    for (int f = 0; f < 7; f++) data.writeLong(0);
+    data.writeInt(14);
+    data.write(new byte[14]);
+
+    assertRejected(bytes.toByteArray());
+  }
+}
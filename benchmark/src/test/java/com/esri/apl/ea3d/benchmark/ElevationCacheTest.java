@@ -0,0 +1,55 @@
+package com.esri.apl.ea3d.benchmark;
+
+import com.esri.apl.ea3d.util.ElevationCache;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class ElevationCacheTest {
+  @Test
+  public void locationsInACellShareItsKey() {
+    ElevationCache cache = new ElevationCache(0.001, 16);
+    long key = cache.keyFor(-117.1953, 34.0562);
+
+    assertEquals(key, cache.keyFor(-117.1959, 34.0569));
+    assertNotEquals(key, cache.keyFor(-117.1949, 34.0562));
+    assertNotEquals(key, cache.keyFor(-117.1953, 34.0571));
+    assertEquals(-117.1955, cache.centerLon(key), 1e-9);
+    assertEquals(34.0565, cache.centerLat(key), 1e-9);
+  }
+
+  @Test
+  public void finestResolutionKeepsCellsApart() {
+    ElevationCache cache = new ElevationCache(1e-7, 16);
+
+    assertNotEquals(cache.keyFor(179.9999999, -89.9999999), cache.keyFor(-179.9999999, 89.9999999));
+    assertEquals(-179.99999995, cache.centerLon(cache.keyFor(-179.9999999, 0)), 1e-9);
+    assertEquals(89.99999995, cache.centerLat(cache.keyFor(0, 89.9999999)), 1e-9);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void tooFineResolutionIsRejected() {
+    new ElevationCache(8e-8, 16);
+  }
+
+  @Test
+  public void leastRecentlyUsedIsEvicted() {
+    ElevationCache cache = new ElevationCache(0.001, 2);
+    long a = cache.keyFor(0, 0), b = cache.keyFor(1, 1), c = cache.keyFor(2, 2);
+    cache.put(a, 10);
+    cache.put(b, 20);
+    assertEquals(10, cache.get(a), 0); // a is now more recent than b
+
+    cache.put(c, 30);
+
+    assertEquals(2, cache.size());
+    assertNull(cache.get(b));
+    assertEquals(10, cache.get(a), 0);
+    assertEquals(30, cache.get(c), 0);
+    assertEquals(3, cache.get_hits());
+    assertEquals(1, cache.get_misses());
+  }
+}
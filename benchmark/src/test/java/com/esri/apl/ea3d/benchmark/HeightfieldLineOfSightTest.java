@@ -0,0 +1,82 @@
+package com.esri.apl.ea3d.benchmark;
+
+import com.esri.apl.ea3d.analysis.Heightfield;
+import com.esri.apl.ea3d.analysis.HeightfieldLineOfSight;
+
+import org.junit.Test;
+
+import static com.esri.apl.ea3d.benchmark.SyntheticTerrain.CELL;
+import static com.esri.apl.ea3d.benchmark.SyntheticTerrain.flat;
+import static com.esri.apl.ea3d.benchmark.SyntheticTerrain.x;
+import static com.esri.apl.ea3d.benchmark.SyntheticTerrain.y;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HeightfieldLineOfSightTest {
+  private static final double EPSILON = 1e-9;
+
+  /** Level ground at 0 with a one-cell-thick north-south wall in column {@code wallColumn} */
+  private static Heightfield wall(int size, int wallColumn, float wallHeight) {
+    Heightfield hf = flat(size, 0);
+    for (int r = 0; r < size; r++) hf.get_heights()[r * size + wallColumn] = wallHeight;
+    return hf;
+  }
+
+  @Test
+  public void flatTerrainIsAllVisible() {
+    Heightfield hf = flat(64, 300);
+    HeightfieldLineOfSight los = new HeightfieldLineOfSight(hf);
+    double[] targets = SyntheticTerrain.pointsOn(hf, 500, 0, 7);
+    double[] obstructions = new double[500];
+
+    int visible = los.obstructions(x(32), y(32), 302, targets, 500, obstructions);
+
+    assertEquals(500, visible);
+    for (double t : obstructions) assertEquals(HeightfieldLineOfSight.VISIBLE, t, 0);
+  }
+
+  @Test
+  public void wallBlocksWhereItRises() {
+    // Sightline level at 10 m from column 0 to column 40; the wall in column 20 rises linearly
+    // from column 19 in the interpolated surface, and samples are half a cell apart, so the first
+    // sample above 10 m is at column 19.5
+    Heightfield hf = wall(64, 20, 100);
+    HeightfieldLineOfSight los = new HeightfieldLineOfSight(hf);
+
+    double t = los.obstruction(x(0), y(10), 10, x(40), y(10), 10);
+
+    assertEquals(19.5 / 40, t, EPSILON);
+    assertFalse(los.isVisible(x(0), y(10), 10, x(40), y(10), 10));
+  }
+
+  @Test
+  public void sightlineOverTheWallIsVisible() {
+    Heightfield hf = wall(64, 20, 100);
+    HeightfieldLineOfSight los = new HeightfieldLineOfSight(hf);
+
+    assertTrue(los.isVisible(x(0), y(10), 150, x(40), y(10), 150));
+    // Standing on the wall's side of the target doesn't block it
+    assertTrue(los.isVisible(x(25), y(10), 10, x(40), y(10), 0));
+  }
+
+  @Test
+  public void batchMatchesSingle() {
+    Heightfield hf = SyntheticTerrain.hills(128, CELL, 3);
+    HeightfieldLineOfSight los = new HeightfieldLineOfSight(hf);
+    double[] targets = SyntheticTerrain.pointsOn(hf, 300, 2, 11);
+    double[] obstructions = new double[300];
+    double ox = x(64), oy = y(64), oz = hf.elevationAt(ox, oy) + 2;
+
+    int visible = los.obstructions(ox, oy, oz, targets, 300, obstructions);
+
+    int expectedVisible = 0;
+    for (int i = 0; i < 300; i++) {
+      double t = los.obstruction(ox, oy, oz, targets[3 * i], targets[3 * i + 1], targets[3 * i + 2]);
+      assertEquals(t, obstructions[i], 0);
+      if (t == HeightfieldLineOfSight.VISIBLE) expectedVisible++;
+    }
+    assertEquals(expectedVisible, visible);
+    assertTrue("Hills should hide some targets", visible < 300);
+  }
+}
@@ -0,0 +1,266 @@
+package com.esri.apl.ea3d.benchmark;
+
+import com.esri.apl.ea3d.util.PortalContentEnumerator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the enumerator against a stand-in portal whose folders answer only when the test says so,
+ * on a scheduler whose clock only moves when the test advances it. Folders are strings and items
+ * are "type:name" strings; web scenes are the items of type "scene".
+ */
+public class PortalContentEnumeratorTest {
+  private static final long DEADLINE_MS = 30000;
+
+  private FakePortal mPortal;
+  private FakeScheduler mScheduler;
+  private RecordingListener mListener;
+
+  @Before
+  public void setUp() {
+    mPortal = new FakePortal();
+    mScheduler = new FakeScheduler();
+    mListener = new RecordingListener();
+  }
+
+  private PortalContentEnumerator<String, String> enumerator(int maxConcurrent) {
+    return new PortalContentEnumerator<>(mPortal, mScheduler, maxConcurrent, DEADLINE_MS, mListener);
+  }
+
+  private static List<String> folders(int count) {
+    List<String> folders = new ArrayList<>();
+    for (int i = 0; i < count; i++) folders.add("folder" + i);
+    return folders;
+  }
+
+  @Test
+  public void listsMatchingItemsFromEveryFolder() {
+    PortalContentEnumerator<String, String> enumerator = enumerator(6);
+    enumerator.start();
+    mPortal.answerRoot(Arrays.asList("scene:root", "map:skip"), folders(3));
+    mPortal.answer("folder0", Arrays.asList("scene:a", "scene:b"));
+    mPortal.answer("folder1", Collections.singletonList("map:c"));
+    mPortal.answer("folder2", Collections.singletonList("scene:d"));
+
+    assertEquals(Boolean.TRUE, mListener.mComplete);
+    assertEquals(Arrays.asList("scene:root"), mListener.mItems.get(null));
+    assertEquals(Arrays.asList("scene:a", "scene:b"), mListener.mItems.get("folder0"));
+    assertFalse("Folders without matches aren't reported", mListener.mItems.containsKey("folder1"));
+    assertEquals(Arrays.asList("scene:d"), mListener.mItems.get("folder2"));
+    assertTrue(enumerator.isFinished());
+    assertFalse("The deadline is cleared", mScheduler.hasPending());
+  }
+
+  @Test
+  public void keepsToTheConcurrencyCap() {
+    enumerator(4).start();
+    mPortal.answerRoot(Collections.<String>emptyList(), folders(20));
+
+    assertEquals(4, mPortal.mOutstanding.size());
+    for (int i = 0; i < 20; i++) {
+      assertTrue(mPortal.mOutstanding.size() <= 4);
+      mPortal.answer(mPortal.mOutstanding.keySet().iterator().next(),
+          Collections.singletonList("scene:" + i));
+    }
+    assertEquals(4, mPortal.mMaxOutstanding);
+    assertEquals(21, mPortal.mFetches);
+    assertEquals(Boolean.TRUE, mListener.mComplete);
+  }
+
+  @Test
+  public void failedFoldersAreSkippedAndMakeTheListingIncomplete() {
+    enumerator(2).start();
+    mPortal.answerRoot(Collections.<String>emptyList(), folders(3));
+    mPortal.fail("folder0");
+    mPortal.answer("folder1", Collections.singletonList("scene:b"));
+    mPortal.answer("folder2", Collections.singletonList("scene:c"));
+
+    assertEquals(Boolean.FALSE, mListener.mComplete);
+    assertEquals(2, mListener.mItems.size());
+  }
+
+  @Test
+  public void failedRootFinishesIncomplete() {
+    enumerator(2).start();
+    mPortal.fail(FakePortal.ROOT);
+
+    assertEquals(Boolean.FALSE, mListener.mComplete);
+    assertTrue(mListener.mItems.isEmpty());
+  }
+
+  @Test
+  public void deadlineAbandonsUnreadFolders() {
+    PortalContentEnumerator<String, String> enumerator = enumerator(2);
+    enumerator.start();
+    mPortal.answerRoot(Collections.<String>emptyList(), folders(5));
+    mPortal.answer("folder0", Collections.singletonList("scene:a"));
+
+    mScheduler.advance(DEADLINE_MS);
+
+    assertEquals(Boolean.FALSE, mListener.mComplete);
+    assertTrue(enumerator.isFinished());
+    assertEquals(0, enumerator.get_inFlightCount());
+    assertEquals("Requests in flight are cancelled", 2, mPortal.mCancelled.size());
+    // Answers arriving late are ignored
+    mPortal.answer("folder1", Collections.singletonList("scene:late"));
+    assertEquals(1, mListener.mItems.size());
+    assertEquals(1, mListener.mFinishedCalls);
+    assertEquals(4, mPortal.mFetches);
+  }
+
+  @Test
+  public void nothingStartsAfterTheDeadlineEvenBeforeItRuns() {
+    enumerator(1).start();
+    mPortal.answerRoot(Collections.<String>emptyList(), folders(3));
+    // The clock passes the deadline while an answer is queued ahead of the deadline callback
+    mScheduler.mNow += DEADLINE_MS;
+    mPortal.answer("folder0", Collections.singletonList("scene:a"));
+
+    assertEquals(Boolean.FALSE, mListener.mComplete);
+    assertEquals("No folder after the deadline is fetched", 2, mPortal.mFetches);
+  }
+
+  @Test
+  public void cancelStopsEverythingQuietly() {
+    PortalContentEnumerator<String, String> enumerator = enumerator(3);
+    enumerator.start();
+    mPortal.answerRoot(Collections.<String>emptyList(), folders(5));
+
+    enumerator.cancel();
+
+    assertEquals(3, mPortal.mCancelled.size());
+    assertFalse(mScheduler.hasPending());
+    mPortal.answer("folder0", Collections.singletonList("scene:a"));
+    mScheduler.advance(DEADLINE_MS);
+    assertNull("The listener isn't called after cancelling", mListener.mComplete);
+    assertTrue(mListener.mItems.isEmpty());
+    assertEquals(4, mPortal.mFetches);
+  }
+
+  @Test
+  public void sourceAnsweringAtOnceIsHandled() {
+    mPortal.mImmediate = true;
+    mPortal.mFolders.put(FakePortal.ROOT, folders(10));
+    enumerator(3).start();
+
+    assertEquals(Boolean.TRUE, mListener.mComplete);
+    assertEquals(11, mPortal.mFetches);
+    assertTrue(mPortal.mCancelled.isEmpty());
+  }
+
+  /** Stand-in portal: fetches wait until answered, unless answering immediately */
+  private static class FakePortal implements PortalContentEnumerator.ContentSource<String, String> {
+    static final String ROOT = "(root)";
+
+    final Map<String, PortalContentEnumerator.ContentCallback<String, String>> mOutstanding =
+        new LinkedHashMap<>();
+    final Map<String, List<String>> mFolders = new HashMap<>();
+    final List<String> mCancelled = new ArrayList<>();
+    int mFetches, mMaxOutstanding;
+    boolean mImmediate = false;
+
+    @Override
+    public PortalContentEnumerator.Request fetch(
+        String folder, PortalContentEnumerator.ContentCallback<String, String> callback) {
+      final String key = (folder != null) ? folder : ROOT;
+      mFetches++;
+      if (mImmediate) {
+        List<String> subfolders = mFolders.get(key);
+        callback.onContent(Collections.singletonList("scene:" + key),
+            (subfolders != null) ? subfolders : Collections.<String>emptyList());
+      } else {
+        mOutstanding.put(key, callback);
+        mMaxOutstanding = Math.max(mMaxOutstanding, mOutstanding.size());
+      }
+      return new PortalContentEnumerator.Request() {
+        @Override
+        public void cancel() {
+          if (mOutstanding.remove(key) != null) mCancelled.add(key);
+        }
+      };
+    }
+
+    @Override
+    public boolean matches(String item) {
+      return item.startsWith("scene:");
+    }
+
+    void answerRoot(List<String> items, List<String> subfolders) {
+      mOutstanding.remove(ROOT).onContent(items, subfolders);
+    }
+
+    /** Answer a folder, if it's still being waited on */
+    void answer(String folder, List<String> items) {
+      PortalContentEnumerator.ContentCallback<String, String> callback = mOutstanding.remove(folder);
+      if (callback != null) callback.onContent(items, Collections.<String>emptyList());
+    }
+
+    void fail(String folder) {
+      mOutstanding.remove(folder).onError(new IOException("HTTP 500 for " + folder));
+    }
+  }
+
+  /** Runs delayed callbacks when the test advances its clock */
+  private static class FakeScheduler implements PortalContentEnumerator.Scheduler {
+    final Map<Runnable, Long> mDue = new LinkedHashMap<>();
+    long mNow = 1000;
+
+    @Override
+    public void postDelayed(Runnable r, long delayMs) {
+      mDue.put(r, mNow + delayMs);
+    }
+
+    @Override
+    public void removeCallbacks(Runnable r) {
+      mDue.remove(r);
+    }
+
+    @Override
+    public long uptimeMillis() {
+      return mNow;
+    }
+
+    boolean hasPending() {
+      return !mDue.isEmpty();
+    }
+
+    void advance(long ms) {
+      mNow += ms;
+      for (Map.Entry<Runnable, Long> due : new ArrayList<>(mDue.entrySet())) {
+        if (due.getValue() <= mNow && mDue.remove(due.getKey()) != null) due.getKey().run();
+      }
+    }
+  }
+
+  private static class RecordingListener implements PortalContentEnumerator.Listener<String, String> {
+    final Map<String, List<String>> mItems = new HashMap<>();
+    Boolean mComplete;
+    int mFinishedCalls;
+
+    @Override
+    public void onItems(String folder, List<String> items) {
+      mItems.put(folder, items);
+    }
+
+    @Override
+    public void onFinished(boolean complete) {
+      mComplete = complete;
+      mFinishedCalls++;
+    }
+  }
+}
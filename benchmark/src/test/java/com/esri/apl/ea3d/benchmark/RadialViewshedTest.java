@@ -0,0 +1,139 @@
+package com.esri.apl.ea3d.benchmark;
+
+import com.esri.apl.ea3d.analysis.Heightfield;
+import com.esri.apl.ea3d.analysis.RadialViewshed;
+import com.esri.apl.ea3d.analysis.ViewshedRaster;
+import com.esri.apl.ea3d.util.Projection;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.esri.apl.ea3d.benchmark.SyntheticTerrain.CELL;
+import static com.esri.apl.ea3d.benchmark.SyntheticTerrain.x;
+import static com.esri.apl.ea3d.benchmark.SyntheticTerrain.y;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RadialViewshedTest {
+  private static final int SIZE = 201;
+  private static final int CENTER = SIZE / 2;
+
+  private static ExecutorService sExecutor;
+
+  @BeforeClass
+  public static void startExecutor() {
+    sExecutor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterClass
+  public static void stopExecutor() {
+    sExecutor.shutdown();
+  }
+
+  private static Heightfield flat(float height) {
+    return SyntheticTerrain.flat(SIZE, height);
+  }
+
+  @Test
+  public void sectorsMergeToTheSerialResult() throws InterruptedException {
+    Heightfield hf = SyntheticTerrain.hills(SIZE, CELL, 5);
+    RadialViewshed viewshed = new RadialViewshed(hf);
+    double z = hf.elevationAt(x(CENTER), y(CENTER)) + 2;
+    ViewshedRaster serial = viewshed.compute(x(CENTER), y(CENTER), z, 800, 0, 1, null, 1);
+
+    // Sector counts that do and don't divide the rays evenly, including more sectors than threads
+    for (int sectors : new int[] {2, 3, 7, 8, 64}) {
+      ViewshedRaster parallel = viewshed.compute(x(CENTER), y(CENTER), z, 800, 0, 1, sExecutor, sectors);
+      assertArrayEquals("sectors=" + sectors, serial.get_bits(), parallel.get_bits());
+      assertEquals(serial.get_cellsInRange(), parallel.get_cellsInRange());
+    }
+    assertTrue("Hills should hide some cells", serial.get_visibleCells() < serial.get_cellsInRange());
+  }
+
+  @Test
+  public void flatTerrainIsAllVisible() throws InterruptedException {
+    double radius = 500;
+    ViewshedRaster raster = new RadialViewshed(flat(100))
+        .compute(x(CENTER), y(CENTER), 102, radius, 0, 1, sExecutor, 8);
+
+    assertEquals(raster.get_cellsInRange(), raster.get_visibleCells());
+    assertEquals(1.0, raster.get_visibleFraction(), 0);
+    assertEquals(raster.get_visibleCells() * CELL * CELL, raster.get_visibleArea(), 1e-6);
+    // Whole cells within the radius cover about the circle's area
+    assertEquals(Math.PI * radius * radius, raster.get_visibleArea(), 0.02 * Math.PI * radius * radius);
+  }
+
+  @Test
+  public void mercatorGridIsMeasuredOnTheGround() throws InterruptedException {
+    // At 60 degrees north a Web Mercator meter is half a meter on the ground
+    double[] xy = new double[2];
+    Projection.wgs84ToWebMercator(-117, 60, xy, 0);
+    float[] heights = new float[SIZE * SIZE];
+    Arrays.fill(heights, 100);
+    Heightfield hf = new Heightfield(heights, SIZE, SIZE,
+        xy[0] - CENTER * CELL, xy[1] - CENTER * CELL, CELL);
+    double scale = Projection.webMercatorGroundScale(xy[1]);
+    assertEquals(0.5, scale, 1e-9);
+    double radius = 400;
+
+    ViewshedRaster raster = new RadialViewshed(hf).compute(xy[0], xy[1], 102, radius, 0, scale, null, 1);
+
+    // 400 m on the ground reaches 80 Mercator cells out, not 40
+    assertEquals(2 * 80 + 1, raster.get_size());
+    assertEquals(CELL * scale, raster.get_groundCellSize(), 1e-9);
+    assertEquals(Math.PI * radius * radius, raster.get_visibleArea(), 0.02 * Math.PI * radius * radius);
+  }
+
+  @Test
+  public void wallHidesWhatsBehindIt() throws InterruptedException {
+    Heightfield hf = flat(0);
+    int wallColumn = CENTER + 10;
+    for (int r = 0; r < SIZE; r++) hf.get_heights()[r * SIZE + wallColumn] = 50;
+    ViewshedRaster raster = new RadialViewshed(hf).compute(x(CENTER), y(CENTER), 2, 300, 0, 1, null, 1);
+
+    int n = raster.get_size() / 2;
+    assertTrue(raster.isVisible(n + 5, n));    // In front of the wall
+    assertTrue(raster.isVisible(n + 10, n));   // The wall itself
+    assertFalse(raster.isVisible(n + 20, n));  // Behind it
+    assertTrue(raster.isVisible(n - 20, n));   // Away from it
+    assertTrue(raster.get_visibleFraction() > 0.5 && raster.get_visibleFraction() < 1);
+  }
+
+  @Test
+  public void pixelsRunFromTheNorth() throws InterruptedException {
+    Heightfield hf = flat(0);
+    // Ridge across the grid north of the observer hides the far north
+    for (int c = 0; c < SIZE; c++) hf.get_heights()[(CENTER + 5) * SIZE + c] = 50;
+    ViewshedRaster raster = new RadialViewshed(hf).compute(x(CENTER), y(CENTER), 2, 200, 0, 1, null, 1);
+    int size = raster.get_size(), n = size / 2;
+
+    int[] pixels = raster.toPixels(1, 0);
+
+    assertEquals(0, pixels[(n - 15) * size + n]); // Top of the image: north, behind the ridge
+    assertEquals(1, pixels[(n + 15) * size + n]); // Bottom: south, open ground
+  }
+
+  @Test
+  public void csvHasStatistics() throws Exception {
+    ViewshedRaster raster = new RadialViewshed(flat(100))
+        .compute(x(CENTER), y(CENTER), 102, 100, 0, 1, null, 1);
+    StringBuilder csv = new StringBuilder();
+
+    raster.writeCsv(csv);
+
+    String[] lines = csv.toString().split("\n");
+    assertEquals(2, lines.length);
+    assertTrue(lines[0].startsWith("origin_x,origin_y,cell_size_m,size,cells_in_range,visible_cells"));
+    String[] fields = lines[1].split(",");
+    assertEquals(raster.get_size(), Integer.parseInt(fields[3]));
+    assertEquals(raster.get_visibleCells(), Integer.parseInt(fields[5]));
+    assertEquals(1.0, Double.parseDouble(fields[7]), 0);
+  }
+}
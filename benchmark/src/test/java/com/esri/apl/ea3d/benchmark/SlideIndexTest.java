@@ -0,0 +1,67 @@
+package com.esri.apl.ea3d.benchmark;
+
+import com.esri.apl.ea3d.model.Slide;
+import com.esri.apl.ea3d.model.SlideIndex;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class SlideIndexTest {
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static String slide(int i) {
+    return "{\"id\":\"slide_" + i + "\",\"title\":{\"text\":\"Slide " + i + "\"},"
+        + "\"viewpoint\":{\"scale\":5000,\"camera\":{\"position\":{\"spatialReference\":{\"wkid\":4326},"
+        + "\"x\":-117.19,\"y\":34.05,\"z\":" + (100 + i) + "},\"heading\":30,\"tilt\":60}},"
+        + "\"visibleLayers\":[{\"id\":\"layer_" + i + "\"},{\"id\":\"base\"}]}";
+  }
+
+  private static SlideIndex parse(String json) throws IOException {
+    return SlideIndex.parse(json.getBytes(UTF8));
+  }
+
+  private static void assertMalformed(String json) {
+    try {
+      parse(json);
+      fail("Parsed malformed webscene " + json);
+    } catch (IOException expected) {
+      // Reported as a bad webscene, rather than looping or throwing unchecked
+    }
+  }
+
+  @Test
+  public void indexesSlidesAndDecodesDetailsOnDemand() throws IOException {
+    SlideIndex index = parse("{\"operationalLayers\":[{\"id\":\"layer_0\",\"title\":\"]}\"}],"
+        + "\"presentation\":{\"slides\":[" + slide(0) + " , " + slide(1) + "]},\"version\":\"1.11\"}");
+
+    assertEquals(2, index.size());
+    assertEquals("slide_1", index.getId(1));
+    assertEquals("Slide 0", index.getTitle(0));
+    Slide slide = index.toSlides().get(1);
+    assertEquals(101, slide.get_cameraSpec().get_z(), 0);
+    assertEquals(Arrays.asList("layer_1", "base"), slide.get_visibleLayerIds());
+  }
+
+  @Test
+  public void noPresentationIsEmpty() throws IOException {
+    assertEquals(0, parse("{\"operationalLayers\":[]}").size());
+    assertEquals(0, parse("{\"presentation\":{}}").size());
+  }
+
+  @Test
+  public void malformedSlidesAreRejected() {
+    assertMalformed("{\"presentation\":{\"slides\":[}]}}");
+    assertMalformed("{\"presentation\":{\"slides\":[,]}}");
+    assertMalformed("{\"presentation\":{\"slides\":[:]}}");
+    assertMalformed("{\"presentation\":{\"slides\":[" + slide(0) + " " + slide(1) + "]}}");
+    assertMalformed("{\"presentation\":{\"slides\":[" + slide(0) + ",");
+    assertMalformed("{\"presentation\":{\"slides\":[\"slide\"]}}");
+    assertMalformed("{\"presentation\":{\"a\":,\"slides\":[]}}");
+  }
+}
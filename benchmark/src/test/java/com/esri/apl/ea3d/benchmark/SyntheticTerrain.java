@@ -0,0 +1,65 @@
+package com.esri.apl.ea3d.benchmark;
+
+import com.esri.apl.ea3d.analysis.Heightfield;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/** Seeded synthetic DEMs: rolling hills from a few sine waves plus a little per-cell noise */
+final class SyntheticTerrain {
+  static final double ORIGIN_X = -13042000, ORIGIN_Y = 4035000; // Web Mercator, near Redlands
+  /** Cell size of {@link #flat} grids, and of the {@link #x} and {@link #y} cell centers */
+  static final double CELL = 10;
+
+  private SyntheticTerrain() {}
+
+  /** Level ground everywhere */
+  static Heightfield flat(int size, float height) {
+    float[] heights = new float[size * size];
+    Arrays.fill(heights, height);
+    return new Heightfield(heights, size, size, ORIGIN_X, ORIGIN_Y, CELL);
+  }
+
+  /** x of the center of a column of a grid with {@link #CELL}-sized cells */
+  static double x(int column) {
+    return ORIGIN_X + column * CELL;
+  }
+
+  /** y of the center of a row of a grid with {@link #CELL}-sized cells */
+  static double y(int row) {
+    return ORIGIN_Y + row * CELL;
+  }
+
+  static Heightfield hills(int size, double cellSize, long seed) {
+    Random rnd = new Random(seed);
+    double[] freq = new double[4], phase = new double[4], amp = new double[4];
+    for (int k = 0; k < 4; k++) {
+      freq[k] = (k + 1) * (0.5 + rnd.nextDouble()) * 2 * Math.PI / size;
+      phase[k] = rnd.nextDouble() * 2 * Math.PI;
+      amp[k] = 120.0 / (k + 1);
+    }
+    float[] heights = new float[size * size];
+    for (int r = 0; r < size; r++) {
+      for (int c = 0; c < size; c++) {
+        double h = 300;
+        for (int k = 0; k < 4; k++)
+          h += amp[k] * Math.sin(freq[k] * c + phase[k]) * Math.cos(freq[k] * r - phase[k]);
+        heights[r * size + c] = (float) (h + rnd.nextDouble() * 2);
+      }
+    }
+    return new Heightfield(heights, size, size, ORIGIN_X, ORIGIN_Y, cellSize);
+  }
+
+  /** {@code count} packed xyz points inside the grid, standing {@code heightAbove} m over the terrain */
+  static double[] pointsOn(Heightfield hf, int count, double heightAbove, long seed) {
+    Random rnd = new Random(seed);
+    double span = (hf.get_columns() - 1) * hf.get_cellSize();
+    double[] xyz = new double[count * 3];
+    for (int i = 0, j = 0; i < count; i++, j += 3) {
+      xyz[j] = hf.get_originX() + rnd.nextDouble() * span;
+      xyz[j + 1] = hf.get_originY() + rnd.nextDouble() * span;
+      xyz[j + 2] = hf.elevationAt(xyz[j], xyz[j + 1]) + heightAbove;
+    }
+    return xyz;
+  }
+}